@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+set -e
+
+# Compares two JMH CSV result files, reporting the benchmarks whose score got worse by more than a threshold
+# (10% by default, override it with the THRESHOLD variable).
+#
+# This assumes the average time mode (the default for the jutils benchmarks), where higher scores are worse.
+#
+# Usage: compare-results.sh <baseline.csv> <new-results.csv>
+#
+# Exits with 1 if there are regressions, 2 if any of the files has no results.
+#
+
+baseline="$1"
+results="$2"
+threshold="${THRESHOLD:-10}"
+
+# An empty baseline would make every benchmark look new and the comparison pass, so it's an error
+if [[ $(wc -l <"$baseline") -le 1 ]]; then
+	echo "ERROR: the baseline '$baseline' has no results, nothing can be compared." >&2
+	echo "ERROR: record it on the reference machine, with run-benchmarks.sh --save-baseline" >&2
+	exit 2
+fi
+if [[ $(wc -l <"$results") -le 1 ]]; then
+	echo "ERROR: the results file '$results' has no results" >&2
+	exit 2
+fi
+
+# Key = benchmark + threads + params (all columns from the 8th), value = score (5th)
+awk -F, -v threshold="$threshold" '
+	function key () {
+		k = $1 " t=" $3
+		for ( i = 8; i <= NF; i++ ) k = k " " $i
+		gsub ( /"/, "", k )
+		return k
+	}
+	FNR == 1 { next }
+	FNR == NR { base [ key() ] = $5; next }
+	{
+		k = key ()
+		if ( !( k in base ) ) { printf "%-90s %12s %12.2f\n", k, "(new)", $5; next }
+		delta = ( $5 - base [ k ] ) / base [ k ] * 100
+		flag = delta > threshold ? "  <== REGRESSION" : ""
+		if ( flag != "" ) regressions++
+		printf "%-90s %12.2f %12.2f %+8.1f%%%s\n", k, base [ k ], $5, delta, flag
+	}
+	END {
+		printf "\n%d regression(s) above %s%%\n", regressions, threshold
+		exit regressions > 0 ? 1 : 0
+	}
+' "$baseline" "$results"
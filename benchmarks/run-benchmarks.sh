@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+set -e
+
+# Runs the benchmarks with an increasing no. of threads and merges the results into target/results.csv.
+# Then, compares them with the baseline, or, with --save-baseline, makes them the new baseline.
+#
+# Any other option is passed to JMH, eg, ./run-benchmarks.sh -p executorType=stats,direct
+#
+# Build first: mvn install in the jutils directory, then mvn package here.
+#
+
+cd "$(dirname "$0")"
+
+is_save_baseline=false
+if [[ "$1" == '--save-baseline' ]]; then
+	is_save_baseline=true
+	shift
+fi
+
+# Override it to use different thread counts
+threads="${BENCHMARK_THREADS:-1 2 4 8}"
+
+results=target/results.csv
+rm -f "$results"
+for t in $threads
+do
+	printf "\n\n==== Running with $t thread(s)\n\n"
+	java -jar target/benchmarks.jar -t $t -rf csv -rff "target/results-t$t.csv" "$@"
+	
+	# Merge, keeping the first header only
+	if [[ -e "$results" ]]; then
+		tail -n +2 "target/results-t$t.csv" >>"$results"
+	else
+		cp "target/results-t$t.csv" "$results"
+	fi
+done
+
+if $is_save_baseline; then
+	cp "$results" baseline/results.csv
+	printf "\n\n==== Results saved as the new baseline\n\n"
+	exit
+fi
+
+printf "\n\n==== Comparison with the baseline\n\n"
+./compare-results.sh baseline/results.csv "$results"
@@ -0,0 +1,58 @@
+package uk.ac.ebi.utils.collections.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ebi.utils.collections.ObjectStore;
+
+/**
+ * <p>Measures the lookup time of the {@link ObjectStore} implementations, see {@link ObjectStoreFootprint} for
+ * their memory usage.</p>
+ *
+ * <p>Each benchmark thread has its own store, since the stores aren't thread-safe.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 2 )
+@Measurement ( iterations = 5, time = 2 )
+@Fork ( value = 1, jvmArgs = { "-Xmx4g" } )
+@State ( Scope.Thread )
+public class ObjectStoreBenchmark
+{
+	@Param ({ "objectStore", "longKey", "longKeyOffHeap" })
+	public String storeType;
+
+	@Param ({ "1000000" })
+	public int size;
+
+	private ObjectStore<String, Long, String> store;
+
+	@Setup
+	public void setup ()
+	{
+		store = ObjectStoreFootprint.createStore ( storeType );
+		ObjectStoreFootprint.load ( store, size );
+	}
+
+	@Benchmark
+	public String get ()
+	{
+		return store.get ( "node", (long) ThreadLocalRandom.current ().nextInt ( size ) );
+	}
+}
@@ -0,0 +1,93 @@
+package uk.ac.ebi.utils.collections.benchmarks;
+
+import java.util.Locale;
+
+import uk.ac.ebi.utils.collections.LongKeyObjectStore;
+import uk.ac.ebi.utils.collections.ObjectStore;
+import uk.ac.ebi.utils.collections.ValueCodec;
+
+/**
+ * <p>Reports the heap (and off-heap) memory used by the {@link ObjectStore} implementations, when loaded with
+ * the same entries, ie, long keys and short string values, as in an identity registry.</p>
+ *
+ * <p>JMH doesn't measure memory, so this is a plain program, run it with:</p>
+ *
+ * <pre>
+ *   java -Xmx8g -cp target/benchmarks.jar uk.ac.ebi.utils.collections.benchmarks.ObjectStoreFootprint [entries]
+ * </pre>
+ *
+ * <p>The heap usage is measured after a few GC requests, which is an approximation, but good enough to compare
+ * data structures of this size. The default no. of entries is 10 millions.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ObjectStoreFootprint
+{
+	public static final String[] STORE_TYPES = { "objectStore", "longKey", "longKeyOffHeap" };
+
+	public static void main ( String... args )
+	{
+		int entries = args.length > 0 ? Integer.parseInt ( args [ 0 ] ) : 10_000_000;
+
+		System.out.printf ( Locale.ROOT, "%-16s %14s %14s %12s %12s\n",
+			"store", "heap (MB)", "off-heap (MB)", "heap B/entry", "load (ms)"
+		);
+
+		for ( String storeType: STORE_TYPES )
+		{
+			long heapBefore = usedHeap ();
+
+			long start = System.currentTimeMillis ();
+			ObjectStore<String, Long, String> store = createStore ( storeType );
+			load ( store, entries );
+			long loadTime = System.currentTimeMillis () - start;
+
+			long heap = usedHeap () - heapBefore;
+			long offHeap = store instanceof LongKeyObjectStore
+				? ( (LongKeyObjectStore<String, String>) store ).getOffHeapUsedBytes ()
+				: 0;
+
+			System.out.printf ( Locale.ROOT, "%-16s %14.1f %14.1f %12.1f %12d\n",
+				storeType, heap / 1E6, offHeap / 1E6, (double) heap / entries, loadTime
+			);
+
+			// Keep it alive until the measurement
+			if ( store.size () != entries ) throw new IllegalStateException ( "Wrong store size: " + store.size () );
+		}
+	}
+
+	static ObjectStore<String, Long, String> createStore ( String storeType )
+	{
+		switch ( storeType )
+		{
+			case "objectStore": return new ObjectStore<> ();
+			case "longKey": return new LongKeyObjectStore<> ();
+			case "longKeyOffHeap": return new LongKeyObjectStore<> ( ValueCodec.utf8 () );
+			default: throw new IllegalArgumentException ( "Unknown store type: " + storeType );
+		}
+	}
+
+	static void load ( ObjectStore<String, Long, String> store, int entries )
+	{
+		for ( long key = 0; key < entries; key++ )
+			store.put ( "node", key, "node:" + key );
+	}
+
+	private static long usedHeap ()
+	{
+		Runtime rt = Runtime.getRuntime ();
+		for ( int i = 0; i < 3; i++ )
+		{
+			System.gc ();
+			try {
+				Thread.sleep ( 200 );
+			}
+			catch ( InterruptedException ex ) {
+				Thread.currentThread ().interrupt ();
+			}
+		}
+		return rt.totalMemory () - rt.freeMemory ();
+	}
+}
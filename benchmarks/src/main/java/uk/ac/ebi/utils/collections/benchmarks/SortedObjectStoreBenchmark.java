@@ -0,0 +1,83 @@
+package uk.ac.ebi.utils.collections.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.ebi.utils.collections.SortedObjectStore;
+import uk.ac.ebi.utils.collections.SortedObjectStoreSnapshot;
+
+/**
+ * Compares the lookups and range scans of {@link SortedObjectStore} and of its
+ * {@link SortedObjectStoreSnapshot snapshot}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 2 )
+@Measurement ( iterations = 5, time = 2 )
+@Fork ( value = 1, jvmArgs = { "-Xmx4g" } )
+@State ( Scope.Benchmark )
+public class SortedObjectStoreBenchmark
+{
+	@Param ({ "1000000" })
+	public int size;
+
+	private SortedObjectStore<String, Long, String> store;
+	private SortedObjectStoreSnapshot<String, Long, String> snapshot;
+
+	@Setup
+	public void setup ()
+	{
+		store = new SortedObjectStore<> ();
+		for ( long key = 0; key < size; key++ )
+			store.put ( "node", key * 2, "node:" + key );
+		snapshot = store.snapshot ();
+	}
+
+	@Benchmark
+	public String storeGet ()
+	{
+		return store.get ( "node", randomKey () );
+	}
+
+	@Benchmark
+	public String snapshotGet ()
+	{
+		return snapshot.get ( "node", randomKey () );
+	}
+
+	@Benchmark
+	public void storeRange ( Blackhole blackhole )
+	{
+		long from = randomKey ();
+		store.range ( "node", from, from + 200 ).values ().forEach ( blackhole::consume );
+	}
+
+	@Benchmark
+	public void snapshotRange ( Blackhole blackhole )
+	{
+		long from = randomKey ();
+		snapshot.range ( "node", from, from + 200 ).forEach ( e -> blackhole.consume ( e.getValue () ) );
+	}
+
+	private long randomKey ()
+	{
+		return ThreadLocalRandom.current ().nextLong ( size * 2L );
+	}
+}
@@ -0,0 +1,116 @@
+package uk.ac.ebi.utils.runcontrol.benchmarks;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.ebi.utils.runcontrol.BulkheadExecutor;
+import uk.ac.ebi.utils.runcontrol.ChainExecutor;
+import uk.ac.ebi.utils.runcontrol.CircuitBreakerExecutor;
+import uk.ac.ebi.utils.runcontrol.DynamicRateExecutor;
+import uk.ac.ebi.utils.runcontrol.MultipleAttemptsExecutor;
+import uk.ac.ebi.utils.runcontrol.RateLimitedExecutor;
+import uk.ac.ebi.utils.runcontrol.StatsExecutor;
+
+/**
+ * <p>Measures the per-call overhead of the runcontrol executors and of their common compositions.</p>
+ *
+ * <p>The rate limits are set high enough to never throttle, so that what's measured is the cost of the
+ * executor's bookkeeping. The {@code direct} executor, which just runs the action, is the reference. The
+ * contention scaling is measured by running this with different no. of threads (JMH's {@code -t} option),
+ * see the {@code run-benchmarks.sh} script.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 2 )
+@Measurement ( iterations = 5, time = 2 )
+@Fork ( 1 )
+@State ( Scope.Benchmark )
+public class ExecutorsBenchmark
+{
+	private static final double NO_LIMIT_RATE = 1E12;
+
+	@Param ({
+		"direct", "rateLimited", "dynamicRate", "stats", "multipleAttempts", "circuitBreaker", "bulkhead",
+		"chainStatsAttemptsRate", "chainBreakerBulkheadAttempts"
+	})
+	public String executorType;
+
+	/**
+	 * The simulated work done by the action, in {@link Blackhole#consumeCPU(long) CPU tokens}. 0 gives the
+	 * pure overhead, a bit of work makes the contention more realistic.
+	 */
+	@Param ({ "0", "500" })
+	public long actionTokens;
+
+	private Executor executor;
+	private Runnable action;
+
+	@Setup
+	public void setup ()
+	{
+		this.executor = createExecutor ( executorType );
+		long tokens = this.actionTokens;
+		this.action = () -> Blackhole.consumeCPU ( tokens );
+	}
+
+	@Benchmark
+	public void execute ()
+	{
+		executor.execute ( action );
+	}
+
+
+	private static Executor createExecutor ( String type )
+	{
+		switch ( type )
+		{
+			case "direct":
+				return Runnable::run;
+			case "rateLimited":
+				return new RateLimitedExecutor ( NO_LIMIT_RATE );
+			case "dynamicRate":
+				return new DynamicRateExecutor ( NO_LIMIT_RATE )
+				{
+					@Override
+					protected double setNewRate () {
+						return NO_LIMIT_RATE;
+					}
+				};
+			case "stats":
+				return new StatsExecutor ( "benchmark" );
+			case "multipleAttempts":
+				return new MultipleAttemptsExecutor ( IllegalStateException.class );
+			case "circuitBreaker":
+				return new CircuitBreakerExecutor ( "benchmark" );
+			case "bulkhead":
+				return new BulkheadExecutor ( "benchmark", 1024 );
+			case "chainStatsAttemptsRate":
+				return new ChainExecutor ( new RateLimitedExecutor ( NO_LIMIT_RATE ) )
+					.wrap ( new MultipleAttemptsExecutor ( IllegalStateException.class ) )
+					.wrap ( new StatsExecutor ( "benchmark" ) );
+			case "chainBreakerBulkheadAttempts":
+				return new ChainExecutor ( new MultipleAttemptsExecutor ( IllegalStateException.class ) )
+					.wrap ( new BulkheadExecutor ( "benchmark", 1024 ) )
+					.wrap ( new CircuitBreakerExecutor ( "benchmark" ) );
+			default:
+				throw new IllegalArgumentException ( "Unknown executor type for the benchmarks: \"" + type + "\"" );
+		}
+	}
+}
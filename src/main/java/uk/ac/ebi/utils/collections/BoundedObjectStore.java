@@ -0,0 +1,306 @@
+package uk.ac.ebi.utils.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.collect.Maps;
+
+import uk.ac.ebi.utils.memory.MemoryUtils;
+
+/**
+ * <p>An {@link ObjectStore} with a maximum size, which evicts the entries that are less likely to be used again,
+ * so that it can be used as a cache during long data loads, keeping the heap usage stable, as opposed to
+ * flushing the whole store via {@link MemoryUtils#checkMemory(Runnable)}.</p>
+ *
+ * <p>The size is the no. of entries by default, or the total weight of the entries, if a weigher is given.
+ * The maximum size is for the whole store, not per type.</p>
+ *
+ * <p>The eviction policy is the segmented LRU: new entries go to a probation segment and, if they're accessed
+ * again, they're promoted to a protected segment, which takes {@link #PROTECTED_RATIO 80%} of the maximum size.
+ * The entries are evicted from the least recently used end of the probation segment first, so entries used only
+ * once, eg, during a scan, don't evict the frequently used ones, as it happens with a plain LRU.</p>
+ *
+ * <p>An {@link #withEvictionListener(EvictionListener) eviction listener} can be used to save the evicted
+ * objects. Hits, misses and evictions are counted, see {@link #getHitRate()}.</p>
+ *
+ * <p>Like the parent class, this isn't thread-safe. Since {@link #get(Object, Object)} changes the eviction
+ * order, the reads have to be synchronised too.</p>
+ *
+ * @param <T> the type of the types.
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BoundedObjectStore<T, K, V> extends ObjectStore<T, K, V>
+{
+	/**
+	 * The maximum share of the maximum size taken by the protected segment.
+	 */
+	public static final double PROTECTED_RATIO = 0.8;
+
+	/**
+	 * Receives the entries removed due to the size limit. Explicit removals and replacements aren't notified.
+	 */
+	@FunctionalInterface
+	public static interface EvictionListener<T, K, V>
+	{
+		void onEviction ( T type, K key, V value );
+	}
+
+	private static class Node<T, K, V>
+	{
+		final T type;
+		final K key;
+		V value;
+		long weight;
+		boolean isProtected = false;
+		Node<T, K, V> prev, next;
+
+		Node ( T type, K key ) {
+			this.type = type;
+			this.key = key;
+		}
+	}
+
+	private final Map<T, Map<K, Node<T, K, V>>> nodes = new HashMap<> ();
+	private final Map<T, Map<K, V>> types = Maps.transformValues (
+		nodes, typeNodes -> Maps.transformValues ( typeNodes, node -> node.value )
+	);
+
+	/** Sentinels of the circular lists, the heads are the most recently used ends */
+	private final Node<T, K, V> probation = newSentinel (), protectedSegment = newSentinel ();
+
+	private final long maxWeight, maxProtectedWeight;
+	private final ToLongFunction<? super V> weigher;
+	private long weight = 0, protectedWeight = 0;
+
+	private EvictionListener<? super T, ? super K, ? super V> evictionListener = null;
+	private long hits = 0, misses = 0, evictions = 0;
+
+	/**
+	 * Limits the store to a maximum no. of entries.
+	 */
+	public BoundedObjectStore ( long maxSize )
+	{
+		this ( maxSize, v -> 1 );
+	}
+
+	/**
+	 * Limits the store to a maximum total weight, where the weight of each entry is computed by the weigher
+	 * when it's stored.
+	 */
+	public BoundedObjectStore ( long maxWeight, ToLongFunction<? super V> weigher )
+	{
+		Validate.isTrue ( maxWeight > 0, "The max size of a BoundedObjectStore must be positive" );
+		Validate.notNull ( weigher, "Can't use a null weigher for a BoundedObjectStore" );
+
+		this.maxWeight = maxWeight;
+		this.maxProtectedWeight = (long) ( maxWeight * PROTECTED_RATIO );
+		this.weigher = weigher;
+	}
+
+
+	@Override
+	protected Map<T, Map<K, V>> getInternalTypes ()
+	{
+		return types;
+	}
+
+	/**
+	 * Stores an object, identified by a type and a key. If value is null, removes the entry. A new entry might
+	 * cause the eviction of others, including itself, if it's heavier than the maximum size.
+	 */
+	@Override
+	public void put ( T type, K key, V value )
+	{
+		if ( value == null ) {
+			Map<K, Node<T, K, V>> typeNodes = nodes.get ( type );
+			if ( typeNodes == null ) return;
+			Node<T, K, V> node = typeNodes.remove ( key );
+			if ( node != null ) unlink ( node );
+			return;
+		}
+
+		long valueWeight = weigher.applyAsLong ( value );
+		Validate.isTrue ( valueWeight >= 0, "Negative weight for the BoundedObjectStore value <%s, %s>", type, key );
+
+		Map<K, Node<T, K, V>> typeNodes = nodes.computeIfAbsent ( type, t -> new HashMap<> () );
+		Node<T, K, V> node = typeNodes.get ( key );
+		if ( node == null )
+		{
+			node = new Node<> ( type, key );
+			typeNodes.put ( key, node );
+			node.value = value;
+			node.weight = valueWeight;
+			link ( node, probation );
+		}
+		else
+		{
+			// A replacement is an access
+			unlink ( node );
+			node.value = value;
+			node.weight = valueWeight;
+			promote ( node );
+		}
+
+		// Else, it would evict everything else before itself
+		if ( valueWeight > maxWeight ) evict ( node );
+		evict ();
+	}
+
+	/**
+	 * Removes all the values of the type, without notifying the eviction listener.
+	 */
+	@Override
+	public void remove ( T type )
+	{
+		Map<K, Node<T, K, V>> typeNodes = nodes.get ( type );
+		if ( typeNodes == null ) return;
+
+		for ( Node<T, K, V> node: typeNodes.values () ) unlink ( node );
+		typeNodes.clear ();
+	}
+
+	/**
+	 * Counts a hit or a miss and, in the first case, marks the entry as recently used.
+	 */
+	@Override
+	public V get ( T type, K key )
+	{
+		Map<K, Node<T, K, V>> typeNodes = nodes.get ( type );
+		Node<T, K, V> node = typeNodes == null ? null : typeNodes.get ( key );
+
+		if ( node == null ) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		unlink ( node );
+		promote ( node );
+		return node.value;
+	}
+
+	/**
+	 * Moves an unlinked node to the head of the protected segment, moving the least recently used protected
+	 * entries back to the probation segment if the protected segment is too big.
+	 */
+	private void promote ( Node<T, K, V> node )
+	{
+		link ( node, protectedSegment );
+
+		while ( protectedWeight > maxProtectedWeight && protectedSegment.prev != node )
+		{
+			Node<T, K, V> demoted = protectedSegment.prev;
+			unlink ( demoted );
+			link ( demoted, probation );
+		}
+	}
+
+	private void evict ()
+	{
+		while ( weight > maxWeight )
+			evict ( probation.prev != probation ? probation.prev : protectedSegment.prev );
+	}
+
+	private void evict ( Node<T, K, V> victim )
+	{
+		unlink ( victim );
+		nodes.get ( victim.type ).remove ( victim.key );
+		evictions++;
+
+		if ( evictionListener != null ) evictionListener.onEviction ( victim.type, victim.key, victim.value );
+	}
+
+	private void link ( Node<T, K, V> node, Node<T, K, V> segment )
+	{
+		node.prev = segment;
+		node.next = segment.next;
+		segment.next.prev = node;
+		segment.next = node;
+
+		node.isProtected = segment == protectedSegment;
+		weight += node.weight;
+		if ( node.isProtected ) protectedWeight += node.weight;
+		size++;
+	}
+
+	private void unlink ( Node<T, K, V> node )
+	{
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = node.next = null;
+
+		weight -= node.weight;
+		if ( node.isProtected ) protectedWeight -= node.weight;
+		size--;
+	}
+
+	private static <T, K, V> Node<T, K, V> newSentinel ()
+	{
+		Node<T, K, V> result = new Node<> ( null, null );
+		result.prev = result.next = result;
+		return result;
+	}
+
+
+	/**
+	 * Receives the evicted entries, eg, to write them to a persistent storage. It's invoked during
+	 * {@link #put(Object, Object, Object)}, so it should not change the store.
+	 */
+	public BoundedObjectStore<T, K, V> withEvictionListener (
+		EvictionListener<? super T, ? super K, ? super V> evictionListener
+	)
+	{
+		this.evictionListener = evictionListener;
+		return this;
+	}
+
+	public long getMaxWeight ()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * The total weight of the current entries, which is the same as {@link #size()} when there is no weigher.
+	 */
+	public long getWeight ()
+	{
+		return weight;
+	}
+
+	public long getHits ()
+	{
+		return hits;
+	}
+
+	public long getMisses ()
+	{
+		return misses;
+	}
+
+	public long getEvictions ()
+	{
+		return evictions;
+	}
+
+	/**
+	 * hits / (hits + misses), NaN if there hasn't been any {@link #get(Object, Object)} yet.
+	 */
+	public double getHitRate ()
+	{
+		long requests = hits + misses;
+		return requests == 0 ? Double.NaN : (double) hits / requests;
+	}
+
+	public void resetStats ()
+	{
+		hits = misses = evictions = 0;
+	}
+}
@@ -0,0 +1,135 @@
+package uk.ac.ebi.utils.collections;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>A thread-safe {@link ObjectStore}, which can be used by many threads without external synchronisation, eg,
+ * by the tasks of a parallel batch processing job.</p>
+ *
+ * <p>Every type has a {@link ConcurrentHashMap}, created atomically, and the size is kept by a {@link LongAdder},
+ * so that concurrent writers don't contend on a single counter. {@link #size()} is exact when the store isn't
+ * being updated and a best estimate otherwise.</p>
+ *
+ * <p>The dedup logic, where the first object stored with a key wins and the later threads get it, should use
+ * {@link #putIfAbsent(Object, Object, Object)} or {@link #computeIfAbsent(Object, Object, Function)}, since a
+ * {@link #get(Object, Object) get}/{@link #put(Object, Object, Object) put} sequence isn't atomic.</p>
+ *
+ * <p>Unlike the parent class, null types and keys aren't supported. The views returned by {@link #types()},
+ * {@link #typeKeys(Object)} and {@link #values(Object)} are weakly consistent, as per
+ * {@link ConcurrentHashMap}.</p>
+ *
+ * @param <T> the type of the types.
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ConcurrentObjectStore<T, K, V> extends ObjectStore<T, K, V>
+{
+	private final ConcurrentHashMap<T, Map<K, V>> types = new ConcurrentHashMap<> ();
+	private final LongAdder concurrentSize = new LongAdder ();
+
+	@Override
+	protected Map<T, Map<K, V>> getInternalTypes ()
+	{
+		return types;
+	}
+
+	@Override
+	protected Map<K, V> newKeyMap ()
+	{
+		return new ConcurrentHashMap<> ();
+	}
+
+
+	/**
+	 * Stores an object, identified by a type and a key. If value is null, removes the entry.
+	 */
+	@Override
+	public void put ( T type, K key, V value )
+	{
+		if ( value == null )
+		{
+			Map<K, V> idmap = types.get ( type );
+			if ( idmap != null && idmap.remove ( key ) != null ) concurrentSize.decrement ();
+			return;
+		}
+
+		if ( getKeyMap ( type ).put ( key, value ) == null ) concurrentSize.increment ();
+	}
+
+	/**
+	 * Stores the value only if there isn't one for the type and key, in an atomic way.
+	 *
+	 * @return the existing value, or null if the new value was stored.
+	 */
+	public V putIfAbsent ( T type, K key, V value )
+	{
+		Validate.notNull ( value, "Can't store a null value in a ConcurrentObjectStore" );
+
+		V result = getKeyMap ( type ).putIfAbsent ( key, value );
+		if ( result == null ) concurrentSize.increment ();
+		return result;
+	}
+
+	/**
+	 * Returns the value for the type and key, computing and storing it if it's not there. As for
+	 * {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}, the value is computed at most once and the
+	 * function should be short and simple.
+	 *
+	 * @return the existing or computed value, null if the function returns null, in which case nothing is
+	 * stored.
+	 */
+	public V computeIfAbsent ( T type, K key, Function<? super K, ? extends V> valueProvider )
+	{
+		Validate.notNull ( valueProvider, "Can't use a null value provider in a ConcurrentObjectStore" );
+
+		boolean[] isNew = { false };
+		V result = getKeyMap ( type ).computeIfAbsent ( key, k -> {
+			V value = valueProvider.apply ( k );
+			isNew [ 0 ] = value != null;
+			return value;
+		});
+		if ( isNew [ 0 ] ) concurrentSize.increment ();
+		return result;
+	}
+
+	/**
+	 * Removes the values of the type one by one, so that the size stays consistent with the values that are
+	 * concurrently added.
+	 */
+	@Override
+	public void remove ( T type )
+	{
+		Map<K, V> idmap = types.get ( type );
+		if ( idmap == null ) return;
+
+		for ( K key: idmap.keySet () )
+			if ( idmap.remove ( key ) != null ) concurrentSize.decrement ();
+	}
+
+	@Override
+	public V get ( T type, K key )
+	{
+		Map<K, V> idmap = types.get ( type );
+		return idmap == null ? null : idmap.get ( key );
+	}
+
+	@Override
+	public int size ()
+	{
+		return concurrentSize.intValue ();
+	}
+
+	private Map<K, V> getKeyMap ( T type )
+	{
+		return types.computeIfAbsent ( type, t -> newKeyMap () );
+	}
+}
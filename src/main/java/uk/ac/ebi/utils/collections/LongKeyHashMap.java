@@ -0,0 +1,428 @@
+package uk.ac.ebi.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>A hash map with primitive long keys, based on open addressing (linear probing), which needs much less
+ * memory than a {@link java.util.HashMap} with {@link Long} keys: there are no entry objects and no boxed keys,
+ * an entry takes less than 20 bytes plus the value.</p>
+ *
+ * <p>Optionally, the values can be kept off-heap, in direct buffers, by encoding them with a
+ * {@link ValueCodec}, which reduces the heap usage further, at the price of decoding a value at every
+ * {@link #get(long)}. Off-heap values are written in an append-only way, so updates and removals leave unused
+ * space, see {@link LongKeyObjectStore#compact()}.</p>
+ *
+ * <p>Null values aren't supported. The methods of the {@link Map} interface are supported, with the {@link Long}
+ * keys unboxed, except the removals via iterators. The primitive methods, like {@link #get(long)}, should be
+ * preferred. This class isn't thread-safe.</p>
+ *
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class LongKeyHashMap<V> extends AbstractMap<Long, V>
+{
+	private static final double LOAD_FACTOR = 0.7;
+
+	private long[] keys;
+	/** 1 bit per slot, telling if the slot is used, so that no key value has to be reserved for the free slots */
+	private long[] usedSlots;
+	/** The on-heap values */
+	private Object[] values;
+	/** The off-heap values, ie, references in {@link #arena} */
+	private long[] valueRefs;
+
+	private int size = 0, mask, resizeThreshold;
+
+	private final ValueCodec<V> codec;
+	private OffHeapArena arena;
+
+	public LongKeyHashMap ()
+	{
+		this ( 16 );
+	}
+
+	public LongKeyHashMap ( int expectedSize )
+	{
+		this ( expectedSize, null, null );
+	}
+
+	/**
+	 * Keeps the values off-heap, using the codec.
+	 */
+	public LongKeyHashMap ( int expectedSize, ValueCodec<V> codec )
+	{
+		this ( expectedSize, codec, new OffHeapArena () );
+		Validate.notNull ( codec, "Can't use a null codec for an off-heap map" );
+	}
+
+	/**
+	 * If codec is null, the values are kept on-heap and the arena is ignored.
+	 */
+	LongKeyHashMap ( int expectedSize, ValueCodec<V> codec, OffHeapArena arena )
+	{
+		Validate.isTrue ( expectedSize >= 0, "Invalid expected size for a map: %d", expectedSize );
+
+		this.codec = codec;
+		this.arena = codec == null ? null : arena;
+		allocate ( tableSize ( expectedSize ) );
+	}
+
+
+	public V get ( long key )
+	{
+		int slot = findSlot ( key );
+		return slot < 0 ? null : getValue ( slot );
+	}
+
+	public boolean containsKey ( long key )
+	{
+		return findSlot ( key ) >= 0;
+	}
+
+	/**
+	 * @return the previous value, or null.
+	 */
+	public V put ( long key, V value )
+	{
+		int slot = findSlot ( key );
+		if ( slot >= 0 )
+		{
+			V result = getValue ( slot );
+			setValue ( slot, value, false );
+			return result;
+		}
+
+		insert ( -slot - 1, key, value );
+		return null;
+	}
+
+	/**
+	 * Like {@link #put(long, Object)}, but doesn't return the previous value, which saves its decoding for
+	 * off-heap values.
+	 *
+	 * @return true if the key is new.
+	 */
+	public boolean set ( long key, V value )
+	{
+		int slot = findSlot ( key );
+		if ( slot >= 0 ) {
+			setValue ( slot, value, false );
+			return false;
+		}
+
+		insert ( -slot - 1, key, value );
+		return true;
+	}
+
+	/**
+	 * @return the removed value, or null.
+	 */
+	public V remove ( long key )
+	{
+		int slot = findSlot ( key );
+		if ( slot < 0 ) return null;
+
+		V result = getValue ( slot );
+		removeSlot ( slot );
+		return result;
+	}
+
+	/**
+	 * Like {@link #remove(long)}, but doesn't return the removed value.
+	 *
+	 * @return true if the key was there.
+	 */
+	public boolean delete ( long key )
+	{
+		int slot = findSlot ( key );
+		if ( slot < 0 ) return false;
+
+		removeSlot ( slot );
+		return true;
+	}
+
+
+	@Override
+	public V get ( Object key ) {
+		return key instanceof Long ? get ( (long) (Long) key ) : null;
+	}
+
+	@Override
+	public boolean containsKey ( Object key ) {
+		return key instanceof Long && containsKey ( (long) (Long) key );
+	}
+
+	@Override
+	public V put ( Long key, V value ) {
+		Validate.notNull ( key, "Can't use null keys in a LongKeyHashMap" );
+		return put ( (long) key, value );
+	}
+
+	@Override
+	public V remove ( Object key ) {
+		return key instanceof Long ? remove ( (long) (Long) key ) : null;
+	}
+
+	@Override
+	public int size () {
+		return size;
+	}
+
+	@Override
+	public void clear ()
+	{
+		if ( codec != null )
+			for ( int slot = nextUsedSlot ( 0 ); slot >= 0; slot = nextUsedSlot ( slot + 1 ) )
+				arena.release ( valueRefs [ slot ] );
+
+		Arrays.fill ( usedSlots, 0 );
+		if ( values != null ) Arrays.fill ( values, null );
+		size = 0;
+	}
+
+
+	@Override
+	public Set<Entry<Long, V>> entrySet ()
+	{
+		return new SlotSet<> (
+			slot -> new SimpleImmutableEntry<> ( keys [ slot ], getValue ( slot ) ),
+			o -> {
+				if ( !( o instanceof Entry<?, ?> entry && entry.getKey () instanceof Long key ) ) return false;
+				int slot = findSlot ( key );
+				return slot >= 0 && Objects.equals ( entry.getValue (), getValue ( slot ) );
+			}
+		);
+	}
+
+	/**
+	 * Doesn't access the values, which matters for off-heap values.
+	 */
+	@Override
+	public Set<Long> keySet ()
+	{
+		return new SlotSet<> ( slot -> keys [ slot ], this::containsKey );
+	}
+
+	/**
+	 * A view over the used slots. The membership test is passed, so that it uses the hash lookup, rather than
+	 * the linear scan of {@link AbstractSet}.
+	 */
+	private class SlotSet<E> extends AbstractSet<E>
+	{
+		private final IntFunction<E> slotMapper;
+		private final Predicate<Object> containsTester;
+
+		private SlotSet ( IntFunction<E> slotMapper, Predicate<Object> containsTester ) {
+			this.slotMapper = slotMapper;
+			this.containsTester = containsTester;
+		}
+
+		@Override
+		public boolean contains ( Object o ) {
+			return containsTester.test ( o );
+		}
+
+		@Override
+		public Iterator<E> iterator ()
+		{
+			return new Iterator<E> ()
+			{
+				private int nextSlot = nextUsedSlot ( 0 );
+
+				@Override
+				public boolean hasNext () {
+					return nextSlot >= 0;
+				}
+
+				@Override
+				public E next ()
+				{
+					if ( nextSlot < 0 ) throw new NoSuchElementException ( "No more elements in LongKeyHashMap" );
+					E result = slotMapper.apply ( nextSlot );
+					nextSlot = nextUsedSlot ( nextSlot + 1 );
+					return result;
+				}
+			};
+		}
+
+		@Override
+		public int size () {
+			return size;
+		}
+	}
+
+
+	/**
+	 * @return the slot with the key, or, if the key isn't there, -(free slot for the key) - 1.
+	 */
+	private int findSlot ( long key )
+	{
+		int slot = hash ( key ) & mask;
+		while ( isUsed ( slot ) )
+		{
+			if ( keys [ slot ] == key ) return slot;
+			slot = ( slot + 1 ) & mask;
+		}
+		return -slot - 1;
+	}
+
+	private void insert ( int slot, long key, V value )
+	{
+		Validate.notNull ( value, "Can't store null values in a LongKeyHashMap" );
+
+		// The value first, so that nothing changes if its encoding fails
+		setValue ( slot, value, true );
+		keys [ slot ] = key;
+		setUsed ( slot, true );
+		if ( ++size > resizeThreshold ) resize ();
+	}
+
+	/**
+	 * Removes by shifting back the following entries of the same probe sequence, so that no tombstone is
+	 * needed.
+	 */
+	private void removeSlot ( int slot )
+	{
+		if ( codec != null ) arena.release ( valueRefs [ slot ] );
+
+		int hole = slot;
+		for ( int next = ( hole + 1 ) & mask; isUsed ( next ); next = ( next + 1 ) & mask )
+		{
+			// next can fill the hole if its home slot isn't between the hole and next (cyclically)
+			int home = hash ( keys [ next ] ) & mask;
+			if ( ( ( next - home ) & mask ) < ( ( next - hole ) & mask ) ) continue;
+
+			keys [ hole ] = keys [ next ];
+			if ( codec == null ) values [ hole ] = values [ next ];
+			else valueRefs [ hole ] = valueRefs [ next ];
+			hole = next;
+		}
+
+		setUsed ( hole, false );
+		if ( codec == null ) values [ hole ] = null;
+		size--;
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	private V getValue ( int slot )
+	{
+		return codec == null ? (V) values [ slot ] : codec.decode ( arena.read ( valueRefs [ slot ] ) );
+	}
+
+	private void setValue ( int slot, V value, boolean isNewSlot )
+	{
+		Validate.notNull ( value, "Can't store null values in a LongKeyHashMap" );
+
+		if ( codec == null ) {
+			values [ slot ] = value;
+			return;
+		}
+
+		long valueRef = arena.write ( codec.encode ( value ) );
+		if ( !isNewSlot ) arena.release ( valueRefs [ slot ] );
+		valueRefs [ slot ] = valueRef;
+	}
+
+	private void resize ()
+	{
+		long[] oldKeys = keys, oldUsedSlots = usedSlots, oldValueRefs = valueRefs;
+		Object[] oldValues = values;
+
+		allocate ( keys.length * 2 );
+
+		for ( int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++ )
+		{
+			if ( ( oldUsedSlots [ oldSlot >>> 6 ] & ( 1L << oldSlot ) ) == 0 ) continue;
+
+			int slot = -findSlot ( oldKeys [ oldSlot ] ) - 1;
+			keys [ slot ] = oldKeys [ oldSlot ];
+			setUsed ( slot, true );
+			if ( codec == null ) values [ slot ] = oldValues [ oldSlot ];
+			else valueRefs [ slot ] = oldValueRefs [ oldSlot ];
+		}
+	}
+
+	private void allocate ( int tableSize )
+	{
+		keys = new long [ tableSize ];
+		usedSlots = new long [ Math.max ( 1, tableSize >>> 6 ) ];
+		if ( codec == null ) values = new Object [ tableSize ];
+		else valueRefs = new long [ tableSize ];
+
+		mask = tableSize - 1;
+		resizeThreshold = (int) ( tableSize * LOAD_FACTOR );
+	}
+
+	/**
+	 * Moves the off-heap values to a new arena, leaving the unused space behind.
+	 */
+	void relocateValues ( OffHeapArena newArena )
+	{
+		if ( codec == null ) return;
+
+		for ( int slot = nextUsedSlot ( 0 ); slot >= 0; slot = nextUsedSlot ( slot + 1 ) )
+			valueRefs [ slot ] = newArena.write ( arena.read ( valueRefs [ slot ] ) );
+		arena = newArena;
+	}
+
+	private boolean isUsed ( int slot ) {
+		return ( usedSlots [ slot >>> 6 ] & ( 1L << slot ) ) != 0;
+	}
+
+	private void setUsed ( int slot, boolean isUsed )
+	{
+		if ( isUsed ) usedSlots [ slot >>> 6 ] |= 1L << slot;
+		else usedSlots [ slot >>> 6 ] &= ~( 1L << slot );
+	}
+
+	/**
+	 * @return the first used slot &gt;= from, or -1.
+	 */
+	private int nextUsedSlot ( int from )
+	{
+		if ( from >= keys.length ) return -1;
+
+		int word = from >>> 6;
+		long bits = usedSlots [ word ] & ( -1L << from );
+		while ( true )
+		{
+			if ( bits != 0 ) return ( word << 6 ) + Long.numberOfTrailingZeros ( bits );
+			if ( ++word >= usedSlots.length ) return -1;
+			bits = usedSlots [ word ];
+		}
+	}
+
+	private static int tableSize ( int expectedSize )
+	{
+		long minSize = (long) Math.ceil ( Math.max ( expectedSize, 2 ) / LOAD_FACTOR ) + 1;
+		Validate.isTrue ( minSize <= 1 << 30, "Too many elements for a LongKeyHashMap: %d", expectedSize );
+		return Math.max ( 16, Integer.highestOneBit ( (int) minSize - 1 ) << 1 );
+	}
+
+	/**
+	 * Spreads the key bits, so that sequential keys don't create long probe sequences (MurmurHash3 finaliser).
+	 */
+	private static int hash ( long key )
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
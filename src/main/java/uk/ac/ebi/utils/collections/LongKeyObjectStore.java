@@ -0,0 +1,137 @@
+package uk.ac.ebi.utils.collections;
+
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>An {@link ObjectStore} with long keys, which is based on {@link LongKeyHashMap}, to reduce the memory
+ * needed by large stores, eg, identity registries during big data loads, where a standard store spends most of
+ * its memory in map entries and boxed keys.</p>
+ *
+ * <p>With a {@link ValueCodec}, the values are kept off-heap, which reduces the heap usage further, at the price of
+ * encoding the values at every put and decoding them at every get (and returning a new object every time).
+ * The off-heap space is shared by all the types and it's append-only, so updates and removals leave unused
+ * space, which can be reclaimed by {@link #compact()}.</p>
+ *
+ * <p>The primitive methods, like {@link #get(Object, long)}, should be preferred. Like the parent class, this
+ * isn't thread-safe.</p>
+ *
+ * @param <T> the type of the types.
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class LongKeyObjectStore<T, V> extends ObjectStore<T, Long, V>
+{
+	private final ValueCodec<V> valueCodec;
+	private OffHeapArena arena;
+
+	/**
+	 * Keeps the values on the heap.
+	 */
+	public LongKeyObjectStore ()
+	{
+		this ( null );
+	}
+
+	/**
+	 * Keeps the values off-heap, using the codec, or on-heap if it's null.
+	 */
+	public LongKeyObjectStore ( ValueCodec<V> valueCodec )
+	{
+		this.valueCodec = valueCodec;
+		if ( valueCodec != null ) arena = new OffHeapArena ();
+	}
+
+
+	@Override
+	protected Map<Long, V> newKeyMap ()
+	{
+		return new LongKeyHashMap<> ( 16, valueCodec, arena );
+	}
+
+	/**
+	 * Stores an object, identified by a type and a key. If value is null, removes the entry.
+	 */
+	public void put ( T type, long key, V value )
+	{
+		@SuppressWarnings ( { "rawtypes", "unchecked" } )
+		Map<T, LongKeyHashMap<V>> types = (Map) this.getInternalTypes ();
+		LongKeyHashMap<V> idmap = types.get ( type );
+
+		if ( value == null ) {
+			if ( idmap != null && idmap.delete ( key ) ) size--;
+			return;
+		}
+
+		if ( idmap == null ) {
+			idmap = (LongKeyHashMap<V>) newKeyMap ();
+			types.put ( type, idmap );
+		}
+		if ( idmap.set ( key, value ) ) size++;
+	}
+
+	@Override
+	public void put ( T type, Long key, V value )
+	{
+		Validate.notNull ( key, "Can't use a null key in a LongKeyObjectStore" );
+		put ( type, (long) key, value );
+	}
+
+	public V get ( T type, long key )
+	{
+		LongKeyHashMap<V> idmap = (LongKeyHashMap<V>) this.getInternalTypes ().get ( type );
+		if ( idmap == null ) return null;
+		return idmap.get ( key );
+	}
+
+	@Override
+	public V get ( T type, Long key )
+	{
+		return key == null ? null : get ( type, (long) key );
+	}
+
+	/**
+	 * Moves the off-heap values to a new space, so that the space left by updates and removals is given
+	 * back (when the old space is garbage-collected). This takes time and temporarily doubles the off-heap
+	 * memory, so it should be invoked when {@link #getOffHeapWastedBytes()} is a significant part of
+	 * {@link #getOffHeapUsedBytes()}. Does nothing for on-heap values.
+	 */
+	public void compact ()
+	{
+		if ( arena == null ) return;
+
+		OffHeapArena newArena = new OffHeapArena ();
+		for ( Map<Long, V> idmap: getInternalTypes ().values () )
+			( (LongKeyHashMap<V>) idmap ).relocateValues ( newArena );
+		arena = newArena;
+	}
+
+	/**
+	 * The off-heap bytes written so far, including the wasted ones, 0 for on-heap values.
+	 */
+	public long getOffHeapUsedBytes ()
+	{
+		return arena == null ? 0 : arena.getUsedBytes ();
+	}
+
+	/**
+	 * The off-heap bytes left by updates and removals.
+	 */
+	public long getOffHeapWastedBytes ()
+	{
+		return arena == null ? 0 : arena.getReleasedBytes ();
+	}
+
+	/**
+	 * The off-heap memory allocated so far, which is more than {@link #getOffHeapUsedBytes()}, since it's
+	 * allocated in big chunks.
+	 */
+	public long getOffHeapAllocatedBytes ()
+	{
+		return arena == null ? 0 : arena.getAllocatedBytes ();
+	}
+}
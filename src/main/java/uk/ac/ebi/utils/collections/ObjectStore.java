@@ -71,6 +71,16 @@ public class ObjectStore<T, K, V>
 	}
 	
 	
+	/**
+	 * Creates the key/value map for a new type. This is a {@link HashMap} by default, extensions can use
+	 * other map implementations.
+	 */
+	protected Map<K, V> newKeyMap ()
+	{
+		return new HashMap<> ();
+	}
+	
+	
 	/**
 	 * Stores an object, identified by a type and an identifier
 	 * If value is null deletes the entry.
@@ -82,7 +92,7 @@ public class ObjectStore<T, K, V>
 		Map<K, V> idmap = types.get ( type );
 		
 		if ( idmap == null ) {
-			idmap = new HashMap<K, V> ();
+			idmap = newKeyMap ();
 			types.put ( type, idmap );
 		}
 
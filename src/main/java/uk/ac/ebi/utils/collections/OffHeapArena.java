@@ -0,0 +1,108 @@
+package uk.ac.ebi.utils.collections;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An append-only storage of byte records in direct (off-heap) buffers, used by {@link LongKeyHashMap} to store
+ * encoded values. A record is referred by a long, having the chunk index in the high 32 bits and the position
+ * of the record in the chunk in the low 32 bits.
+ *
+ * The space of the released records isn't reused, it's only accounted in {@link #getReleasedBytes()}, the
+ * owners of the records can move the live ones to a new arena when the wasted space is too much. The memory is
+ * given back when the arena is garbage-collected.
+ *
+ * This class isn't thread-safe.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+class OffHeapArena
+{
+	/**
+	 * 64MB
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+	private final int chunkSize;
+	private final List<ByteBuffer> chunks = new ArrayList<> ();
+	private ByteBuffer currentChunk = null;
+
+	private long usedBytes = 0, releasedBytes = 0;
+
+	OffHeapArena ( int chunkSize )
+	{
+		Validate.isTrue ( chunkSize > Integer.BYTES, "Invalid off-heap chunk size: %d", chunkSize );
+		this.chunkSize = chunkSize;
+	}
+
+	OffHeapArena ()
+	{
+		this ( DEFAULT_CHUNK_SIZE );
+	}
+
+	/**
+	 * @return the reference of the new record.
+	 */
+	long write ( byte[] data )
+	{
+		int recordSize = Integer.BYTES + data.length;
+
+		if ( currentChunk == null || currentChunk.remaining () < recordSize )
+		{
+			// Records bigger than the chunks get a chunk of their own
+			currentChunk = ByteBuffer.allocateDirect ( Math.max ( chunkSize, recordSize ) );
+			chunks.add ( currentChunk );
+		}
+
+		int position = currentChunk.position ();
+		currentChunk.putInt ( data.length );
+		currentChunk.put ( data );
+		usedBytes += recordSize;
+
+		return ( (long) ( chunks.size () - 1 ) << 32 ) | position;
+	}
+
+	byte[] read ( long ref )
+	{
+		ByteBuffer chunk = chunks.get ( (int) ( ref >>> 32 ) );
+		int position = (int) ref;
+
+		byte[] result = new byte [ chunk.getInt ( position ) ];
+		chunk.get ( position + Integer.BYTES, result );
+		return result;
+	}
+
+	void release ( long ref )
+	{
+		ByteBuffer chunk = chunks.get ( (int) ( ref >>> 32 ) );
+		releasedBytes += Integer.BYTES + chunk.getInt ( (int) ref );
+	}
+
+	/**
+	 * The bytes allocated in the direct buffers.
+	 */
+	long getAllocatedBytes ()
+	{
+		long result = 0;
+		for ( ByteBuffer chunk: chunks ) result += chunk.capacity ();
+		return result;
+	}
+
+	/**
+	 * The bytes written so far, including the released records.
+	 */
+	long getUsedBytes ()
+	{
+		return usedBytes;
+	}
+
+	long getReleasedBytes ()
+	{
+		return releasedBytes;
+	}
+}
@@ -43,9 +43,11 @@
  
 package uk.ac.ebi.utils.collections;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
-import java.util.SortedMap;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.TreeMap;
 
 import org.slf4j.Logger;
@@ -54,7 +56,10 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * Like {@link ObjectStore}, but with types and keys kept sorted.
+ * Like {@link ObjectStore}, but with types and keys kept sorted, which allows for range queries, like
+ * {@link #range(Object, Object, Object)}. 
+ * 
+ * For read-heavy uses, after the store is loaded, consider a {@link #snapshot() snapshot}.
  *  
  * @author brandizi
  * <b>date</b>: Mar 3, 2010
@@ -62,7 +67,7 @@ import org.slf4j.LoggerFactory;
  */
 public class SortedObjectStore<T, K, V> extends ObjectStore<T, K, V>
 {
-	private SortedMap<T, SortedMap<K, V>> types; 
+	private NavigableMap<T, NavigableMap<K, V>> types; 
 	private final Comparator<K> keyComparator;
 	
 	public SortedObjectStore () {
@@ -71,7 +76,7 @@ public class SortedObjectStore<T, K, V> extends ObjectStore<T, K, V>
 
 	public SortedObjectStore ( Comparator<T> typeComparator, Comparator<K> keyComparator ) 
 	{
-		types = new TreeMap<T, SortedMap<K,V>> ( typeComparator );
+		types = new TreeMap<T, NavigableMap<K,V>> ( typeComparator );
 		this.keyComparator = keyComparator;
 	}
 
@@ -85,26 +90,99 @@ public class SortedObjectStore<T, K, V> extends ObjectStore<T, K, V>
 
 	protected final Logger log = LoggerFactory.getLogger ( this.getClass () );
 
-	public void put ( T type, K key, V value )
+	@Override
+	protected Map<K, V> newKeyMap ()
+	{
+		return new TreeMap<K, V> ( keyComparator );
+	}
+	
+	
+	/**
+	 * The entries of the type having fromKey &lt;= key &lt; toKey, as a read-only view. A null bound means 
+	 * no limit on that side. If fromKey &gt; toKey, the result is empty, as in {@link SortedObjectStoreSnapshot}.
+	 */
+	public NavigableMap<K, V> range ( T type, K fromKey, K toKey )
 	{
-		@SuppressWarnings ( { "rawtypes", "unchecked" } )
-		SortedMap<T, SortedMap<K,V>> types = (SortedMap<T, SortedMap<K,V>>) (Map) this.getInternalTypes ();
-		SortedMap<K, V> idmap = (SortedMap<K,V>) types.get ( type );
+		NavigableMap<K, V> idmap = types.get ( type );
+		if ( idmap == null ) return Collections.emptyNavigableMap ();
+		
+		// TreeMap would throw an exception
+		if ( fromKey != null && toKey != null && compareKeys ( fromKey, toKey ) > 0 ) 
+			return Collections.emptyNavigableMap ();
+		
+		if ( fromKey != null ) idmap = idmap.tailMap ( fromKey, true );
+		if ( toKey != null ) idmap = idmap.headMap ( toKey, false );
+		return Collections.unmodifiableNavigableMap ( idmap );
+	}
 
-		if ( idmap == null ) {
-			idmap = new TreeMap<K, V> ( keyComparator );
-			types.put ( type, idmap );
-		}
+	/**
+	 * The entries of the type having a key that starts with the prefix, as a read-only view. This is based on 
+	 * {@link #range(Object, Object, Object)} and hence it requires string keys, in their natural order (or in
+	 * an order compatible with it).
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public NavigableMap<K, V> prefix ( T type, String prefix )
+	{
+		return range ( type, (K) prefix, (K) prefixEnd ( prefix ) );
+	}
 
-		if ( value == null ) {
-			if ( idmap.containsKey ( key ) ) {
-				idmap.remove ( key );
-				if ( size > 0 ) size--;
-			}
-		}
-		else {
-			if ( !idmap.containsKey ( key ) ) size++;
-			idmap.put ( key, value );
+	/**
+	 * The entry with the greatest key &lt;= key, or null. 
+	 */
+	public Entry<K, V> floor ( T type, K key )
+	{
+		NavigableMap<K, V> idmap = types.get ( type );
+		return idmap == null ? null : idmap.floorEntry ( key );
+	}
+
+	/**
+	 * The entry with the least key &gt;= key, or null. 
+	 */
+	public Entry<K, V> ceiling ( T type, K key )
+	{
+		NavigableMap<K, V> idmap = types.get ( type );
+		return idmap == null ? null : idmap.ceilingEntry ( key );
+	}
+
+	
+	/**
+	 * Builds an immutable copy of the current store, based on sorted arrays, which has faster lookups and needs 
+	 * less memory. This is meant to be used after a load phase, when the store isn't changed anymore.
+	 */
+	public SortedObjectStoreSnapshot<T, K, V> snapshot ()
+	{
+		return new SortedObjectStoreSnapshot<> ( this );
+	}
+
+	Comparator<? super T> getTypeComparator ()
+	{
+		return types.comparator ();
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	private int compareKeys ( K key1, K key2 )
+	{
+		return keyComparator == null 
+			? ( (Comparable<? super K>) key1 ).compareTo ( key2 ) 
+			: keyComparator.compare ( key1, key2 );
+	}
+
+	Comparator<K> getKeyComparator ()
+	{
+		return keyComparator;
+	}
+	
+	/**
+	 * The least string that is greater than all the strings starting with prefix, or null if there isn't any, ie,
+	 * if the prefix is empty or made of {@link Character#MAX_VALUE}.
+	 */
+	static String prefixEnd ( String prefix )
+	{
+		for ( int i = prefix.length () - 1; i >= 0; i-- )
+		{
+			char c = prefix.charAt ( i );
+			if ( c != Character.MAX_VALUE ) return prefix.substring ( 0, i ) + (char) ( c + 1 );
 		}
-	}	
+		return null;
+	}
 }
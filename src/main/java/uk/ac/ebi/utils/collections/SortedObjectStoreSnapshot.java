@@ -0,0 +1,209 @@
+package uk.ac.ebi.utils.collections;
+
+import java.util.AbstractList;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * <p>An immutable copy of a {@link SortedObjectStore}, made by {@link SortedObjectStore#snapshot()}, which keeps
+ * the keys and values of every type in sorted arrays and finds them via binary search.</p>
+ *
+ * <p>Compared to the {@link java.util.TreeMap}s of the store, this needs much less memory (no tree nodes) and it's faster
+ * for lookups and scans, since the keys are contiguous, rather than scattered across the heap. So, it's suitable
+ * for read-heavy uses, after a load phase. Being immutable, it's also thread-safe.</p>
+ *
+ * <p>The query methods are like those of {@link SortedObjectStore}, but the results are lists of entries, which are
+ * views over the arrays, so getting them is cheap.</p>
+ *
+ * @param <T> the type of the types.
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SortedObjectStoreSnapshot<T, K, V>
+{
+	private final Comparator<? super T> typeComparator;
+	private final Comparator<? super K> keyComparator;
+
+	private final Object[] types;
+	/** The keys and values of each type, parallel to {@link #types} */
+	private final Object[][] keys, values;
+	private final int size;
+
+	SortedObjectStoreSnapshot ( SortedObjectStore<T, K, V> store )
+	{
+		typeComparator = store.getTypeComparator ();
+		keyComparator = store.getKeyComparator ();
+
+		Map<T, Map<K, V>> storeTypes = store.getInternalTypes ();
+		types = storeTypes.keySet ().toArray ();
+		keys = new Object [ types.length ][];
+		values = new Object [ types.length ][];
+
+		int i = 0, size = 0;
+		for ( Map<K, V> idmap: storeTypes.values () )
+		{
+			keys [ i ] = idmap.keySet ().toArray ();
+			values [ i ] = idmap.values ().toArray ();
+			size += keys [ i++ ].length;
+		}
+		this.size = size;
+	}
+
+
+	/**
+	 * Returns null if there is no value for the type and key.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public V get ( T type, K key )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return null;
+
+		int keyIdx = keyIndex ( typeIdx, key );
+		return keyIdx < 0 ? null : (V) values [ typeIdx ][ keyIdx ];
+	}
+
+	/**
+	 * The entries of the type having fromKey &lt;= key &lt; toKey. A null bound means no limit on that side.
+	 */
+	public List<Entry<K, V>> range ( T type, K fromKey, K toKey )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return Collections.emptyList ();
+
+		int from = fromKey == null ? 0 : insertionPoint ( typeIdx, fromKey );
+		int to = toKey == null ? keys [ typeIdx ].length : insertionPoint ( typeIdx, toKey );
+		return entries ( typeIdx, from, Math.max ( from, to ) );
+	}
+
+	/**
+	 * The entries of the type having a key that starts with the prefix. As for
+	 * {@link SortedObjectStore#prefix(Object, String)}, this requires string keys.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public List<Entry<K, V>> prefix ( T type, String prefix )
+	{
+		return range ( type, (K) prefix, (K) SortedObjectStore.prefixEnd ( prefix ) );
+	}
+
+	/**
+	 * The entry with the greatest key &lt;= key, or null.
+	 */
+	public Entry<K, V> floor ( T type, K key )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return null;
+
+		int keyIdx = keyIndex ( typeIdx, key );
+		if ( keyIdx < 0 ) keyIdx = -keyIdx - 2;
+		return keyIdx < 0 ? null : entry ( typeIdx, keyIdx );
+	}
+
+	/**
+	 * The entry with the least key &gt;= key, or null.
+	 */
+	public Entry<K, V> ceiling ( T type, K key )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return null;
+
+		int keyIdx = insertionPoint ( typeIdx, key );
+		return keyIdx == keys [ typeIdx ].length ? null : entry ( typeIdx, keyIdx );
+	}
+
+	public int size ()
+	{
+		return size;
+	}
+
+	/**
+	 * All the types, sorted.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public List<T> types ()
+	{
+		return (List<T>) Collections.unmodifiableList ( Arrays.asList ( types ) );
+	}
+
+	/**
+	 * All the keys of a type, sorted, or null if there is no such type, as in {@link ObjectStore#typeKeys(Object)}.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public List<K> typeKeys ( T type )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return null;
+		return (List<K>) Collections.unmodifiableList ( Arrays.asList ( keys [ typeIdx ] ) );
+	}
+
+	/**
+	 * All the values of a type, sorted by key. Never returns null.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public List<V> values ( T type )
+	{
+		int typeIdx = typeIndex ( type );
+		if ( typeIdx < 0 ) return Collections.emptyList ();
+		return (List<V>) Collections.unmodifiableList ( Arrays.asList ( values [ typeIdx ] ) );
+	}
+
+
+	@SuppressWarnings ( { "unchecked", "rawtypes" } )
+	private int typeIndex ( T type )
+	{
+		return Arrays.binarySearch ( types, type, (Comparator) typeComparator );
+	}
+
+	/**
+	 * @return the key position or -(insertion point) - 1, as in {@link Arrays#binarySearch(Object[], Object)}.
+	 */
+	@SuppressWarnings ( { "unchecked", "rawtypes" } )
+	private int keyIndex ( int typeIdx, K key )
+	{
+		return Arrays.binarySearch ( keys [ typeIdx ], key, (Comparator) keyComparator );
+	}
+
+	/**
+	 * The position of the first key &gt;= key.
+	 */
+	private int insertionPoint ( int typeIdx, K key )
+	{
+		int result = keyIndex ( typeIdx, key );
+		return result < 0 ? -result - 1 : result;
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	private Entry<K, V> entry ( int typeIdx, int keyIdx )
+	{
+		return new SimpleImmutableEntry<> ( (K) keys [ typeIdx ][ keyIdx ], (V) values [ typeIdx ][ keyIdx ] );
+	}
+
+	private List<Entry<K, V>> entries ( int typeIdx, int from, int to )
+	{
+		return new AbstractList<Entry<K, V>> ()
+		{
+			@Override
+			public Entry<K, V> get ( int index )
+			{
+				if ( index < 0 || index >= size () ) throw new IndexOutOfBoundsException (
+					"Index " + index + " out of bounds for a range of size " + size ()
+				);
+				return entry ( typeIdx, from + index );
+			}
+
+			@Override
+			public int size () {
+				return to - from;
+			}
+		};
+	}
+}
@@ -0,0 +1,198 @@
+package uk.ac.ebi.utils.collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uk.ac.ebi.utils.exceptions.ExceptionUtils;
+
+/**
+ * An append-only file of byte records, used by {@link TieredObjectStore} to keep the entries that don't fit the
+ * heap. Like {@link OffHeapArena}, a record is referred by its position and the space of the released records
+ * is only accounted, the owners can move the live records to a new file when the wasted space is too much.
+ *
+ * The file is a temporary file, deleted when this is closed (or at the JVM exit, if it's still open). The writes
+ * are buffered.
+ *
+ * This class isn't thread-safe.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+class SpillFile implements Closeable
+{
+	private static final int WRITE_BUFFER_SIZE = 64 << 10;
+
+	/**
+	 * The files that are still open, deleted by a shutdown hook. This is used instead of
+	 * {@link java.io.File#deleteOnExit()}, which would keep all the files created by the compactions until the
+	 * JVM exit.
+	 */
+	private static class OpenFiles
+	{
+		private static final Set<Path> PATHS = ConcurrentHashMap.newKeySet ();
+
+		static {
+			Runtime.getRuntime ().addShutdownHook ( new Thread ( () -> {
+				for ( Path path: PATHS ) path.toFile ().delete ();
+			}, "SpillFile-Cleaner" ));
+		}
+	}
+
+	private final Path path;
+	private final FileChannel channel;
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate ( WRITE_BUFFER_SIZE );
+
+	/** The file size, including the buffered bytes */
+	private long size = 0;
+	private long releasedBytes = 0;
+
+	SpillFile ( Path dir )
+	{
+		try
+		{
+			path = Files.createTempFile ( dir, "spill-", ".dat" );
+			channel = FileChannel.open (
+				path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE
+			);
+			OpenFiles.PATHS.add ( path );
+		}
+		catch ( IOException ex ) {
+			throw ExceptionUtils.buildEx ( UncheckedIOException.class, ex,
+				"Error while creating a spill file in '%s': %s", dir, ex.getMessage ()
+			);
+		}
+	}
+
+	/**
+	 * @return the position of the new record.
+	 */
+	long write ( byte[] data )
+	{
+		long result = size;
+		int recordSize = Integer.BYTES + data.length;
+
+		if ( writeBuffer.remaining () < recordSize ) flush ();
+
+		if ( recordSize > writeBuffer.capacity () )
+		{
+			ByteBuffer record = ByteBuffer.allocate ( recordSize );
+			record.putInt ( data.length ).put ( data ).flip ();
+			writeFully ( record, result );
+		}
+		else
+			writeBuffer.putInt ( data.length ).put ( data );
+
+		size += recordSize;
+		return result;
+	}
+
+	/**
+	 * @param length the length of the data, as it was passed to {@link #write(byte[])}.
+	 */
+	byte[] read ( long position, int length )
+	{
+		// The record might be in the write buffer
+		if ( position >= size - writeBuffer.position () ) flush ();
+
+		ByteBuffer result = ByteBuffer.allocate ( length );
+		readFully ( result, position + Integer.BYTES );
+		return result.array ();
+	}
+
+	/**
+	 * Accounts the record as wasted space. The length is passed by the owner, so that this doesn't need to do any
+	 * I/O.
+	 */
+	void release ( long position, int length )
+	{
+		releasedBytes += Integer.BYTES + length;
+	}
+
+	private void flush ()
+	{
+		if ( writeBuffer.position () == 0 ) return;
+
+		writeBuffer.flip ();
+		writeFully ( writeBuffer, size - writeBuffer.remaining () );
+		writeBuffer.clear ();
+	}
+
+	private void writeFully ( ByteBuffer buffer, long position )
+	{
+		try {
+			while ( buffer.hasRemaining () )
+				position += channel.write ( buffer, position );
+		}
+		catch ( IOException ex ) {
+			ExceptionUtils.throwEx ( UncheckedIOException.class, ex,
+				"Error while writing the spill file '%s': %s", path, ex.getMessage ()
+			);
+		}
+	}
+
+	private void readFully ( ByteBuffer buffer, long position )
+	{
+		try
+		{
+			while ( buffer.hasRemaining () )
+			{
+				int n = channel.read ( buffer, position );
+				if ( n < 0 ) ExceptionUtils.throwEx ( UncheckedIOException.class, new IOException ( "Unexpected EOF" ),
+					"Error while reading the spill file '%s': unexpected end of file", path
+				);
+				position += n;
+			}
+		}
+		catch ( IOException ex ) {
+			ExceptionUtils.throwEx ( UncheckedIOException.class, ex,
+				"Error while reading the spill file '%s': %s", path, ex.getMessage ()
+			);
+		}
+	}
+
+	/**
+	 * Closes and deletes the file.
+	 */
+	@Override
+	public void close ()
+	{
+		try {
+			channel.close ();
+			// DELETE_ON_CLOSE is a best effort, eg, it might not work on Windows
+			Files.deleteIfExists ( path );
+			OpenFiles.PATHS.remove ( path );
+		}
+		catch ( IOException ex ) {
+			ExceptionUtils.throwEx ( UncheckedIOException.class, ex,
+				"Error while closing the spill file '%s': %s", path, ex.getMessage ()
+			);
+		}
+	}
+
+	Path getPath ()
+	{
+		return path;
+	}
+
+	/**
+	 * The bytes written so far, including the released records.
+	 */
+	long getSize ()
+	{
+		return size;
+	}
+
+	long getReleasedBytes ()
+	{
+		return releasedBytes;
+	}
+}
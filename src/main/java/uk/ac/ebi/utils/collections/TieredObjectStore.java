@@ -0,0 +1,312 @@
+package uk.ac.ebi.utils.collections;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * <p>An {@link ObjectStore} that can grow beyond the heap size: it keeps the most used entries on the heap, in a
+ * {@link BoundedObjectStore}, and spills the ones evicted from there to a local file, from which they're read
+ * back transparently when they're requested again.</p>
+ *
+ * <p>The spill file is log-structured: the values are encoded by a {@link ValueCodec} and appended to the file,
+ * while an on-heap index keeps their positions. Since the file is append-only, when an entry is read back, updated
+ * or removed, its old record becomes wasted space, which can be reclaimed by {@link #compact()}. The file is a
+ * temporary file, which is deleted by {@link #close()}, ie, this is a way to save heap space, not a persistent
+ * storage.</p>
+ *
+ * <p>The keys stay on the heap, in the index, so the size of a spilled entry in the heap is the size of its key plus
+ * about 50 bytes, which allows for hundreds of millions of entries if the keys are small and the values are big.</p>
+ *
+ * <p>The views returned by {@link #types()}, {@link #typeKeys(Object)} and {@link #values(Object)} cover both
+ * tiers, the values are read from the file as needed, without moving them to the heap.</p>
+ *
+ * <p>Like the parent class, this isn't thread-safe.</p>
+ *
+ * @param <T> the type of the types.
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class TieredObjectStore<T, K, V> extends ObjectStore<T, K, V> implements AutoCloseable
+{
+	private final BoundedObjectStore<T, K, V> hotStore;
+	private final Map<T, Map<K, ColdRecord>> coldIndex = new HashMap<> ();
+	private long coldSize = 0;
+
+	private final ValueCodec<V> valueCodec;
+	private final Path spillDir;
+	private SpillFile spillFile;
+
+	/** A view over both tiers */
+	private final Map<T, Map<K, V>> types;
+
+	private long spills = 0, coldHits = 0;
+
+	/**
+	 * Where a value is in the spill file. The length is kept here, so that releasing a record doesn't need
+	 * to read it.
+	 */
+	private static class ColdRecord
+	{
+		private long position;
+		private final int length;
+
+		private ColdRecord ( long position, int length )
+		{
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * @param maxHotSize the max no. of entries kept on the heap.
+	 * @param valueCodec used to spill the values to the disk, eg, {@link ValueCodec#javaSerialization()}.
+	 * @param spillDir where the spill file is created.
+	 */
+	public TieredObjectStore ( long maxHotSize, ValueCodec<V> valueCodec, Path spillDir )
+	{
+		Validate.notNull ( valueCodec, "Can't use a null value codec for a TieredObjectStore" );
+		Validate.notNull ( spillDir, "Can't use a null spill directory for a TieredObjectStore" );
+
+		this.valueCodec = valueCodec;
+		this.spillDir = spillDir;
+		this.spillFile = new SpillFile ( spillDir );
+
+		hotStore = new BoundedObjectStore<T, K, V> ( maxHotSize ).withEvictionListener ( this::spill );
+		types = Maps.asMap (
+			Sets.union ( hotStore.types (), coldIndex.keySet () ),
+			type -> Maps.asMap ( Sets.union ( hotKeys ( type ), coldKeys ( type ) ), key -> peek ( type, key ) )
+		);
+	}
+
+	/**
+	 * Uses the system's temporary directory.
+	 */
+	public TieredObjectStore ( long maxHotSize, ValueCodec<V> valueCodec )
+	{
+		this ( maxHotSize, valueCodec, Path.of ( System.getProperty ( "java.io.tmpdir" ) ) );
+	}
+
+
+	@Override
+	protected Map<T, Map<K, V>> getInternalTypes ()
+	{
+		return types;
+	}
+
+	/**
+	 * Stores an object, identified by a type and a key. If value is null, removes the entry. The entry goes to
+	 * the heap, possibly spilling others to the disk.
+	 */
+	@Override
+	public void put ( T type, K key, V value )
+	{
+		releaseCold ( type, key );
+		hotStore.put ( type, key, value );
+	}
+
+	/**
+	 * Returns the value, reading it from the disk if it's not in the heap, in which case it's moved back to the
+	 * heap.
+	 */
+	@Override
+	public V get ( T type, K key )
+	{
+		V result = hotStore.get ( type, key );
+		if ( result != null ) return result;
+
+		ColdRecord record = coldRecord ( type, key );
+		if ( record == null ) return null;
+
+		coldHits++;
+		result = valueCodec.decode ( spillFile.read ( record.position, record.length ) );
+		releaseCold ( type, key );
+		hotStore.put ( type, key, result );
+
+		return result;
+	}
+
+	@Override
+	public void remove ( T type )
+	{
+		hotStore.remove ( type );
+
+		Map<K, ColdRecord> typeIndex = coldIndex.remove ( type );
+		if ( typeIndex == null ) return;
+
+		for ( ColdRecord record: typeIndex.values () ) spillFile.release ( record.position, record.length );
+		coldSize -= typeIndex.size ();
+	}
+
+	@Override
+	public int size ()
+	{
+		return (int) Math.min ( Integer.MAX_VALUE, getLongSize () );
+	}
+
+	/**
+	 * The size, without the int limit of {@link #size()}.
+	 */
+	public long getLongSize ()
+	{
+		return hotStore.size () + coldSize;
+	}
+
+
+	/**
+	 * Moves the live records of the spill file to a new file, so that the space wasted by the old records is
+	 * given back. This takes time and temporarily needs the disk space of both files, so it should be invoked
+	 * when {@link #getWastedDiskBytes()} is a significant part of {@link #getDiskBytes()}.
+	 */
+	public void compact ()
+	{
+		SpillFile newSpillFile = new SpillFile ( spillDir );
+
+		// The index is updated in place, so a failure here would leave it inconsistent anyway, but at least we
+		// don't leave the new file around
+		try {
+			for ( Map<K, ColdRecord> typeIndex: coldIndex.values () )
+				for ( ColdRecord record: typeIndex.values () )
+					record.position = newSpillFile.write ( spillFile.read ( record.position, record.length ) );
+		}
+		catch ( RuntimeException ex ) {
+			newSpillFile.close ();
+			throw ex;
+		}
+
+		// Deletes the old file
+		spillFile.close ();
+		spillFile = newSpillFile;
+	}
+
+	/**
+	 * Closes and deletes the spill file. The store can't be used after this.
+	 */
+	@Override
+	public void close ()
+	{
+		spillFile.close ();
+	}
+
+
+	/**
+	 * The hot store's eviction listener.
+	 */
+	private void spill ( T type, K key, V value )
+	{
+		byte[] data = valueCodec.encode ( value );
+		long position = spillFile.write ( data );
+		coldIndex.computeIfAbsent ( type, t -> new HashMap<> () ).put ( key, new ColdRecord ( position, data.length ) );
+		coldSize++;
+		spills++;
+	}
+
+	private void releaseCold ( T type, K key )
+	{
+		Map<K, ColdRecord> typeIndex = coldIndex.get ( type );
+		if ( typeIndex == null ) return;
+
+		ColdRecord record = typeIndex.remove ( key );
+		if ( record == null ) return;
+
+		spillFile.release ( record.position, record.length );
+		coldSize--;
+	}
+
+	private ColdRecord coldRecord ( T type, K key )
+	{
+		Map<K, ColdRecord> typeIndex = coldIndex.get ( type );
+		return typeIndex == null ? null : typeIndex.get ( key );
+	}
+
+	/**
+	 * Gets a value without changing the tiers or the stats.
+	 */
+	private V peek ( T type, K key )
+	{
+		Map<K, V> hotValues = hotStore.getInternalTypes ().get ( type );
+		V result = hotValues == null ? null : hotValues.get ( key );
+		if ( result != null ) return result;
+
+		ColdRecord record = coldRecord ( type, key );
+		return record == null ? null : valueCodec.decode ( spillFile.read ( record.position, record.length ) );
+	}
+
+	private Set<K> hotKeys ( T type )
+	{
+		Set<K> result = hotStore.typeKeys ( type );
+		return result == null ? Collections.emptySet () : result;
+	}
+
+	private Set<K> coldKeys ( T type )
+	{
+		Map<K, ColdRecord> typeIndex = coldIndex.get ( type );
+		return typeIndex == null ? Collections.emptySet () : typeIndex.keySet ();
+	}
+
+
+	/**
+	 * The heap tier, which can be used to check its {@link BoundedObjectStore#getHitRate() hit rate}. It should not
+	 * be changed directly.
+	 */
+	public BoundedObjectStore<T, K, V> getHotStore ()
+	{
+		return hotStore;
+	}
+
+	/**
+	 * The no. of entries on the disk.
+	 */
+	public long getColdSize ()
+	{
+		return coldSize;
+	}
+
+	/**
+	 * The no. of entries moved to the disk so far.
+	 */
+	public long getSpills ()
+	{
+		return spills;
+	}
+
+	/**
+	 * The no. of {@link #get(Object, Object)} calls that read the value from the disk.
+	 */
+	public long getColdHits ()
+	{
+		return coldHits;
+	}
+
+	/**
+	 * The size of the spill file, including the wasted space.
+	 */
+	public long getDiskBytes ()
+	{
+		return spillFile.getSize ();
+	}
+
+	/**
+	 * The spill file space taken by the records that are no longer used.
+	 */
+	public long getWastedDiskBytes ()
+	{
+		return spillFile.getReleasedBytes ();
+	}
+
+	public Path getSpillDir ()
+	{
+		return spillDir;
+	}
+}
@@ -0,0 +1,62 @@
+package uk.ac.ebi.utils.collections;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+/**
+ * Converts values to bytes and back, used by the stores that keep their values outside of the Java heap,
+ * eg, {@link LongKeyObjectStore}.
+ *
+ * @param <V> the type of the values.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public interface ValueCodec<V>
+{
+	byte[] encode ( V value );
+
+	V decode ( byte[] data );
+
+	/**
+	 * Uses the Java serialization, via {@link SerializationUtils}. This works with any serializable value, but
+	 * it's rather verbose and slow, consider a specific codec for large stores.
+	 */
+	public static <V extends Serializable> ValueCodec<V> javaSerialization ()
+	{
+		return new ValueCodec<V> ()
+		{
+			@Override
+			public byte[] encode ( V value ) {
+				return SerializationUtils.serialize ( value );
+			}
+
+			@Override
+			public V decode ( byte[] data ) {
+				return SerializationUtils.deserialize ( data );
+			}
+		};
+	}
+
+	/**
+	 * Stores strings as UTF-8.
+	 */
+	public static ValueCodec<String> utf8 ()
+	{
+		return new ValueCodec<String> ()
+		{
+			@Override
+			public byte[] encode ( String value ) {
+				return value.getBytes ( StandardCharsets.UTF_8 );
+			}
+
+			@Override
+			public String decode ( byte[] data ) {
+				return new String ( data, StandardCharsets.UTF_8 );
+			}
+		};
+	}
+}
@@ -0,0 +1,302 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import uk.ac.ebi.utils.opt.runcontrol.ReactorUtils.ParallelBatchFluxBuilder;
+import uk.ac.ebi.utils.threading.PoolSizeTuner;
+import uk.ac.ebi.utils.threading.ThreadUtils;
+
+/**
+ * <p>Tunes the parallelism and the batch size of a {@link ParallelBatchFluxBuilder} at runtime, based on the
+ * measured throughput and batch latency, see {@link ParallelBatchFluxBuilder#withAdaptiveTuner(AdaptiveBatchTuner)}.</p>
+ *
+ * <p>The batches are processed by a thread pool that this class manages and the pool size is tuned by a
+ * {@link PoolSizeTuner}, using the no. of processed items as throughput. The batch size is tuned at the same
+ * pace, so that the average batch processing time gets close to {@link #getTargetBatchTime()}: batches much
+ * faster than that suggest that the per-batch overhead (eg, a DB transaction) is significant, batches much
+ * slower mean too much latency and memory per batch.</p>
+ *
+ * <p>The time of a batch is the time its rail spends to pass it downstream, which includes the processing
+ * attached to the parallel flux synchronously (eg, via {@link ParallelFlux#doOnNext(Consumer)}), as it happens
+ * with {@link ReactorUtils#batchProcessing(ParallelFlux, Consumer)}.</p>
+ *
+ * <p>A tuner is started when a builder uses it and it must be {@link #close() closed} when the processing is
+ * over, in order to stop the tuning and the thread pool. It should serve one flux at a time, else the
+ * measurements of different processes get mixed.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class AdaptiveBatchTuner implements AutoCloseable
+{
+	private final int minParallelism, maxParallelism, minBatchSize, maxBatchSize;
+	private volatile long targetBatchTime = 1000;
+
+	private final ThreadPoolExecutor executor;
+	private final Scheduler scheduler;
+	private final PoolSizeTuner parallelismTuner;
+
+	private volatile int batchSize;
+
+	private final LongAdder processedItems = new LongAdder (),
+		processedBatches = new LongAdder (),
+		batchesTime = new LongAdder ();
+
+	/**
+	 * The values of the counters above at the last batch size tuning, used by the tuning thread only.
+	 */
+	private long prevProcessedBatches = 0, prevBatchesTime = 0;
+
+	private final Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	private class ParallelismTuner extends PoolSizeTuner
+	{
+		@Override
+		public int getThreadPoolSize () {
+			return executor.getMaximumPoolSize ();
+		}
+
+		@Override
+		protected void setThreadPoolSize ( int size ) {
+			AdaptiveBatchTuner.this.setParallelism ( size );
+		}
+
+		@Override
+		public long getCompletedTasks () {
+			return processedItems.sum ();
+		}
+
+		@Override
+		protected void afterTuningStep () {
+			tuneBatchSize ();
+		}
+	}
+
+
+	/**
+	 * The initial parallelism is the no. of processors, the initial batch size is
+	 * {@link ParallelBatchFluxBuilder#DEFAULT_BATCH_SIZE}, both within the limits given here.
+	 */
+	public AdaptiveBatchTuner ( int minParallelism, int maxParallelism, int minBatchSize, int maxBatchSize )
+	{
+		Validate.isTrue (
+			minParallelism > 0 && minParallelism <= maxParallelism,
+			"Invalid parallelism range for adaptive batch tuning: [%d, %d]", minParallelism, maxParallelism
+		);
+		Validate.isTrue (
+			minBatchSize > 0 && minBatchSize <= maxBatchSize,
+			"Invalid batch size range for adaptive batch tuning: [%d, %d]", minBatchSize, maxBatchSize
+		);
+
+		this.minParallelism = minParallelism;
+		this.maxParallelism = maxParallelism;
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+
+		this.batchSize = clamp ( ParallelBatchFluxBuilder.DEFAULT_BATCH_SIZE, minBatchSize, maxBatchSize );
+
+		int parallelism = clamp ( Runtime.getRuntime ().availableProcessors (), minParallelism, maxParallelism );
+		this.executor = new ThreadPoolExecutor (
+			parallelism, parallelism, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<> (),
+			ThreadUtils.createNamingThreadFactory ( "jutils.adaptiveBatch-" )
+		);
+		this.scheduler = Schedulers.fromExecutorService ( executor, "jutils.adaptiveBatchSched" );
+
+		// The defaults are for pools much bigger than the ones we have here
+		this.parallelismTuner = new ParallelismTuner ();
+		parallelismTuner.setMinThreads ( minParallelism );
+		parallelismTuner.setMaxThreads ( maxParallelism );
+		parallelismTuner.setMinThreadIncr ( 1 );
+		parallelismTuner.setMaxThreadIncr ( Math.max ( 1, maxParallelism / 4 ) );
+		parallelismTuner.setPeriodMSecs ( 10 * 1000 );
+	}
+
+	/**
+	 * Parallelism between 1 and 4 times the no. of processors, which is suitable for tasks that do some I/O,
+	 * batch size between 100 and 50000.
+	 */
+	public AdaptiveBatchTuner ()
+	{
+		this ( 1, Runtime.getRuntime ().availableProcessors () * 4, 100, 50000 );
+	}
+
+
+	/**
+	 * Starts the tuning, if it's not already active. This is called by the builder.
+	 */
+	public void start ()
+	{
+		synchronized ( parallelismTuner ) {
+			if ( !parallelismTuner.isActive () ) parallelismTuner.start ();
+		}
+	}
+
+	/**
+	 * Stops the tuning and shuts down the processing thread pool. The batches already scheduled are still
+	 * processed.
+	 */
+	@Override
+	public void close ()
+	{
+		synchronized ( parallelismTuner ) {
+			if ( parallelismTuner.isActive () ) parallelismTuner.stop ();
+		}
+		// Not scheduler.dispose (), which would interrupt the running batches via shutdownNow (), while this also
+		// disposes the scheduler, which is backed by the executor
+		executor.shutdown ();
+	}
+
+
+	/**
+	 * Used by the builder to report that a batch was processed.
+	 */
+	void recordBatch ( int items, long durationNanos )
+	{
+		processedItems.add ( items );
+		processedBatches.increment ();
+		batchesTime.add ( durationNanos );
+	}
+
+	private void setParallelism ( int parallelism )
+	{
+		parallelism = clamp ( parallelism, minParallelism, maxParallelism );
+
+		// The core size can't exceed the max size at any time
+		if ( parallelism > executor.getMaximumPoolSize () ) {
+			executor.setMaximumPoolSize ( parallelism );
+			executor.setCorePoolSize ( parallelism );
+		}
+		else {
+			executor.setCorePoolSize ( parallelism );
+			executor.setMaximumPoolSize ( parallelism );
+		}
+	}
+
+	/**
+	 * Moves the batch size towards the one that would take {@link #getTargetBatchTime()}, changing it by a
+	 * factor between 0.5 and 2 each time.
+	 *
+	 * This is invoked by the tuning thread, it's package-private to be tested without depending on timing.
+	 */
+	void tuneBatchSize ()
+	{
+		long batches = processedBatches.sum (), time = batchesTime.sum ();
+		long periodBatches = batches - prevProcessedBatches, periodTime = time - prevBatchesTime;
+		prevProcessedBatches = batches;
+		prevBatchesTime = time;
+
+		if ( periodBatches == 0 || periodTime == 0 ) return;
+
+		double avgTime = (double) periodTime / periodBatches;
+		double ratio = TimeUnit.MILLISECONDS.toNanos ( targetBatchTime ) / avgTime;
+		ratio = Math.max ( 0.5, Math.min ( 2, ratio ) );
+
+		// Close enough, don't disturb the parallelism tuning with small changes
+		if ( Math.abs ( ratio - 1 ) < 0.2 ) return;
+
+		int newSize = clamp ( Math.round ( batchSize * ratio ), minBatchSize, maxBatchSize );
+		if ( newSize == batchSize ) return;
+
+		log.trace (
+			"Adaptive batch tuning, avg batch time: {} ms, new batch size: {}",
+			Math.round ( avgTime / 1E6 ), newSize
+		);
+		batchSize = newSize;
+	}
+
+	private static int clamp ( long value, int min, int max ) {
+		return (int) Math.max ( min, Math.min ( max, value ) );
+	}
+
+
+	/**
+	 * The scheduler that runs the batch rails, backed by the tuned thread pool.
+	 */
+	public Scheduler getScheduler ()
+	{
+		return scheduler;
+	}
+
+	/**
+	 * The current batch size, the builder uses it for the batches it creates from now on.
+	 */
+	public int getBatchSize ()
+	{
+		return batchSize;
+	}
+
+	/**
+	 * The current parallelism, ie, the size of the processing thread pool.
+	 */
+	public int getParallelism ()
+	{
+		return executor.getMaximumPoolSize ();
+	}
+
+	public int getMinParallelism ()
+	{
+		return minParallelism;
+	}
+
+	/**
+	 * The builder creates this no. of rails, the ones that are actually processed in parallel depend on
+	 * {@link #getParallelism()}.
+	 */
+	public int getMaxParallelism ()
+	{
+		return maxParallelism;
+	}
+
+	public int getMinBatchSize ()
+	{
+		return minBatchSize;
+	}
+
+	public int getMaxBatchSize ()
+	{
+		return maxBatchSize;
+	}
+
+	/**
+	 * The average batch processing time that the batch size tuning aims at, in ms. Default is 1s.
+	 */
+	public long getTargetBatchTime ()
+	{
+		return targetBatchTime;
+	}
+
+	public void setTargetBatchTime ( long targetBatchTimeMs )
+	{
+		Validate.isTrue ( targetBatchTimeMs > 0, "Invalid target batch time: %d", targetBatchTimeMs );
+		this.targetBatchTime = targetBatchTimeMs;
+	}
+
+	/**
+	 * Gives access to the parallelism tuning parameters, eg, {@link PoolSizeTuner#setPeriodMSecs(int)}, which
+	 * is also the batch size tuning period. The default period is 10s.
+	 */
+	public PoolSizeTuner getParallelismTuner ()
+	{
+		return parallelismTuner;
+	}
+
+	/**
+	 * The no. of items processed so far.
+	 */
+	public long getProcessedItems ()
+	{
+		return processedItems.sum ();
+	}
+}
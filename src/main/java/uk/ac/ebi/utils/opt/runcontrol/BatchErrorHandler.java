@@ -0,0 +1,259 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.ParallelFlux;
+import uk.ac.ebi.utils.exceptions.ExceptionUtils;
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.MultipleAttemptsExecutor;
+
+/**
+ * <p>Isolates the failures of batch tasks, so that a few bad records don't stop a long batch processing job,
+ * as it happens when a task used with {@link ReactorUtils#batchProcessing(ParallelFlux, Consumer)} throws an
+ * exception. This wraps the task, eg:</p>
+ *
+ * <pre>
+ *   BatchErrorHandler&lt;Record&gt; errorHandler = new BatchErrorHandler&lt;Record&gt; ( Strategy.SPLIT_AND_RETRY )
+ *     .withDeadLetterSink ( ( records, ex ) -&gt; saveForLater ( records, ex ) );
+ *
+ *   ReactorUtils.batchProcessing ( records, errorHandler.wrap ( batch -&gt; db.save ( batch ) ) );
+ * </pre>
+ *
+ * <p>The items that are given up, together with the exception that caused it, go to the
+ * {@link #withDeadLetterSink(BiConsumer) dead-letter sink}, which, by default, logs them. Only {@link Exception}s
+ * are handled, {@link Error}s are always propagated. The interruptions and cancellations (ie, exceptions
+ * caused by {@link InterruptedException}, {@link UncheckedInterruptedException} or {@link CancellationException})
+ * aren't batch failures either: they're propagated straight away, without re-attempts or dead letters.</p>
+ *
+ * <p>The re-attempts are done by a {@link MultipleAttemptsExecutor}, so the re-attempt policy (intercepted
+ * exceptions, no. of attempts, pauses, retry budget) is the one of the executor, see
+ * {@link #withRetryExecutor(MultipleAttemptsExecutor)}.</p>
+ *
+ * @param <T> the type of the batch items.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BatchErrorHandler<T>
+{
+	public static enum Strategy
+	{
+		/**
+		 * The exception is propagated, which stops the whole processing. This is the behaviour without any
+		 * error handler.
+		 */
+		FAIL_FAST,
+		/**
+		 * The failed batch is sent to the dead-letter sink and the processing goes ahead.
+		 */
+		SKIP,
+		/**
+		 * The failed batch is re-attempted and, if it keeps failing, it's sent to the dead-letter sink.
+		 */
+		RETRY,
+		/**
+		 * Like {@link #RETRY}, but if the batch keeps failing, it's split into two halves, which are processed
+		 * the same way, until the failing items are isolated and sent to the dead-letter sink. This finds
+		 * k bad items out of n with about k * log2(n) failing sub-batches, each of them costing all the
+		 * re-attempts of the {@link BatchErrorHandler#withRetryExecutor(MultipleAttemptsExecutor) retry executor},
+		 * plus about as many succeeding sub-batches, costing one call each, ie, about 
+		 * k * log2(n) * ( maxAttempts + 1 ) task calls, plus the pauses between the attempts. So, it's suitable when 
+		 * the failures are due to a few bad records, rather than the task itself, and the retry executor should
+		 * have few attempts and short pauses. That's why, by default, this strategy makes a single attempt per 
+		 * sub-batch, without pauses.
+		 */
+		SPLIT_AND_RETRY
+	}
+
+	private final Strategy strategy;
+	private MultipleAttemptsExecutor retryExecutor;
+	private BiConsumer<? super List<T>, ? super Exception> deadLetterSink = this::logDeadLetters;
+
+	private final LongAdder failedBatches = new LongAdder (), deadLetterItems = new LongAdder ();
+
+	private final Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	public BatchErrorHandler ( Strategy strategy )
+	{
+		Validate.notNull ( strategy, "Can't use a null batch error strategy" );
+		this.strategy = strategy;
+		this.retryExecutor = strategy == Strategy.SPLIT_AND_RETRY
+			// Splitting already re-attempts the items many times, see the strategy
+			? new MultipleAttemptsExecutor ( 1, 0, 0, Exception.class )
+			: new MultipleAttemptsExecutor ( 3, 0, 1000, Exception.class );
+	}
+
+
+	/**
+	 * Wraps the task with the error strategy. The resulting task accepts any collection as batch and passes
+	 * the task a list with the same items, so that it can be split.
+	 */
+	public <B extends Collection<? extends T>> Consumer<B> wrap ( Consumer<? super List<T>> task )
+	{
+		Validate.notNull ( task, "Can't wrap a null batch task" );
+
+		return batch -> process ( toList ( batch ), task );
+	}
+
+	private void process ( List<T> batch, Consumer<? super List<T>> task )
+	{
+		if ( strategy == Strategy.FAIL_FAST ) {
+			task.accept ( batch );
+			return;
+		}
+
+		if ( batch.isEmpty () ) return;
+
+		try
+		{
+			if ( strategy == Strategy.SKIP ) task.accept ( batch );
+			else
+			{
+				// After an interruption, the following attempts just rethrow it. If it's the thread that was
+				// interrupted, restoring the flag also makes the executor give up at the first pause
+				Exception[] interruption = new Exception [ 1 ];
+				retryExecutor.executeChecked ( () ->
+				{
+					if ( interruption [ 0 ] != null ) throw interruption [ 0 ];
+					try {
+						task.accept ( batch );
+					}
+					catch ( RuntimeException ex )
+					{
+						Throwable interruptionCause = interruptionCause ( ex );
+						if ( interruptionCause != null ) {
+							interruption [ 0 ] = ex;
+							if ( !( interruptionCause instanceof CancellationException ) ) Thread.currentThread ().interrupt ();
+						}
+						throw ex;
+					}
+				});
+			}
+		}
+		catch ( Exception ex )
+		{
+			if ( interruptionCause ( ex ) != null ) throw toUncheckedInterruption ( ex );
+
+			failedBatches.increment ();
+
+			if ( strategy != Strategy.SPLIT_AND_RETRY || batch.size () == 1 ) {
+				sendToDeadLetters ( batch, ex );
+				return;
+			}
+
+			log.debug ( "Splitting a failed batch of {} items, due to: {}", batch.size (), ex.getMessage () );
+			int half = batch.size () / 2;
+			process ( batch.subList ( 0, half ), task );
+			process ( batch.subList ( half, batch.size () ), task );
+		}
+	}
+
+	/**
+	 * The exception or the first of its causes that is an interruption or a cancellation, null if there isn't
+	 * any.
+	 */
+	private static Throwable interruptionCause ( Throwable ex )
+	{
+		for ( ; ex != null; ex = ex.getCause () )
+			if ( ex instanceof InterruptedException || ex instanceof UncheckedInterruptedException
+					|| ex instanceof CancellationException ) return ex;
+		return null;
+	}
+
+	/**
+	 * Prepares an interruption to be propagated, restoring the thread's interruption flag, which might have been
+	 * cleared in the meantime, eg, by the retry executor's pauses.
+	 */
+	private static RuntimeException toUncheckedInterruption ( Exception ex )
+	{
+		if ( !( interruptionCause ( ex ) instanceof CancellationException ) ) Thread.currentThread ().interrupt ();
+		if ( ex instanceof RuntimeException ) return (RuntimeException) ex;
+		return ExceptionUtils.buildEx (
+			UncheckedInterruptedException.class, ex, "Batch processing interrupted: $cause"
+		);
+	}
+
+	private void sendToDeadLetters ( List<T> items, Exception ex )
+	{
+		deadLetterItems.add ( items.size () );
+		// Sub-lists would keep the whole batch in memory
+		deadLetterSink.accept ( new ArrayList<> ( items ), ex );
+	}
+
+	private void logDeadLetters ( List<T> items, Exception ex )
+	{
+		log.error ( String.format (
+			"Batch processing of %d item(s) failed, ignoring them. Error: %s", items.size (), ex.getMessage ()
+		), ex );
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	private static <T> List<T> toList ( Collection<? extends T> batch )
+	{
+		return batch instanceof List ? (List<T>) batch : new ArrayList<> ( batch );
+	}
+
+
+	/**
+	 * The executor that does the re-attempts in the {@link Strategy#RETRY} and {@link Strategy#SPLIT_AND_RETRY}
+	 * strategies. Both defaults intercept all {@link Exception}s, the one for {@link Strategy#RETRY} has 3 attempts,
+	 * with pauses up to 1s, the one for {@link Strategy#SPLIT_AND_RETRY} has a single attempt, since the
+	 * sub-batches are re-attempted too (see the strategy cost). Consider more attempts for the latter only if
+	 * the failures can be transient.
+	 */
+	public BatchErrorHandler<T> withRetryExecutor ( MultipleAttemptsExecutor retryExecutor )
+	{
+		Validate.notNull ( retryExecutor, "Can't use a null retry executor for batch error handling" );
+		this.retryExecutor = retryExecutor;
+		return this;
+	}
+
+	/**
+	 * Receives the items that failed, together with the last exception. It's called by the processing
+	 * threads, so it must be thread-safe.
+	 */
+	public BatchErrorHandler<T> withDeadLetterSink ( BiConsumer<? super List<T>, ? super Exception> deadLetterSink )
+	{
+		Validate.notNull ( deadLetterSink, "Can't use a null dead-letter sink for batch error handling" );
+		this.deadLetterSink = deadLetterSink;
+		return this;
+	}
+
+	public Strategy getStrategy ()
+	{
+		return strategy;
+	}
+
+	public MultipleAttemptsExecutor getRetryExecutor ()
+	{
+		return retryExecutor;
+	}
+
+	/**
+	 * The no. of batches that failed after their re-attempts, including the sub-batches of
+	 * {@link Strategy#SPLIT_AND_RETRY}.
+	 */
+	public long getFailedBatches ()
+	{
+		return failedBatches.sum ();
+	}
+
+	/**
+	 * The no. of items sent to the dead-letter sink.
+	 */
+	public long getDeadLetterItems ()
+	{
+		return deadLetterItems.sum ();
+	}
+}
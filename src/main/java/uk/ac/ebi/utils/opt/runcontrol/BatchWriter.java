@@ -0,0 +1,164 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+import org.reactivestreams.Publisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <p>The final stage of a batch pipeline, which groups the results of the processing stage into commits and
+ * writes them, eg, into a database, with a cap on the commits in flight. This is to be used with
+ * {@link Flux#transform(Function)}, eg:</p>
+ *
+ * <pre>
+ *   BatchWriter&lt;Row&gt; writer = new BatchWriter&lt;Row&gt; ( rows -&gt; db.insertAll ( rows ) )
+ *     .withCommitSize ( 10000 )
+ *     .withMaxInFlight ( 2 );
+ *
+ *   ReactorUtils.batchMapping ( parallelBatchFlux ( records ), this::toRow, processingStats )
+ *     .transform ( writer )
+ *     .blockLast ();
+ *
+ *   log.info ( "Processing: {}, writing: {}", processingStats, writer.getStats () );
+ * </pre>
+ *
+ * <p>The resulting flux emits the committed groups, after their commit is completed, so that further stages
+ * can be attached (eg, to report progress). Since the commits are subscribed only when there is room for them,
+ * a slow writer slows down the upstream stages, and so the whole pipeline is a single backpressured flow.</p>
+ *
+ * @param <R> the type of the results to write.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BatchWriter<R> implements Function<Flux<R>, Flux<List<R>>>
+{
+	private final Function<? super List<R>, ? extends Publisher<?>> commitFunction;
+	private int commitSize = 1000;
+	private Duration maxCommitWait = null;
+	private int maxInFlight = 1;
+	private final StageStats stats = new StageStats ( "writer" );
+
+	/**
+	 * @param commitFunction writes a group of results. The commit is considered complete when the returned
+	 * publisher completes.
+	 */
+	public BatchWriter ( Function<? super List<R>, ? extends Publisher<?>> commitFunction )
+	{
+		Validate.notNull ( commitFunction, "Can't use a null commit function for a batch writer" );
+		this.commitFunction = commitFunction;
+	}
+
+	/**
+	 * A writer based on a blocking commit function, which is run on the scheduler, so that multiple commits can
+	 * be in flight.
+	 */
+	public static <R> BatchWriter<R> of ( Consumer<? super List<R>> blockingCommitter, Scheduler scheduler )
+	{
+		Validate.notNull ( blockingCommitter, "Can't use a null committer for a batch writer" );
+		Validate.notNull ( scheduler, "Can't use a null scheduler for a batch writer" );
+
+		return new BatchWriter<R> (
+			results -> Mono.fromRunnable ( () -> blockingCommitter.accept ( results ) ).subscribeOn ( scheduler )
+		);
+	}
+
+	/**
+	 * Uses {@link Schedulers#boundedElastic()}, which is meant for blocking tasks.
+	 */
+	public static <R> BatchWriter<R> of ( Consumer<? super List<R>> blockingCommitter )
+	{
+		return of ( blockingCommitter, Schedulers.boundedElastic () );
+	}
+
+
+	@Override
+	public Flux<List<R>> apply ( Flux<R> results )
+	{
+		Flux<List<R>> groups = maxCommitWait == null
+			? results.buffer ( commitSize )
+			: results.bufferTimeout ( commitSize, maxCommitWait, true );
+
+		return groups.flatMap ( this::commit, maxInFlight );
+	}
+
+	private Mono<List<R>> commit ( List<R> group )
+	{
+		return Mono.defer ( () ->
+		{
+			long start = System.nanoTime ();
+			return Flux.from ( commitFunction.apply ( group ) )
+				.then ( Mono.fromSupplier ( () -> {
+					stats.record ( group.size (), start, System.nanoTime () );
+					return group;
+				}));
+		});
+	}
+
+
+	/**
+	 * The no. of results per commit. Default is 1000.
+	 */
+	public BatchWriter<R> withCommitSize ( int commitSize )
+	{
+		Validate.isTrue ( commitSize > 0, "Invalid batch writer commit size: %d", commitSize );
+		this.commitSize = commitSize;
+		return this;
+	}
+
+	/**
+	 * If set, a commit is done after this time since its first result, even if it has less than
+	 * {@link #withCommitSize(int) the commit size} results. This is useful with slow or infinite sources, to
+	 * commit periodically. Default is null, ie, commits are done by size only.
+	 */
+	public BatchWriter<R> withMaxCommitWait ( Duration maxCommitWait )
+	{
+		Validate.isTrue (
+			maxCommitWait == null || maxCommitWait.toNanos () > 0, "Invalid batch writer max commit wait: %s", maxCommitWait
+		);
+		this.maxCommitWait = maxCommitWait;
+		return this;
+	}
+
+	/**
+	 * The max no. of commits that can run at the same time. Default is 1, ie, sequential commits.
+	 */
+	public BatchWriter<R> withMaxInFlight ( int maxInFlight )
+	{
+		Validate.isTrue ( maxInFlight > 0, "Invalid batch writer max in-flight commits: %d", maxInFlight );
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+
+	public int getCommitSize ()
+	{
+		return commitSize;
+	}
+
+	public Duration getMaxCommitWait ()
+	{
+		return maxCommitWait;
+	}
+
+	public int getMaxInFlight ()
+	{
+		return maxInFlight;
+	}
+
+	/**
+	 * The commit statistics, the items are the written results.
+	 */
+	public StageStats getStats ()
+	{
+		return stats;
+	}
+}
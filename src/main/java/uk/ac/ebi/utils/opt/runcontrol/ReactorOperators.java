@@ -0,0 +1,188 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import uk.ac.ebi.utils.runcontrol.CircuitBreakerExecutor;
+import uk.ac.ebi.utils.runcontrol.Deadline;
+import uk.ac.ebi.utils.runcontrol.DynamicRateExecutor;
+import uk.ac.ebi.utils.runcontrol.MultipleAttemptsExecutor;
+import uk.ac.ebi.utils.runcontrol.PermitLimiter;
+import uk.ac.ebi.utils.runcontrol.RateLimitedExecutor;
+import uk.ac.ebi.utils.runcontrol.RetryBudget;
+import uk.ac.ebi.utils.runcontrol.StatsExecutor;
+import uk.ac.ebi.utils.runcontrol.XTimeLimiter;
+import uk.ac.ebi.utils.runcontrol.exceptions.CircuitBreakerOpenException;
+
+/**
+ * <p>Reactor equivalents of the executors in the {@link uk.ac.ebi.utils.runcontrol} package, to be used with
+ * {@link Flux#transform(Function)}, eg:</p>
+ *
+ * <pre>
+ *   Flux&lt;Record&gt; records = ids.flatMap ( id -&gt; client.getRecord ( id )
+ *     .transform ( ReactorOperators.retry ( attemptsExecutor ) )
+ *     .transform ( ReactorOperators.circuitBreaker ( breaker ) )
+ *   );
+ * </pre>
+ *
+ * <p>The operators take their configuration from the executors and share their state (eg, the rate limiter's
+ * permits, the circuit state, the statistics), so that the same controls apply to blocking and reactive clients
+ * of the same service. Unlike the executors, they never block a thread, waits are done by means of Reactor
+ * timers, on the {@link Schedulers#parallel() parallel scheduler}.</p>
+ *
+ * <p>Except for {@link #rateLimited(RateLimitedExecutor)}, which works per item, a call is a subscription to
+ * the transformed flux, eg, a re-attempt re-subscribes to the upstream, so these operators are usually applied
+ * to the single-call publishers, as in the example above.</p>
+ *
+ * <p>Since the {@link Deadline} of the executors is thread-local, it doesn't apply here, use
+ * {@link #timeout(Duration)} instead.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ReactorOperators
+{
+	private ReactorOperators () {}
+
+	/**
+	 * Delays every item until it gets {@link RateLimitedExecutor#getPermitsPerCall()} permits from the executor's
+	 * limiter, which can be shared with blocking clients. The hook of {@link DynamicRateExecutor} isn't invoked
+	 * here.
+	 * 
+	 * If the executor isn't based on a {@link RateLimitedExecutor#getPermitLimiter() permit limiter}, its Guava 
+	 * limiter can't reserve permits without waiting, so the waits are done on the 
+	 * {@link Schedulers#boundedElastic() bounded elastic scheduler}. 
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> rateLimited ( RateLimitedExecutor executor )
+	{
+		Validate.notNull ( executor, "Can't rate-limit a flux with a null executor" );
+
+		PermitLimiter limiter = executor.getPermitLimiter ();
+		if ( limiter != null ) return rateLimited ( limiter, executor.getPermitsPerCall () );
+
+		return flux -> flux.delayUntil ( item -> 
+			Mono.fromRunnable ( () -> executor.getRateLimiter ().acquire () ).subscribeOn ( Schedulers.boundedElastic () )
+		);
+	}
+
+	/**
+	 * Delays every item until it gets the permits from the limiter. The items are emitted in their original
+	 * order and the limiter's permits are {@link PermitLimiter#reserve(double, long) reserved} in the same
+	 * order.
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> rateLimited ( PermitLimiter limiter, double permitsPerItem )
+	{
+		Validate.notNull ( limiter, "Can't rate-limit a flux with a null limiter" );
+		Validate.isTrue ( permitsPerItem > 0, "Can't use %s permits per item", permitsPerItem );
+
+		return flux -> flux.delayUntil ( item ->
+		{
+			long waitNanos = limiter.reserve ( permitsPerItem, Long.MAX_VALUE );
+			return waitNanos > 0 ? Mono.delay ( Duration.ofNanos ( waitNanos ) ) : Mono.empty ();
+		});
+	}
+
+	/**
+	 * Re-subscribes to the upstream when it fails, using the executor's re-attempt policy, ie, its
+	 * {@link MultipleAttemptsExecutor#getInterceptedExceptions() intercepted exceptions}, max attempts, pauses and
+	 * {@link MultipleAttemptsExecutor#getRetryBudget() retry budget}. The pauses don't hold any thread.
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> retry ( MultipleAttemptsExecutor executor )
+	{
+		Retry retry = Retry.from ( signals ->
+		{
+			// This is per subscription
+			long[] lastPause = { 0 };
+			return signals.concatMap ( signal ->
+			{
+				Throwable failure = signal.failure ();
+				long pause = executor.getRetryPause ( failure, (int) signal.totalRetries () + 1, lastPause [ 0 ] );
+				if ( pause < 0 ) return Mono.<Long> error ( failure );
+
+				lastPause [ 0 ] = pause;
+				return pause == 0 ? Mono.just ( 0L ) : Mono.delay ( Duration.ofMillis ( pause ) );
+			});
+		});
+
+		return flux -> flux
+			.retryWhen ( retry )
+			// Outside of the retries, so that it's done once per call
+			.doOnSubscribe ( s -> {
+				RetryBudget budget = executor.getRetryBudget ();
+				if ( budget != null ) budget.recordCall ();
+			});
+	}
+
+	/**
+	 * Fails with an {@link UncheckedTimeoutException}, as {@link XTimeLimiter} does, if the upstream
+	 * doesn't emit its first item within the timeout, or the time between two items exceeds it. So, for a
+	 * single-result publisher, this is the call timeout.
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> timeout ( Duration timeout )
+	{
+		Validate.notNull ( timeout, "Can't use a null timeout for a flux" );
+
+		return flux -> flux
+			.timeout ( timeout )
+			.onErrorMap (
+				TimeoutException.class,
+				ex -> new UncheckedTimeoutException ( "Timeout during reactive execution", ex )
+			);
+	}
+
+	/**
+	 * Records the calls in the executor's statistics, in the same way {@link StatsExecutor#execute(Runnable)}
+	 * does, ie, a call is a subscription and its duration is until the completion or the error. Cancelled
+	 * calls aren't recorded.
+	 *
+	 * If the executor doesn't {@link StatsExecutor#isPopUpExceptions() pop up exceptions}, a failed call is
+	 * logged and completes without further items.
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> stats ( StatsExecutor executor )
+	{
+		return flux -> Flux.defer ( () ->
+		{
+			long start = System.nanoTime ();
+			Flux<T> result = flux
+				.doOnComplete ( () -> executor.recordCall ( System.nanoTime () - start, null ) )
+				.doOnError ( ex -> executor.recordCall ( System.nanoTime () - start, ex ) );
+
+			if ( executor.isPopUpExceptions () ) return result;
+
+			return result.onErrorResume ( Exception.class, ex -> {
+				executor.logFailure ( ex );
+				return Flux.empty ();
+			});
+		});
+	}
+
+	/**
+	 * Subscribes to the upstream only if the executor's circuit allows it, else fails with
+	 * {@link CircuitBreakerOpenException}. The outcome of the subscription is recorded in the circuit's state.
+	 * Cancelled calls are recorded as successful, so that a cancelled trial call in the half-open state doesn't
+	 * prevent the circuit from closing.
+	 */
+	public static <T> Function<Flux<T>, Flux<T>> circuitBreaker ( CircuitBreakerExecutor executor )
+	{
+		return flux -> Flux.defer ( () ->
+		{
+			// If it throws, defer() turns it into an error
+			long permission = executor.acquireCallPermission ();
+			long start = System.nanoTime ();
+			return flux
+				.doOnComplete ( () -> executor.recordCallOutcome ( permission, System.nanoTime () - start, null ) )
+				.doOnError ( ex -> executor.recordCallOutcome ( permission, System.nanoTime () - start, ex ) )
+				.doOnCancel ( () -> executor.recordCallOutcome ( permission, System.nanoTime () - start, null ) );
+		});
+	}
+}
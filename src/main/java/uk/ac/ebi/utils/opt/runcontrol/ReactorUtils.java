@@ -2,17 +2,24 @@ package uk.ac.ebi.utils.opt.runcontrol;
 
 import static reactor.core.scheduler.Schedulers.newBoundedElastic;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
+import org.apache.commons.lang3.Validate;
+import org.reactivestreams.Publisher;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.concurrent.Queues;
+import uk.ac.ebi.utils.opt.runcontrol.SchedulerRegistry.WorkloadType;
 
 /**
  * Utilities based on the Project Reactor library.
@@ -39,6 +46,10 @@ public class ReactorUtils
 		 *  
 		 * This seems suitable for batch processing, where we don't have much thread
 		 * switching and we enqueue a flood of tasks.
+		 * 
+		 * This is shared by all the builders that don't set their own scheduler and it's never disposed, consider
+		 * {@link ParallelBatchFluxBuilder#withScheduler(String, WorkloadType)} for pipelines that shouldn't 
+		 * compete with others.
 		 */
 		public static final Scheduler DEFAULT_FLUX_SCHEDULER = newBoundedElastic (
 			Runtime.getRuntime ().availableProcessors (),
@@ -58,6 +69,10 @@ public class ReactorUtils
 		private Scheduler scheduler = DEFAULT_FLUX_SCHEDULER;
 		private int batchSize = DEFAULT_BATCH_SIZE;
 		private Supplier<B> batchSupplier;
+		private AdaptiveBatchTuner adaptiveTuner;
+		private ToLongFunction<? super T> weigher;
+		private long maxBatchWeight = Long.MAX_VALUE;
+		private Duration maxBatchWait;
 		
 		@SuppressWarnings ( "unchecked" )
 		public ParallelBatchFluxBuilder ( Flux<? extends T> flux )
@@ -108,6 +123,18 @@ public class ReactorUtils
 			return this;
 		}
 		
+		/**
+		 * Uses a scheduler from {@link SchedulerRegistry#getDefault()}, ie, a scheduler dedicated to the
+		 * named pipeline, sized after the workload type. The scheduler is created if it doesn't exist yet and it
+		 * can be disposed via the registry.
+		 */
+		public ParallelBatchFluxBuilder<T, B> withScheduler ( String pipelineName, WorkloadType workloadType )
+		{
+			return withScheduler ( 
+				SchedulerRegistry.getDefault ().getScheduler ( pipelineName, workloadType ).getScheduler () 
+			);
+		}
+		
 		/**
 		 * The parallel flux scheduler to use. This is passed to {@link ParallelFlux#runOn(Scheduler)}.
 		 * Defaults it {@link #DEFAULT_BATCH_SIZE}, as per Reactor default.
@@ -129,6 +156,66 @@ public class ReactorUtils
 		}
 		
 		
+		/**
+		 * Makes the parallelism and the batch size adaptive, see {@link AdaptiveBatchTuner}. When this is set, 
+		 * the tuner's {@link AdaptiveBatchTuner#getMaxParallelism() max parallelism} is the no. of rails, its 
+		 * {@link AdaptiveBatchTuner#getScheduler() scheduler} runs them and the batch size is taken from the tuner, 
+		 * overriding {@link #withParallelism(int)}, {@link #withScheduler(Scheduler)} and {@link #withBatchSize(int)}.
+		 * 
+		 * The tuner is started by {@link #build(Consumer)}, you need to close it when the processing is over.
+		 * Default is null, ie, no tuning.
+		 */
+		public ParallelBatchFluxBuilder<T, B> withAdaptiveTuner ( AdaptiveBatchTuner adaptiveTuner )
+		{
+			this.adaptiveTuner = adaptiveTuner;
+			return this;
+		}
+		
+		
+		/**
+		 * Makes the batches weighted, ie, a batch is closed when it reaches {@link #withBatchSize(int) the batch size}
+		 * or the max weight, whichever comes first. This makes the memory or the transaction size of a batch 
+		 * predictable when the items have very different sizes. For instance, the weigher might be an estimate of 
+		 * the item's bytes, or the no. of query parameters it needs.
+		 * 
+		 * A batch never exceeds the max weight, except when a single item exceeds it, in which case the item 
+		 * goes alone in its batch. If you want weight-only batches, use {@link Integer#MAX_VALUE} as batch size.
+		 * 
+		 * Default is null, ie, no weights.
+		 */
+		public ParallelBatchFluxBuilder<T, B> withWeigher ( ToLongFunction<? super T> weigher, long maxBatchWeight )
+		{
+			Validate.isTrue ( maxBatchWeight > 0, "Invalid max batch weight: %d", maxBatchWeight );
+			this.weigher = weigher;
+			this.maxBatchWeight = maxBatchWeight;
+			return this;
+		}
+		
+		
+		/**
+		 * Makes the batches time-windowed, ie, a batch is emitted when it reaches the batch size, or after the 
+		 * max wait since its first item, whichever comes first. This is useful with infinite or slow sources
+		 * (eg, message consumers), since it bounds the time an item waits for its batch to be complete. 
+		 * 
+		 * This is based on {@link Flux#bufferTimeout(int, Duration, boolean)} with fair backpressure, so a slow
+		 * processing still slows down the source, rather than causing an overflow error.
+		 * 
+		 * Time windows can't be combined with {@link #withWeigher(ToLongFunction, long) weights}. With the 
+		 * {@link #withAdaptiveTuner(AdaptiveBatchTuner) adaptive tuner}, the batch size is taken from the tuner at 
+		 * every subscription and it stays fixed during it.
+		 * 
+		 * Default is null, ie, no time limit.
+		 */
+		public ParallelBatchFluxBuilder<T, B> withMaxBatchWait ( Duration maxBatchWait )
+		{
+			Validate.isTrue ( 
+				maxBatchWait == null || maxBatchWait.toNanos () > 0, "Invalid max batch wait: %s", maxBatchWait
+			);
+			this.maxBatchWait = maxBatchWait;
+			return this;
+		}
+		
+		
 		public int getParallelism ()
 		{
 			return parallelism;
@@ -158,6 +245,26 @@ public class ReactorUtils
 		{
 			return batchSupplier;
 		}
+
+		public AdaptiveBatchTuner getAdaptiveTuner ()
+		{
+			return adaptiveTuner;
+		}
+
+		public ToLongFunction<? super T> getWeigher ()
+		{
+			return weigher;
+		}
+
+		public long getMaxBatchWeight ()
+		{
+			return maxBatchWeight;
+		}
+
+		public Duration getMaxBatchWait ()
+		{
+			return maxBatchWait;
+		}
 		
 		/**
 		 * @param visitor if non-null, I'll call it with myself before creating the result. This can be
@@ -167,15 +274,101 @@ public class ReactorUtils
 		 */
 		public ParallelFlux<B> build ( Consumer<ParallelBatchFluxBuilder<? super T, ? super B>> visitor )
 		{
-			@SuppressWarnings ( "unchecked" )
-			Flux<B> result = this.batchSupplier == null 
-				? (Flux<B>) flux.buffer ( batchSize ) : flux.buffer ( batchSize, batchSupplier );
+			AdaptiveBatchTuner tuner = this.adaptiveTuner;
+			if ( tuner != null )
+			{
+				// So that the visitor sees the actual values
+				this.parallelism = tuner.getMaxParallelism ();
+				this.scheduler = tuner.getScheduler ();
+				this.batchSize = tuner.getBatchSize ();
+			}
+			
+			Flux<B> result = buildBatches ();
 
 			if ( visitor != null ) visitor.accept ( this );
 			
-			return result
+			ParallelFlux<B> rails = result
 			.parallel ( parallelism, parallelismPreFetch )
 			.runOn ( scheduler );
+			
+			if ( tuner == null ) return rails;
+			
+			tuner.start ();
+			return new TunedParallelFlux<> ( rails, tuner );
+		}
+		
+		/**
+		 * Splits the source into batches, using plain {@link Flux#buffer(int)} when possible, else checking 
+		 * the batch limits at each item, so that the weights and the 
+		 * {@link #withAdaptiveTuner(AdaptiveBatchTuner) tuned} batch size are considered.
+		 */
+		@SuppressWarnings ( "unchecked" )
+		private Flux<B> buildBatches ()
+		{
+			if ( maxBatchWait != null ) return buildTimedBatches ();
+			
+			if ( adaptiveTuner == null && weigher == null ) return this.batchSupplier == null 
+				? (Flux<B>) flux.buffer ( batchSize ) : flux.buffer ( batchSize, batchSupplier );
+
+			AdaptiveBatchTuner tuner = this.adaptiveTuner;
+			int batchSize = this.batchSize;
+			ToLongFunction<? super T> weigher = this.weigher;
+			long maxBatchWeight = this.maxBatchWeight;
+			
+			Flux<List<T>> lists = Flux.defer ( () -> 
+			{
+				// Per subscription, the size and weight of the current batch
+				long[] batchState = { 0, 0 };
+				
+				// Tells if the item has to start a new batch. It's evaluated for each item, so that a tuned batch
+				// size is picked up at the next batch
+				return flux.bufferUntil ( item -> 
+				{
+					long weight = weigher == null ? 0 : weigher.applyAsLong ( item );
+					int maxSize = tuner == null ? batchSize : tuner.getBatchSize ();
+					
+					// An item heavier than the max weight goes alone in its batch
+					boolean isNewBatch = batchState [ 0 ] > 0 
+						&& ( batchState [ 0 ] >= maxSize || batchState [ 1 ] + weight > maxBatchWeight );
+					
+					if ( isNewBatch ) batchState [ 0 ] = batchState [ 1 ] = 0;
+					batchState [ 0 ]++;
+					batchState [ 1 ] += weight;
+					return isNewBatch;
+				}, 
+				true );
+			});
+			
+			Supplier<B> batchSupplier = this.batchSupplier;
+			if ( batchSupplier == null ) return (Flux<B>) lists;
+			
+			return lists.map ( list -> {
+				B batch = batchSupplier.get ();
+				batch.addAll ( list );
+				return batch;
+			});
+		}
+		
+		/**
+		 * The {@link #withMaxBatchWait(Duration) time-windowed} variant of {@link #buildBatches()}.
+		 */
+		private Flux<B> buildTimedBatches ()
+		{
+			Validate.validState ( weigher == null, "Time-windowed batches can't be weighted" );
+
+			AdaptiveBatchTuner tuner = this.adaptiveTuner;
+			if ( tuner == null ) return buildTimedBatches ( batchSize );
+			return Flux.defer ( () -> buildTimedBatches ( tuner.getBatchSize () ) );
+		}
+		
+		@SuppressWarnings ( "unchecked" )
+		private Flux<B> buildTimedBatches ( int batchSize )
+		{
+			// Without fair backpressure, the timer emits batches regardless of the downstream demand, so a slow 
+			// processing would get an overflow error
+			return this.batchSupplier == null 
+				? (Flux<B>) flux.bufferTimeout ( batchSize, maxBatchWait, true ) 
+				: flux.bufferTimeout ( batchSize, maxBatchWait, batchSupplier, true );
 		}
 		
 		public ParallelFlux<B> build ()
@@ -272,4 +465,80 @@ public class ReactorUtils
 		batchProcessing ( parallelBatchFlux ( collection ), task );
 	}
 	
+	
+	/**
+	 * <p>A result-producing variant of {@link #batchProcessing(ParallelFlux, Consumer)}: the batches are
+	 * processed in parallel and the results are merged into a flux, which can be streamed to further stages 
+	 * (eg, a {@link BatchWriter}). Nothing happens until the result is subscribed. The task must not return null.</p>
+	 *
+	 * @param stats if non-null, it's used to record the processing times and throughput.
+	 */
+	public static <B extends Collection<?>, R> Flux<R> batchMapping (
+		ParallelFlux<B> parallelFlux, Function<? super B, ? extends R> task, StageStats stats
+	)
+	{
+		return parallelFlux.<R> map ( batch -> 
+		{
+			if ( stats == null ) return task.apply ( batch );
+			
+			int size = batch.size ();
+			long start = System.nanoTime ();
+			R result = task.apply ( batch );
+			stats.record ( size, start, System.nanoTime () );
+			return result;
+		})
+		.sequential ();
+	}
+
+	/**
+	 * No stats.
+	 */
+	public static <B extends Collection<?>, R> Flux<R> batchMapping (
+		ParallelFlux<B> parallelFlux, Function<? super B, ? extends R> task
+	)
+	{
+		return batchMapping ( parallelFlux, task, null );
+	}
+
+	/**
+	 * <p>Variant of {@link #batchMapping(ParallelFlux, Function, StageStats)} for an asynchronous task.
+	 * At most maxInFlight batches are processed at the same time, over all the rails, and further batches are 
+	 * requested only when one of them completes.</p>
+	 * 
+	 * <p>The publisher returned by the task is subscribed on the thread that merges the rails, so it should be 
+	 * non-blocking.</p> 
+	 */
+	public static <B extends Collection<?>, R> Flux<R> batchMappingAsync (
+		ParallelFlux<B> parallelFlux, Function<? super B, ? extends Publisher<? extends R>> task, 
+		int maxInFlight, StageStats stats
+	)
+	{
+		Validate.isTrue ( maxInFlight > 0, "Invalid max in-flight batches: %d", maxInFlight );
+
+		// The cap is global, so we need to merge the rails first
+		return parallelFlux
+		.sequential ()
+		.flatMap ( batch -> 
+		{
+			if ( stats == null ) return task.apply ( batch );
+			
+			return Flux.<R> defer ( () -> {
+				int size = batch.size ();
+				long start = System.nanoTime ();
+				return Flux.<R> from ( task.apply ( batch ) )
+					.doOnComplete ( () -> stats.record ( size, start, System.nanoTime () ) );
+			});
+		}, 
+		maxInFlight );
+	}
+
+	/**
+	 * No stats.
+	 */
+	public static <B extends Collection<?>, R> Flux<R> batchMappingAsync (
+		ParallelFlux<B> parallelFlux, Function<? super B, ? extends Publisher<? extends R>> task, int maxInFlight
+	)
+	{
+		return batchMappingAsync ( parallelFlux, task, maxInFlight, null );
+	}
 }
@@ -0,0 +1,278 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.opt.runcontrol.ReactorUtils.ParallelBatchFluxBuilder;
+
+/**
+ * <p>A registry of named Reactor {@link Scheduler schedulers}, which allows for giving each pipeline its own
+ * thread pool, so that unrelated pipelines don't compete for the same threads, as it happens when all of them
+ * use {@link ParallelBatchFluxBuilder#DEFAULT_FLUX_SCHEDULER}. For instance:</p>
+ *
+ * <pre>
+ *   ParallelFlux&lt;List&lt;Record&gt;&gt; flux = new ParallelBatchFluxBuilder&lt;&gt; ( records )
+ *     .withScheduler ( "dbLoader", WorkloadType.IO_BOUND )
+ *     .build ();
+ *   ...
+ *   SchedulerRegistry.getDefault ().dispose ( "dbLoader" );
+ * </pre>
+ *
+ * <p>The schedulers are created on the first request and the following requests for the same name get the
+ * same instance, independently on the parameters they pass, until the scheduler is {@link #dispose(String)
+ * disposed}. Each scheduler is backed by its own thread pool, which has a bounded queue and reports
+ * {@link ManagedScheduler metrics} like the queue depth and the rejected tasks. The threads are daemons
+ * and they're released when idle, so a forgotten scheduler doesn't prevent the JVM from exiting.</p>
+ *
+ * <p>Since the underlying pools aren't time-capable, these schedulers are suitable to run the processing of
+ * fluxes (eg, {@link reactor.core.publisher.ParallelFlux#runOn(Scheduler)},
+ * {@link reactor.core.publisher.Flux#publishOn(Scheduler)}), not for delayed or periodic tasks.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SchedulerRegistry
+{
+	/**
+	 * Hints about the pipeline's workload, used to size a scheduler.
+	 */
+	public static enum WorkloadType
+	{
+		/**
+		 * Threads = no. of processors, suitable for computations.
+		 */
+		CPU_BOUND ( 1 ),
+		/**
+		 * Threads = 10 * no. of processors, as in Reactor's bounded elastic scheduler, suitable for tasks that
+		 * mostly wait for I/O, eg, DB writes.
+		 */
+		IO_BOUND ( 10 );
+
+		private final int threadsPerProcessor;
+
+		private WorkloadType ( int threadsPerProcessor ) {
+			this.threadsPerProcessor = threadsPerProcessor;
+		}
+
+		public int getThreads () {
+			return Runtime.getRuntime ().availableProcessors () * threadsPerProcessor;
+		}
+	}
+
+	/**
+	 * A registered scheduler, with its metrics.
+	 */
+	public static class ManagedScheduler
+	{
+		private final String name;
+		private final ThreadPoolExecutor executor;
+		private final Scheduler scheduler;
+		private final LongAdder rejectedTasks = new LongAdder ();
+
+		private ManagedScheduler ( String name, int threads, int queueSize )
+		{
+			this.name = name;
+
+			this.executor = new ThreadPoolExecutor (
+				threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<> ( queueSize ),
+				new ThreadFactoryBuilder ()
+					.setNameFormat ( "jutils.sched." + name + "-%d" )
+					.setDaemon ( true )
+					.build (),
+				( task, pool ) -> {
+					rejectedTasks.increment ();
+					throw new RejectedExecutionException ( String.format (
+						"The scheduler \"%s\" is full (%d queued tasks) or disposed", name, pool.getQueue ().size ()
+					));
+				}
+			);
+			executor.allowCoreThreadTimeOut ( true );
+
+			this.scheduler = Schedulers.fromExecutorService ( executor, name );
+		}
+
+		public String getName ()
+		{
+			return name;
+		}
+
+		public Scheduler getScheduler ()
+		{
+			return scheduler;
+		}
+
+		/**
+		 * The no. of tasks waiting for a thread.
+		 */
+		public int getQueueDepth ()
+		{
+			return executor.getQueue ().size ();
+		}
+
+		public int getQueueCapacity ()
+		{
+			return executor.getQueue ().size () + executor.getQueue ().remainingCapacity ();
+		}
+
+		/**
+		 * The no. of threads that are running a task (approximated).
+		 */
+		public int getActiveThreads ()
+		{
+			return executor.getActiveCount ();
+		}
+
+		public int getMaxThreads ()
+		{
+			return executor.getMaximumPoolSize ();
+		}
+
+		/**
+		 * The no. of tasks that were rejected, because the queue was full or the scheduler was disposed.
+		 * When this grows, the pipeline is producing work faster than the threads can consume it.
+		 */
+		public long getRejectedTasks ()
+		{
+			return rejectedTasks.sum ();
+		}
+
+		/**
+		 * The no. of completed tasks (approximated).
+		 */
+		public long getCompletedTasks ()
+		{
+			return executor.getCompletedTaskCount ();
+		}
+
+		public boolean isDisposed ()
+		{
+			return executor.isShutdown ();
+		}
+
+		/**
+		 * After the disposal, waits for the tasks that were running or queued to complete.
+		 *
+		 * @return false if the timeout expired before.
+		 */
+		public boolean awaitTermination ( long timeout, TimeUnit unit )
+		{
+			try {
+				return executor.awaitTermination ( timeout, unit );
+			}
+			catch ( InterruptedException ex ) {
+				throw new UncheckedInterruptedException (
+					"Interrupted while waiting for the termination of the scheduler \"" + name + "\"", ex
+				);
+			}
+		}
+
+		/**
+		 * Not scheduler.dispose (), which would interrupt the running tasks, via shutdownNow ().
+		 */
+		private void dispose ()
+		{
+			executor.shutdown ();
+		}
+
+		@Override
+		public String toString ()
+		{
+			return String.format (
+				"%s{name: \"%s\", activeThreads: %d/%d, queueDepth: %d/%d, rejectedTasks: %d, completedTasks: %d}",
+				this.getClass ().getSimpleName (), name, getActiveThreads (), getMaxThreads (),
+				getQueueDepth (), getQueueCapacity (), getRejectedTasks (), getCompletedTasks ()
+			);
+		}
+	} // class ManagedScheduler
+
+
+	private static final SchedulerRegistry DEFAULT_INSTANCE = new SchedulerRegistry ();
+
+	private final ConcurrentMap<String, ManagedScheduler> schedulers = new ConcurrentHashMap<> ();
+
+	/**
+	 * A JVM-wide instance. You can also create your own instances, if you need separated namespaces.
+	 */
+	public static SchedulerRegistry getDefault ()
+	{
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Gets the scheduler for the name, creating it if it doesn't exist yet.
+	 *
+	 * @param threads the max no. of threads the scheduler uses.
+	 * @param queueSize the max no. of tasks that can wait for a thread, further tasks are rejected.
+	 */
+	public ManagedScheduler getScheduler ( String name, int threads, int queueSize )
+	{
+		Validate.notEmpty ( name, "Can't register a scheduler with an empty name" );
+		Validate.isTrue ( threads > 0, "Invalid no. of threads for the scheduler \"%s\": %d", name, threads );
+		Validate.isTrue ( queueSize > 0, "Invalid queue size for the scheduler \"%s\": %d", name, queueSize );
+
+		return schedulers.computeIfAbsent ( name, n -> new ManagedScheduler ( name, threads, queueSize ) );
+	}
+
+	/**
+	 * Sizes the scheduler from the workload type, with a queue of 100 tasks per thread, as in
+	 * {@link ParallelBatchFluxBuilder#DEFAULT_FLUX_SCHEDULER}.
+	 */
+	public ManagedScheduler getScheduler ( String name, WorkloadType workloadType )
+	{
+		Validate.notNull ( workloadType, "Can't create the scheduler \"%s\" with a null workload type", name );
+		int threads = workloadType.getThreads ();
+		return getScheduler ( name, threads, threads * 100 );
+	}
+
+	/**
+	 * Gets a scheduler previously created, or null, if there isn't any with this name.
+	 */
+	public ManagedScheduler getScheduler ( String name )
+	{
+		return schedulers.get ( name );
+	}
+
+	/**
+	 * Removes the scheduler from the registry and disposes it, which means that the tasks already running or
+	 * queued are completed and any new one is rejected. A following request for the same name creates a new
+	 * scheduler. This doesn't wait for the completion, use {@link ManagedScheduler#awaitTermination(long, TimeUnit)}
+	 * for that.
+	 *
+	 * @return false if there wasn't any scheduler with this name.
+	 */
+	public boolean dispose ( String name )
+	{
+		ManagedScheduler scheduler = schedulers.remove ( name );
+		if ( scheduler == null ) return false;
+		scheduler.dispose ();
+		return true;
+	}
+
+	/**
+	 * Disposes all the schedulers in the registry.
+	 */
+	public void disposeAll ()
+	{
+		for ( String name: schedulers.keySet () ) dispose ( name );
+	}
+
+	public Set<String> getNames ()
+	{
+		return schedulers.keySet ();
+	}
+}
@@ -0,0 +1,110 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Throughput statistics about a stage of a batch pipeline, eg, the batch processing done by
+ * {@link ReactorUtils#batchMapping(reactor.core.publisher.ParallelFlux, java.util.function.Function, StageStats)},
+ * or the commits done by {@link BatchWriter}.</p>
+ *
+ * <p>A stage is made of calls, each working on a number of items (eg, the batch size). The throughput is the
+ * no. of items processed per second of wall-clock time, from the start of the first call to the end of the last
+ * one, so it accounts for the parallelism of the stage. Comparing the throughput of the stages tells which one
+ * is the bottleneck.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class StageStats
+{
+	private final String name;
+
+	private final LongAdder calls = new LongAdder (), items = new LongAdder (), busyTime = new LongAdder ();
+	private final LongAccumulator startTime = new LongAccumulator ( Math::min, Long.MAX_VALUE ),
+		endTime = new LongAccumulator ( Math::max, Long.MIN_VALUE );
+
+	public StageStats ( String name )
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Records a completed call.
+	 *
+	 * @param callStart the {@link System#nanoTime()} when the call started.
+	 * @param callEnd the {@link System#nanoTime()} when the call ended.
+	 */
+	public void record ( long items, long callStart, long callEnd )
+	{
+		this.calls.increment ();
+		this.items.add ( items );
+		this.busyTime.add ( callEnd - callStart );
+		this.startTime.accumulate ( callStart );
+		this.endTime.accumulate ( callEnd );
+	}
+
+	public String getName ()
+	{
+		return name;
+	}
+
+	public long getCalls ()
+	{
+		return calls.sum ();
+	}
+
+	public long getItems ()
+	{
+		return items.sum ();
+	}
+
+	/**
+	 * The sum of the call times, in ms.
+	 */
+	public long getBusyTime ()
+	{
+		return TimeUnit.NANOSECONDS.toMillis ( busyTime.sum () );
+	}
+
+	/**
+	 * In ms, {@link Double#NaN} if there aren't calls yet.
+	 */
+	public double getAvgCallTime ()
+	{
+		long ncalls = getCalls ();
+		return ncalls == 0 ? Double.NaN : busyTime.sum () / 1E6 / ncalls;
+	}
+
+	/**
+	 * The time between the first call start and the last call end, in ms.
+	 */
+	public long getElapsedTime ()
+	{
+		long start = startTime.get (), end = endTime.get ();
+		return end < start ? 0 : TimeUnit.NANOSECONDS.toMillis ( end - start );
+	}
+
+	/**
+	 * Items per second, {@link Double#NaN} if there aren't calls yet.
+	 */
+	public double getThroughput ()
+	{
+		long start = startTime.get (), end = endTime.get ();
+		if ( end <= start ) return Double.NaN;
+		return getItems () * 1E9 / ( end - start );
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s{name: \"%s\", calls: %d, items: %d, avgCallTime: %.1f ms, throughput: %.1f items/s}",
+			this.getClass ().getSimpleName (), name, getCalls (), getItems (), getAvgCallTime (), getThroughput ()
+		);
+	}
+}
@@ -0,0 +1,99 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import java.util.Collection;
+
+import org.reactivestreams.Subscription;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.Context;
+
+/**
+ * Used by {@link ReactorUtils.ParallelBatchFluxBuilder} to report the batch processing times to an
+ * {@link AdaptiveBatchTuner}. It passes the source rails through, timing how long each rail takes to pass a
+ * batch to its subscriber.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+class TunedParallelFlux<B extends Collection<?>> extends ParallelFlux<B>
+{
+	private final ParallelFlux<B> source;
+	private final AdaptiveBatchTuner tuner;
+
+	private static class TimingSubscriber<B extends Collection<?>> implements CoreSubscriber<B>
+	{
+		private final CoreSubscriber<? super B> actual;
+		private final AdaptiveBatchTuner tuner;
+
+		private TimingSubscriber ( CoreSubscriber<? super B> actual, AdaptiveBatchTuner tuner )
+		{
+			this.actual = actual;
+			this.tuner = tuner;
+		}
+
+		@Override
+		public void onSubscribe ( Subscription subscription ) {
+			actual.onSubscribe ( subscription );
+		}
+
+		@Override
+		public void onNext ( B batch )
+		{
+			// Before the processing, which might clear the batch
+			int size = batch.size ();
+			long start = System.nanoTime ();
+			try {
+				actual.onNext ( batch );
+			}
+			finally {
+				tuner.recordBatch ( size, System.nanoTime () - start );
+			}
+		}
+
+		@Override
+		public void onError ( Throwable ex ) {
+			actual.onError ( ex );
+		}
+
+		@Override
+		public void onComplete () {
+			actual.onComplete ();
+		}
+
+		@Override
+		public Context currentContext () {
+			return actual.currentContext ();
+		}
+	}
+
+
+	TunedParallelFlux ( ParallelFlux<B> source, AdaptiveBatchTuner tuner )
+	{
+		this.source = source;
+		this.tuner = tuner;
+	}
+
+	@Override
+	public int parallelism () {
+		return source.parallelism ();
+	}
+
+	@Override
+	public int getPrefetch () {
+		return source.getPrefetch ();
+	}
+
+	@Override
+	@SuppressWarnings ( "unchecked" )
+	public void subscribe ( CoreSubscriber<? super B>[] subscribers )
+	{
+		CoreSubscriber<? super B>[] timedSubscribers = new CoreSubscriber [ subscribers.length ];
+		for ( int i = 0; i < subscribers.length; i++ )
+			timedSubscribers [ i ] = new TimingSubscriber<> ( subscribers [ i ], tuner );
+
+		// This validates the no. of subscribers
+		source.subscribe ( timedSubscribers );
+	}
+}
@@ -0,0 +1,239 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.BulkheadFullException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
+/**
+ * <p>An executor implementing the bulkhead pattern, ie, it limits the number of actions running
+ * concurrently, so that a slow service can't take all the threads of an application.</p>
+ *
+ * <p>When {@link #getMaxConcurrentCalls()} are already running, a new call can wait for a free slot, if
+ * there are less than {@link #getMaxWaitingCalls()} waiting calls, and for no longer than
+ * {@link #getMaxWaitTime()}. Otherwise, the call is rejected with a {@link BulkheadFullException}, without
+ * running it. Waiting calls are served in FIFO order. If there is a {@link Deadline current deadline}, the
+ * waiting time is reduced to the time left.</p>
+ *
+ * <p>This can be composed with the other executors in this package via {@link ChainExecutor}, eg, to
+ * have a {@link StatsExecutor} recording the rejections.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BulkheadExecutor implements Executor
+{
+	private final String name;
+	private final int maxConcurrentCalls;
+	private final int maxWaitingCalls;
+	private final long maxWaitTime;
+
+	private final Semaphore semaphore;
+	private final AtomicInteger waitingCalls = new AtomicInteger ( 0 );
+	private final AtomicLong rejectedCalls = new AtomicLong ( 0 );
+
+	private final ExecutionListeners listeners = new ExecutionListeners ();
+
+	/**
+	 * @param name used for error messages.
+	 */
+	public BulkheadExecutor ( String name, int maxConcurrentCalls, int maxWaitingCalls, long maxWaitTimeMs )
+	{
+		Validate.isTrue ( maxConcurrentCalls > 0, "Invalid bulkhead max concurrent calls: %s", maxConcurrentCalls );
+		Validate.isTrue ( maxWaitingCalls >= 0, "Invalid bulkhead max waiting calls: %s", maxWaitingCalls );
+
+		this.name = name;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.maxWaitingCalls = maxWaitingCalls;
+		this.maxWaitTime = maxWaitTimeMs;
+		this.semaphore = new Semaphore ( maxConcurrentCalls, true );
+	}
+
+	/**
+	 * No waiting calls, a call is rejected straight away when the bulkhead is full.
+	 */
+	public BulkheadExecutor ( String name, int maxConcurrentCalls )
+	{
+		this ( name, maxConcurrentCalls, 0, 0 );
+	}
+
+	/**
+	 * Runs the action if there is a free slot, possibly waiting for it.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive the wait for the slot (with 1 as permits), 
+	 * the timeouts of that wait and the call outcome, including the rejections.
+	 *
+	 * @throws BulkheadFullException if no slot is available in time.
+	 * @throws DeadlineExceededException if the {@link Deadline current deadline} passes before a slot is
+	 *         available.
+	 * @throws UncheckedInterruptedException if the thread is interrupted while waiting.
+	 */
+	@Override
+	public void execute ( Runnable action )
+	{
+		long callStart = listeners.startCall ();
+		Throwable error = null;
+		try 
+		{
+			acquireSlot ( callStart );
+			try {
+				action.run ();
+			}
+			finally {
+				semaphore.release ();
+			}
+		}
+		catch ( Throwable ex ) {
+			error = ex;
+			throw ex;
+		}
+		finally {
+			listeners.onOutcome ( this, callStart, error );
+		}
+	}
+
+	private void acquireSlot ( long callStart )
+	{
+		boolean isListened = callStart != ExecutionListeners.NOT_LISTENED;
+		
+		Deadline.checkCurrent ( "entering a bulkhead" );
+		if ( tryAcquireSlot ( 0 ) ) 
+		{
+			if ( isListened ) listeners.onPermitWait ( this, 1, 0 );
+			return;
+		}
+
+		if ( waitingCalls.incrementAndGet () > maxWaitingCalls )
+		{
+			waitingCalls.decrementAndGet ();
+			reject ( "the bulkhead is full" );
+		}
+
+		try 
+		{
+			long waitNanos = TimeUnit.MILLISECONDS.toNanos ( maxWaitTime );
+			long deadlineNanos = Deadline.currentRemainingNanos ();
+			long waitStart = isListened ? System.nanoTime () : 0;
+			if ( tryAcquireSlot ( Math.min ( waitNanos, deadlineNanos ) ) ) 
+			{
+				if ( isListened ) listeners.onPermitWait ( this, 1, System.nanoTime () - waitStart );
+				return;
+			}
+			
+			if ( isListened ) listeners.onTimeout ( this, ExecutionListeners.elapsed ( callStart ) );
+			if ( deadlineNanos < waitNanos ) {
+				rejectedCalls.incrementAndGet ();
+				throw new DeadlineExceededException ( 
+					"Deadline exceeded while waiting for the bulkhead \"" + name + "\""
+				);
+			}
+			reject ( "timeout while waiting for a free slot" );
+		}
+		finally {
+			waitingCalls.decrementAndGet ();
+		}
+	}
+
+	/**
+	 * Always uses the timed acquisition, since the untimed one doesn't respect the semaphore fairness, ie, it 
+	 * would skip ahead of the calls already waiting.
+	 */
+	private boolean tryAcquireSlot ( long timeoutNanos )
+	{
+		try {
+			return semaphore.tryAcquire ( timeoutNanos, TimeUnit.NANOSECONDS );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread ().interrupt ();
+			throw new UncheckedInterruptedException (
+				"Interrupted while waiting for the bulkhead \"" + name + "\"", ex
+			);
+		}
+	}
+
+	private void reject ( String reason )
+	{
+		rejectedCalls.incrementAndGet ();
+		throw new BulkheadFullException ( "Call to the bulkhead \"" + name + "\" rejected: " + reason );
+	}
+
+
+	public String getName ()
+	{
+		return name;
+	}
+
+	/**
+	 * The max number of calls that can run at the same time.
+	 */
+	public int getMaxConcurrentCalls ()
+	{
+		return maxConcurrentCalls;
+	}
+
+	/**
+	 * The max number of calls that can wait for a free slot. If it's 0, calls are rejected straight
+	 * away when the bulkhead is full.
+	 */
+	public int getMaxWaitingCalls ()
+	{
+		return maxWaitingCalls;
+	}
+
+	/**
+	 * How long a call can wait for a free slot, in ms.
+	 */
+	public long getMaxWaitTime ()
+	{
+		return maxWaitTime;
+	}
+
+	/**
+	 * The calls currently running.
+	 */
+	public int getActiveCalls ()
+	{
+		return maxConcurrentCalls - semaphore.availablePermits ();
+	}
+
+	/**
+	 * The calls currently waiting for a free slot.
+	 */
+	public int getWaitingCalls ()
+	{
+		return waitingCalls.get ();
+	}
+
+	/**
+	 * The total number of calls rejected so far.
+	 */
+	public long getRejectedCalls ()
+	{
+		return rejectedCalls.get ();
+	}
+
+	/**
+	 * Registers a listener of this executor's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	/**
+	 * @return true if the listener was registered.
+	 */
+	public boolean removeListener ( ExecutionListener listener )
+	{
+		return listeners.remove ( listener );
+	}
+}
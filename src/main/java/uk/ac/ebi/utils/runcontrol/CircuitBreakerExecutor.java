@@ -0,0 +1,457 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.utils.runcontrol.exceptions.CircuitBreakerOpenException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
+/**
+ * <p>An executor implementing the circuit breaker pattern, ie, it stops running the actions it receives
+ * when they fail too often or they're too slow, which usually means the service they call is down.</p>
+ *
+ * <p>In the {@link State#CLOSED closed} state, the calls are run and their outcomes are recorded in a sliding
+ * window of the last {@link #getWindowSize()} calls. When there are at least {@link #getMinCalls()} calls
+ * and either the {@link #getFailureRateThreshold() failure rate} or the {@link #getSlowCallRateThreshold() slow call
+ * rate} reaches its threshold, the circuit switches to {@link State#OPEN open} and any further call is rejected
+ * straight away with a {@link CircuitBreakerOpenException}, without running it.</p>
+ *
+ * <p>After {@link #getOpenStateTime()}, the circuit becomes {@link State#HALF_OPEN half-open} and
+ * {@link #getHalfOpenCalls()} trial calls are let through. Depending on how they go, the circuit goes back
+ * to closed or open.</p>
+ *
+ * <p>This can be composed with the other executors in this package via {@link ChainExecutor}, eg, wrapping
+ * a {@link MultipleAttemptsExecutor} with a circuit breaker sheds the calls to a dead service, instead of
+ * re-attempting them all. Note that the breaker measures what it wraps, so, in that case, a call is a
+ * failure if all its attempts failed, and it's slow if the attempts overall took too long.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class CircuitBreakerExecutor implements Executor
+{
+	public static enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private static final byte FAILED_FLAG = 1, SLOW_FLAG = 2;
+
+	private final String name;
+
+	private double failureRateThreshold = 0.5;
+	private double slowCallRateThreshold = 1d;
+	private long slowCallDuration = 60 * 1000;
+	private long openStateTime = 60 * 1000;
+	private int minCalls = 10;
+	private int halfOpenCalls = 5;
+	private Class<Exception>[] recordedExceptions;
+
+	private volatile State state = State.CLOSED;
+
+	/**
+	 * Incremented at each state change, so that outcomes of calls started in a previous state are ignored.
+	 */
+	private volatile long generation = 0;
+	private volatile long openUntil = 0;
+
+	private byte[] window;
+	private int windowIdx = 0, windowCalls = 0, windowFailures = 0, windowSlowCalls = 0;
+
+	private int halfOpenStarted = 0, halfOpenCompleted = 0, halfOpenFailures = 0, halfOpenSlowCalls = 0;
+
+	private final AtomicLong rejectedCalls = new AtomicLong ( 0 );
+
+	private final ExecutionListeners listeners = new ExecutionListeners ();
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+
+	/**
+	 * @param name used for logging and error messages.
+	 * @param recordedExceptions the exceptions that are considered failures. If none is specified,
+	 *        any {@link Exception} is a failure.
+	 */
+	@SafeVarargs
+	@SuppressWarnings ( "unchecked" )
+	public CircuitBreakerExecutor (
+		String name, double failureRateThreshold, long openStateTimeMs, Class<? extends Exception>... recordedExceptions
+	)
+	{
+		this.name = name;
+		this.setFailureRateThreshold ( failureRateThreshold );
+		this.openStateTime = openStateTimeMs;
+		this.recordedExceptions = recordedExceptions.length == 0
+			? new Class[] { Exception.class }
+			: (Class<Exception>[]) recordedExceptions;
+		this.setWindowSize ( 100 );
+	}
+
+	/**
+	 * Defaults to 50% failure rate threshold and 1 min of open state.
+	 */
+	@SafeVarargs
+	public CircuitBreakerExecutor ( String name, Class<? extends Exception>... recordedExceptions )
+	{
+		this ( name, 0.5, 60 * 1000, recordedExceptions );
+	}
+
+
+	/**
+	 * Runs the action, if the circuit allows it, and records its outcome. Any exception the action
+	 * throws is re-thrown.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive the call outcome, the rejected calls are 
+	 * reported as failures with 0 duration.
+	 *
+	 * @throws CircuitBreakerOpenException if the circuit is open, or it's half-open and the trial calls
+	 *         are already running.
+	 * @throws DeadlineExceededException if the {@link Deadline current deadline} has passed, in which case
+	 *         the action isn't run.
+	 */
+	@Override
+	public void execute ( Runnable action )
+	{
+		// Don't waste a trial call in half-open state
+		Deadline.checkCurrent ( "calling a circuit breaker" );
+		long permission = acquireCallPermission ();
+		long start = System.nanoTime ();
+		Throwable error = null;
+		try {
+			action.run ();
+		}
+		catch ( Throwable ex ) {
+			error = ex;
+			throw ex;
+		}
+		finally {
+			recordCallOutcome ( permission, System.nanoTime () - start, error );
+		}
+	}
+
+	/**
+	 * For the calls that aren't run by {@link #execute(Runnable)}, eg, asynchronous calls: asks the circuit 
+	 * the permission to run a call. When the call is over, its outcome must be reported to
+	 * {@link #recordCallOutcome(long, long, Throwable)}, with the value returned here. 
+	 * 
+	 * @throws CircuitBreakerOpenException if the call isn't allowed.
+	 */
+	public long acquireCallPermission ()
+	{
+		try {
+			return acquirePermission ();
+		}
+		catch ( CircuitBreakerOpenException ex ) 
+		{
+			if ( listeners.isEnabled () ) listeners.onFailure ( this, 0, ex );
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Records the outcome of a call started with {@link #acquireCallPermission()}.
+	 * 
+	 * @param permission the value returned by {@link #acquireCallPermission()}
+	 * @param error null if the call was successful. 
+	 */
+	public void recordCallOutcome ( long permission, long durationNanos, Throwable error )
+	{
+		onCallCompletion ( permission, durationNanos, error != null && isRecorded ( error ) );
+		if ( listeners.isEnabled () )
+		{
+			if ( error == null ) listeners.onSuccess ( this, durationNanos ); 
+			else listeners.onFailure ( this, durationNanos, error );
+		}
+	}
+
+	/**
+	 * @return the generation the call belongs to.
+	 */
+	private long acquirePermission ()
+	{
+		long result = this.generation;
+		State state = this.state;
+
+		// Fast paths, no locking
+		if ( state == State.CLOSED ) return result;
+		if ( state == State.OPEN && System.nanoTime () - openUntil < 0 ) reject ();
+
+		synchronized ( this )
+		{
+			if ( this.state == State.OPEN )
+			{
+				if ( System.nanoTime () - openUntil < 0 ) reject ();
+				transitionTo ( State.HALF_OPEN );
+			}
+			if ( this.state == State.HALF_OPEN )
+			{
+				if ( halfOpenStarted >= halfOpenCalls ) reject ();
+				halfOpenStarted++;
+			}
+			return this.generation;
+		}
+	}
+
+	private void reject ()
+	{
+		rejectedCalls.incrementAndGet ();
+		throw new CircuitBreakerOpenException ( "Circuit breaker \"" + name + "\" is open, call rejected" );
+	}
+
+	private boolean isRecorded ( Throwable ex )
+	{
+		for ( Class<Exception> exi: recordedExceptions )
+			if ( exi.isAssignableFrom ( ex.getClass () ) ) return true;
+		return false;
+	}
+
+	private synchronized void onCallCompletion ( long callGeneration, long durationNanos, boolean isFailed )
+	{
+		if ( callGeneration != this.generation ) return;
+
+		boolean isSlow = durationNanos >= TimeUnit.MILLISECONDS.toNanos ( slowCallDuration );
+
+		if ( state == State.CLOSED )
+		{
+			if ( windowCalls == window.length )
+			{
+				// Window full, the oldest outcome goes away
+				byte oldest = window [ windowIdx ];
+				if ( ( oldest & FAILED_FLAG ) != 0 ) windowFailures--;
+				if ( ( oldest & SLOW_FLAG ) != 0 ) windowSlowCalls--;
+			}
+			else
+				windowCalls++;
+
+			window [ windowIdx ] = (byte) ( ( isFailed ? FAILED_FLAG : 0 ) | ( isSlow ? SLOW_FLAG : 0 ) );
+			if ( isFailed ) windowFailures++;
+			if ( isSlow ) windowSlowCalls++;
+			windowIdx = ( windowIdx + 1 ) % window.length;
+
+			if ( windowCalls >= minCalls && isOverThresholds ( windowCalls, windowFailures, windowSlowCalls ) )
+				transitionTo ( State.OPEN );
+			return;
+		}
+
+		if ( state == State.HALF_OPEN )
+		{
+			halfOpenCompleted++;
+			if ( isFailed ) halfOpenFailures++;
+			if ( isSlow ) halfOpenSlowCalls++;
+
+			if ( halfOpenCompleted < halfOpenCalls ) return;
+			transitionTo (
+				isOverThresholds ( halfOpenCompleted, halfOpenFailures, halfOpenSlowCalls ) ? State.OPEN : State.CLOSED
+			);
+		}
+	}
+
+	private boolean isOverThresholds ( int calls, int failures, int slowCalls )
+	{
+		return 1d * failures / calls >= failureRateThreshold || 1d * slowCalls / calls >= slowCallRateThreshold;
+	}
+
+	private synchronized void transitionTo ( State newState )
+	{
+		State oldState = this.state;
+
+		if ( newState == State.OPEN )
+			openUntil = System.nanoTime () + TimeUnit.MILLISECONDS.toNanos ( openStateTime );
+		else if ( newState == State.HALF_OPEN )
+			halfOpenStarted = halfOpenCompleted = halfOpenFailures = halfOpenSlowCalls = 0;
+		else
+			resetWindow ();
+
+		generation++;
+		this.state = newState;
+
+		log.info ( "Circuit breaker \"{}\" switched from {} to {}", name, oldState, newState );
+	}
+
+	private void resetWindow ()
+	{
+		windowIdx = windowCalls = windowFailures = windowSlowCalls = 0;
+	}
+
+	/**
+	 * Forces the circuit back to the {@link State#CLOSED closed} state, with the sliding window emptied.
+	 */
+	public synchronized void reset ()
+	{
+		transitionTo ( State.CLOSED );
+	}
+
+
+	public String getName ()
+	{
+		return name;
+	}
+
+	public State getState ()
+	{
+		return state;
+	}
+
+	/**
+	 * The failure rate in the current sliding window, NaN if there are no calls. This is meaningful
+	 * in the {@link State#CLOSED closed} state only.
+	 */
+	public synchronized double getFailureRate ()
+	{
+		return windowCalls == 0 ? Double.NaN : 1d * windowFailures / windowCalls;
+	}
+
+	/**
+	 * The slow call rate in the current sliding window, NaN if there are no calls.
+	 */
+	public synchronized double getSlowCallRate ()
+	{
+		return windowCalls == 0 ? Double.NaN : 1d * windowSlowCalls / windowCalls;
+	}
+
+	/**
+	 * The total number of calls rejected so far.
+	 */
+	public long getRejectedCalls ()
+	{
+		return rejectedCalls.get ();
+	}
+
+	/**
+	 * If the failure rate is equal or greater than this, the circuit is opened. Default is 0.5 (50%).
+	 */
+	public synchronized double getFailureRateThreshold ()
+	{
+		return failureRateThreshold;
+	}
+
+	public synchronized void setFailureRateThreshold ( double failureRateThreshold )
+	{
+		Validate.isTrue (
+			failureRateThreshold > 0 && failureRateThreshold <= 1,
+			"Invalid circuit breaker failure rate threshold: %s", failureRateThreshold
+		);
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	/**
+	 * If the rate of calls taking longer than {@link #getSlowCallDuration()} is equal or greater than this,
+	 * the circuit is opened. Default is 1, ie, the circuit is opened when all the calls in the window are slow.
+	 */
+	public synchronized double getSlowCallRateThreshold ()
+	{
+		return slowCallRateThreshold;
+	}
+
+	public synchronized void setSlowCallRateThreshold ( double slowCallRateThreshold )
+	{
+		Validate.isTrue (
+			slowCallRateThreshold > 0 && slowCallRateThreshold <= 1,
+			"Invalid circuit breaker slow call rate threshold: %s", slowCallRateThreshold
+		);
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	/**
+	 * Calls taking this time or more are considered slow, in ms. Default is 1 min.
+	 */
+	public synchronized long getSlowCallDuration ()
+	{
+		return slowCallDuration;
+	}
+
+	public synchronized void setSlowCallDuration ( long slowCallDurationMs )
+	{
+		this.slowCallDuration = slowCallDurationMs;
+	}
+
+	/**
+	 * How long the circuit stays open before trying the half-open state, in ms. Default is 1 min.
+	 */
+	public synchronized long getOpenStateTime ()
+	{
+		return openStateTime;
+	}
+
+	public synchronized void setOpenStateTime ( long openStateTimeMs )
+	{
+		this.openStateTime = openStateTimeMs;
+	}
+
+	/**
+	 * The size of the sliding window of recorded calls. Default is 100. Changing this resets the window.
+	 * If the new size is smaller than {@link #getMinCalls()}, the latter is lowered to the window size, since
+	 * the window could never reach it.
+	 */
+	public synchronized int getWindowSize ()
+	{
+		return window.length;
+	}
+
+	public synchronized void setWindowSize ( int windowSize )
+	{
+		Validate.isTrue ( windowSize > 0, "Invalid circuit breaker window size: %s", windowSize );
+		this.window = new byte [ windowSize ];
+		if ( minCalls > windowSize ) minCalls = windowSize;
+		resetWindow ();
+	}
+
+	/**
+	 * The failure and slow rates aren't considered until the window has at least this number of calls.
+	 * Default is 10. This must be &lt;= {@link #getWindowSize()}, else the breaker could never open.
+	 */
+	public synchronized int getMinCalls ()
+	{
+		return minCalls;
+	}
+
+	public synchronized void setMinCalls ( int minCalls )
+	{
+		Validate.isTrue ( minCalls > 0 && minCalls <= window.length, 
+			"Invalid circuit breaker min calls: %s, it must be between 1 and the window size (%s)", minCalls, window.length
+		);
+		this.minCalls = minCalls;
+	}
+
+	/**
+	 * The number of trial calls permitted in the half-open state. Default is 5.
+	 */
+	public synchronized int getHalfOpenCalls ()
+	{
+		return halfOpenCalls;
+	}
+
+	public synchronized void setHalfOpenCalls ( int halfOpenCalls )
+	{
+		Validate.isTrue ( halfOpenCalls > 0, "Invalid no. of circuit breaker half-open calls: %s", halfOpenCalls );
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * The exceptions (or their subclasses) that are considered failures. Other exceptions are re-thrown
+	 * without being recorded as failures.
+	 */
+	public Class<Exception>[] getRecordedExceptions ()
+	{
+		return recordedExceptions;
+	}
+
+	/**
+	 * Registers a listener of this executor's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	/**
+	 * @return true if the listener was registered.
+	 */
+	public boolean removeListener ( ExecutionListener listener )
+	{
+		return listeners.remove ( listener );
+	}
+}
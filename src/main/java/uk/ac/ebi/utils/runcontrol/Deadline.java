@@ -0,0 +1,159 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.ebi.utils.exceptions.ExceptionUtils;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
+/**
+ * <p>A deadline for an operation, which is propagated to all the executors in this package via a thread-local
+ * context.</p>
+ *
+ * <p>When an operation is run within a deadline, eg, via {@code Deadline.after ( 5, SECONDS ).run ( action )},
+ * the executors used by the action shrink their waits to the remaining time: {@link MultipleAttemptsExecutor}
+ * doesn't re-attempt when the pause would exceed the deadline, {@link RateLimitedExecutor} doesn't wait for a
+ * permit beyond it, {@link XTimeLimiter} reduces its timeouts and so on. Once the deadline has passed, the
+ * executors fail fast with {@link DeadlineExceededException}, without running their action. This avoids that
+ * a chain of executors, each with its own timeouts and pauses, takes far more time than the caller wants.</p>
+ *
+ * <p>Deadlines can be nested, the inner deadline can only shorten the outer one. The executors that run
+ * actions on other threads (eg, {@link MultipleAttemptsExecutor#executeAsync(Callable, java.util.concurrent.Executor)})
+ * pass the deadline to those threads. You can do the same with {@link #propagate(Callable)}.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public final class Deadline
+{
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<> ();
+
+	/**
+	 * In {@link System#nanoTime()} terms.
+	 */
+	private final long deadlineNanos;
+
+	private Deadline ( long deadlineNanos )
+	{
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * A new deadline, at the given time from now.
+	 */
+	public static Deadline after ( long timeout, TimeUnit unit )
+	{
+		return new Deadline ( System.nanoTime () + unit.toNanos ( timeout ) );
+	}
+
+	/**
+	 * The deadline of the current thread, or null if there isn't any.
+	 */
+	public static Deadline current ()
+	{
+		return CURRENT.get ();
+	}
+
+	/**
+	 * The time left to the current deadline, {@link Long#MAX_VALUE} if there is no deadline, a value &lt;= 0 if
+	 * it has passed.
+	 */
+	public static long currentRemainingNanos ()
+	{
+		Deadline current = CURRENT.get ();
+		return current == null ? Long.MAX_VALUE : current.getRemainingNanos ();
+	}
+
+	/**
+	 * Fails fast if the current deadline has passed.
+	 *
+	 * @param operation used for the error message.
+	 * @throws DeadlineExceededException if the deadline has passed.
+	 */
+	public static void checkCurrent ( String operation )
+	{
+		if ( currentRemainingNanos () > 0 ) return;
+		throw new DeadlineExceededException ( "Deadline exceeded before " + operation );
+	}
+
+	/**
+	 * Wraps an action, so that it runs within the current deadline, even when it's run by another thread.
+	 * If there is no current deadline, returns the action itself.
+	 */
+	public static <T> Callable<T> propagate ( Callable<T> action )
+	{
+		Deadline current = CURRENT.get ();
+		return current == null ? action : () -> current.call ( action );
+	}
+
+	/**
+	 * @see #propagate(Callable)
+	 */
+	public static Runnable propagate ( Runnable action )
+	{
+		Deadline current = CURRENT.get ();
+		return current == null ? action : () -> current.run ( action );
+	}
+
+
+	/**
+	 * Runs the action within this deadline, ie, sets it as the current deadline during the action. If there
+	 * is already an earlier deadline, that one is used.
+	 */
+	public <T> T call ( Callable<T> action ) throws Exception
+	{
+		Deadline previous = CURRENT.get ();
+		Deadline effective = previous != null && previous.deadlineNanos - deadlineNanos < 0 ? previous : this;
+		CURRENT.set ( effective );
+		try {
+			return action.call ();
+		}
+		finally
+		{
+			if ( previous == null ) CURRENT.remove ();
+			else CURRENT.set ( previous );
+		}
+	}
+
+	/**
+	 * @see #call(Callable)
+	 */
+	public void run ( Runnable action )
+	{
+		try {
+			call ( () -> { action.run (); return null; } );
+		}
+		catch ( RuntimeException ex ) {
+			throw ex;
+		}
+		catch ( Exception ex ) {
+			// Can't happen
+			throw ExceptionUtils.buildEx ( IllegalStateException.class, ex, "Internal error: $cause" );
+		}
+	}
+
+	/**
+	 * A value &lt;= 0 if it has passed.
+	 */
+	public long getRemainingNanos ()
+	{
+		return deadlineNanos - System.nanoTime ();
+	}
+
+	public long getRemainingTime ( TimeUnit unit )
+	{
+		return unit.convert ( getRemainingNanos (), TimeUnit.NANOSECONDS );
+	}
+
+	public boolean isExpired ()
+	{
+		return getRemainingNanos () <= 0;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return "Deadline{remaining: " + getRemainingTime ( TimeUnit.MILLISECONDS ) + "ms}";
+	}
+}
@@ -0,0 +1,64 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
+/**
+ * <p>Receives the events of the executors in this package, eg, to feed them into a metrics system, without 
+ * having to parse their logs. Listeners are registered by methods like 
+ * {@link MultipleAttemptsExecutor#addListener(ExecutionListener)}.</p>
+ * 
+ * <p>Every call that an executor accepts ends with either {@link #onSuccess(Object, long)} or 
+ * {@link #onFailure(Object, long, Throwable)}, the other events are reported in between, when they apply to 
+ * the executor (eg, only the {@link MultipleAttemptsExecutor} reports retries). All the durations are in ns, the 
+ * source is the executor reporting the event, so that the same listener can be shared by multiple executors.</p>
+ * 
+ * <p>The events are reported synchronously, by the thread running the call, so the listeners must be quick and 
+ * thread-safe. The exceptions they throw are logged and ignored. The methods have empty defaults, so that you 
+ * can implement the events you're interested in only. Executors have no listeners by default and in that
+ * case they don't allocate anything nor measure any time to report events.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public interface ExecutionListener
+{
+	/**
+	 * An attempt to run the action is starting. The first attempt is 1.
+	 */
+	default void onAttempt ( Object source, int attempt ) {}
+	
+	/**
+	 * An attempt has failed and the action will be re-attempted after the pause.
+	 */
+	default void onRetry ( Object source, int failedAttempt, long pauseNanos, Throwable cause ) {}
+
+	/**
+	 * The call has waited for permits or for a free slot, eg, from a {@link RateLimitedExecutor} or 
+	 * a {@link BulkheadExecutor}. This is reported even when the wait is 0.
+	 */
+	default void onPermitWait ( Object source, double permits, long waitNanos ) {}
+	
+	/**
+	 * The call has been given up for a timeout, including the case of a {@link Deadline} that wouldn't allow 
+	 * for waiting or re-attempting (which is reported with {@link DeadlineExceededException} or with the last 
+	 * failure as the call's failure).
+	 * 
+	 * @param elapsedNanos the time from the call's start to the timeout.
+	 */
+	default void onTimeout ( Object source, long elapsedNanos ) {}
+	
+	/**
+	 * The call has completed successfully.
+	 * 
+	 * @param durationNanos the call's duration, including any wait or re-attempt done by the source. 
+	 */
+	default void onSuccess ( Object source, long durationNanos ) {}
+
+	/**
+	 * The call has failed, including when it was rejected by the executor. 
+	 * 
+	 * @param durationNanos the call's duration, including any wait or re-attempt done by the source. 
+	 */
+	default void onFailure ( Object source, long durationNanos, Throwable cause ) {}
+}
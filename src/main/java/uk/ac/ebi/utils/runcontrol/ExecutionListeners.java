@@ -0,0 +1,158 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>The {@link ExecutionListener listeners} registered with an executor, which are notified of the events 
+ * by forwarding them the events this receives.</p>
+ * 
+ * <p>The listeners are kept in a copy-on-write array, since they're changed rarely and the events are 
+ * dispatched often. Executors should check {@link #startCall()} before measuring or reporting anything, so 
+ * that they don't do any work when there are no listeners.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+final class ExecutionListeners implements ExecutionListener
+{
+	/**
+	 * Returned by {@link #startCall()} when there are no listeners.
+	 */
+	static final long NOT_LISTENED = Long.MIN_VALUE;
+	
+	private static final ExecutionListener[] NO_LISTENERS = new ExecutionListener [ 0 ];
+	
+	private volatile ExecutionListener[] listeners = NO_LISTENERS;
+	
+	private static final Logger log = LoggerFactory.getLogger ( ExecutionListeners.class );
+
+	
+	synchronized void add ( ExecutionListener listener )
+	{
+		Validate.notNull ( listener, "Can't add a null execution listener" );
+		listeners = ArrayUtils.add ( listeners, listener );
+	}
+
+	synchronized boolean remove ( ExecutionListener listener )
+	{
+		int idx = ArrayUtils.indexOf ( listeners, listener );
+		if ( idx == -1 ) return false;
+		listeners = listeners.length == 1 ? NO_LISTENERS : ArrayUtils.remove ( listeners, idx );
+		return true;
+	}
+	
+	boolean isEnabled ()
+	{
+		return listeners.length > 0;
+	}
+	
+	/**
+	 * @return the current time in {@link System#nanoTime()} terms, or {@link #NOT_LISTENED} if there are no 
+	 * listeners. Executors use this as a marker of a call that has to report its events, so that a listener 
+	 * added during the call doesn't receive events about it with inconsistent durations.  
+	 */
+	long startCall ()
+	{
+		return isEnabled () ? System.nanoTime () : NOT_LISTENED;
+	}
+	
+	/**
+	 * The time since {@link #startCall()}.
+	 */
+	static long elapsed ( long callStart )
+	{
+		return System.nanoTime () - callStart;
+	}
+
+	/**
+	 * Used to report a call's outcome, if it's listened.
+	 */
+	void onOutcome ( Object source, long callStart, Throwable error )
+	{
+		if ( callStart == NOT_LISTENED ) return;
+		if ( error == null ) onSuccess ( source, elapsed ( callStart ) );
+		else onFailure ( source, elapsed ( callStart ), error );
+	}
+	
+	
+	@Override
+	public void onAttempt ( Object source, int attempt )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onAttempt ( source, attempt );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+
+	@Override
+	public void onRetry ( Object source, int failedAttempt, long pauseNanos, Throwable cause )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onRetry ( source, failedAttempt, pauseNanos, cause );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+
+	@Override
+	public void onPermitWait ( Object source, double permits, long waitNanos )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onPermitWait ( source, permits, waitNanos );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+
+	@Override
+	public void onTimeout ( Object source, long elapsedNanos )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onTimeout ( source, elapsedNanos );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+
+	@Override
+	public void onSuccess ( Object source, long durationNanos )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onSuccess ( source, durationNanos );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+
+	@Override
+	public void onFailure ( Object source, long durationNanos, Throwable cause )
+	{
+		for ( ExecutionListener listener: listeners )
+			try {
+				listener.onFailure ( source, durationNanos, cause );
+			}
+			catch ( RuntimeException ex ) {
+				logError ( listener, ex );
+			}
+	}
+	
+	private static void logError ( ExecutionListener listener, RuntimeException ex )
+	{
+		log.warn ( "Error from the execution listener " + listener + ", ignoring it: " + ex.getMessage (), ex );
+	}
+}
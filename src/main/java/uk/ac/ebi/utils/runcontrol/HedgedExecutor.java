@@ -0,0 +1,406 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+
+import com.machinezoo.noexception.throwing.ThrowingRunnable;
+
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+import uk.ac.ebi.utils.statistics.LatencyHistogram;
+import uk.org.lidalia.slf4jext.Logger;
+import uk.org.lidalia.slf4jext.LoggerFactory;
+
+/**
+ * <p>An executor that sends hedged requests, ie, if an attempt to run an operation doesn't complete within
+ * a delay, it starts a new attempt in parallel, takes the result of the first one that succeeds and cancels
+ * (interrupts) the others. This is meant to cut the tail latency of idempotent operations like lookups
+ * against replicated services, where the slow calls are usually due to an occasional slow replica.</p>
+ *
+ * <p>The hedging delay is the {@link #getHedgePercentile() percentile} of the latencies of the recent
+ * successful attempts, bounded by {@link #getMinPauseTime()} and {@link #getMaxPauseTime()}. Until enough
+ * latencies are recorded, the max pause time is used. If min and max pauses are the same, the hedging delay
+ * is fixed.</p>
+ *
+ * <p>This extends {@link MultipleAttemptsExecutor}, so the attempts configuration is shared with it:
+ * {@link #getMaxAttempts()} is the total number of attempts that are made for an operation, hedged or not,
+ * and an attempt failing with one of the {@link #getInterceptedExceptions()} is re-attempted like in the
+ * parent class, including the {@link #getRetryBudget() retry budget}, which is unset by default.</p>
+ *
+ * <p>Each hedged attempt takes a token from the {@link #getHedgeBudget() hedge budget}, which, by default, allows
+ * for hedging no more than 10% of the calls (plus one hedge at the start), so that hedging can't multiply
+ * the load on a service that is slow for everyone. You can set another budget, or none.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class HedgedExecutor extends MultipleAttemptsExecutor
+{
+	/**
+	 * The hedging delay is recomputed every time this number of new latencies are recorded
+	 */
+	private static final int DELAY_UPDATE_SAMPLES = 100;
+
+	private final Executor attemptExecutor;
+	private double hedgePercentile;
+
+	private final LatencyHistogram latencies = new LatencyHistogram ();
+	private final AtomicLong successfulAttempts = new AtomicLong ( 0 );
+	private volatile long percentileDelay = -1;
+
+	private final AtomicLong hedgedAttempts = new AtomicLong ( 0 );
+	private volatile RetryBudget hedgeBudget = new RetryBudget ( 0.1, 0, 10, 1 );
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+
+	/**
+	 * The state of a single operation, ie, the attempts to run it.
+	 */
+	private class HedgedCall<T>
+	{
+		private final Callable<T> action;
+		private final Executor executor;
+		private final CompletableFuture<T> result = new CompletableFuture<> ();
+
+		/** Attempts started or scheduled */
+		private int attempts = 0;
+		/** Attempts that are running or scheduled */
+		private int running = 0;
+		private long lastPause = 0;
+		private final List<Thread> attemptThreads = new ArrayList<> ();
+		private final long callStart = listeners.startCall ();
+
+		HedgedCall ( Callable<T> action, Executor executor )
+		{
+			this.action = action;
+			this.executor = executor;
+			// Eg, the winner was found or the invoker cancelled the result
+			result.whenComplete ( ( v, ex ) -> 
+			{
+				interruptAttempts ();
+				listeners.onOutcome ( HedgedExecutor.this, callStart, ex );
+			});
+		}
+
+		/**
+		 * Starts the first attempt.
+		 */
+		void launch ()
+		{
+			int attempt;
+			synchronized ( this ) {
+				attempt = ++attempts;
+				running++;
+			}
+			submit ( attempt, 0 );
+		}
+
+		/**
+		 * Runs an attempt that was already accounted, after a pause if it's > 0.
+		 */
+		private void submit ( int attempt, long pause )
+		{
+			Executor scheduler = pause > 0
+				? CompletableFuture.delayedExecutor ( pause, TimeUnit.MILLISECONDS, executor )
+				: executor;
+
+			try {
+				scheduler.execute ( Deadline.propagate ( () -> runAttempt ( attempt ) ) );
+			}
+			catch ( RejectedExecutionException ex ) {
+				onFailure ( ex );
+			}
+		}
+
+		/**
+		 * Schedules the hedged attempt that follows the current one, which is fired only if nothing new has
+		 * happened in the meantime.
+		 */
+		private void scheduleHedge ( int attempt )
+		{
+			if ( attempt >= getMaxAttempts () ) return;
+
+			long delay = getHedgeDelay ();
+			if ( TimeUnit.MILLISECONDS.toNanos ( delay ) >= Deadline.currentRemainingNanos () ) return;
+
+			try {
+				CompletableFuture.delayedExecutor ( delay, TimeUnit.MILLISECONDS, executor )
+					.execute ( Deadline.propagate ( () -> hedge ( attempt ) ) );
+			}
+			catch ( RejectedExecutionException ex ) {
+				// Just don't hedge
+				log.trace ( "Hedged attempt rejected by the executor: {}", ex.getMessage () );
+			}
+		}
+
+		private void hedge ( int lastAttempt )
+		{
+			int attempt;
+			synchronized ( this )
+			{
+				// Completed, or a retry was started in the meantime, or nothing is running anymore and the
+				// failure handling will deal with it
+				if ( result.isDone () || attempts != lastAttempt || running == 0 ) return;
+
+				RetryBudget budget = hedgeBudget;
+				if ( budget != null && !budget.tryRetry () ) return;
+
+				attempt = ++attempts;
+				running++;
+			}
+			hedgedAttempts.incrementAndGet ();
+			log.trace ( "Hedging operation with attempt #{}", attempt );
+			runAttempt ( attempt );
+		}
+
+		private void runAttempt ( int attempt )
+		{
+			synchronized ( this )
+			{
+				if ( result.isDone () ) {
+					running--;
+					return;
+				}
+				attemptThreads.add ( Thread.currentThread () );
+			}
+			if ( callStart != ExecutionListeners.NOT_LISTENED ) listeners.onAttempt ( HedgedExecutor.this, attempt );
+
+			scheduleHedge ( attempt );
+
+			long start = System.nanoTime ();
+			try
+			{
+				T value = action.call ();
+				recordLatency ( System.nanoTime () - start );
+				result.complete ( value );
+			}
+			catch ( Throwable ex ) {
+				onFailure ( ex );
+			}
+			finally
+			{
+				synchronized ( this ) {
+					attemptThreads.remove ( Thread.currentThread () );
+				}
+				// In case another attempt won while this was finishing, don't leave the interruption around
+				if ( result.isDone () ) Thread.interrupted ();
+			}
+		}
+
+		private void onFailure ( Throwable ex )
+		{
+			int retryAttempt = -1;
+			long pause = -1;
+			synchronized ( this )
+			{
+				running--;
+				if ( result.isDone () ) return;
+
+				if ( isIntercepted ( ex ) )
+				{
+					pause = retryPause ( ex, attempts, lastPause, callStart );
+					if ( pause >= 0 ) {
+						lastPause = pause;
+						retryAttempt = ++attempts;
+						running++;
+					}
+					// Else, if others are running, they still have a chance
+					else if ( running > 0 ) return;
+				}
+			}
+
+			if ( retryAttempt > 0 ) submit ( retryAttempt, pause );
+			else result.completeExceptionally ( ex );
+		}
+
+		private synchronized void interruptAttempts ()
+		{
+			Thread currentThread = Thread.currentThread ();
+			for ( Thread thread: attemptThreads )
+				if ( thread != currentThread ) thread.interrupt ();
+		}
+	} // class HedgedCall
+
+
+	/**
+	 * @param attemptExecutor where the attempts are run. Since they can run in parallel and they're usually
+	 *        blocking, this should be something like a cached thread pool.
+	 * @param maxAttempts the max number of attempts, hedged or re-attempted after a failure.
+	 * @param hedgePercentile the percentile of the recent latencies, used for the hedging delay, eg, 95.
+	 * @param minPauseTimeMs the min hedging delay and the min pause between re-attempts.
+	 * @param maxPauseTimeMs the max hedging delay and the max pause between re-attempts.
+	 * @param interceptedExceptions the exceptions that cause a re-attempt. Attempts failing with other
+	 *        exceptions make the operation fail immediately.
+	 */
+	@SafeVarargs
+	public HedgedExecutor (
+		Executor attemptExecutor, int maxAttempts, double hedgePercentile, long minPauseTimeMs, long maxPauseTimeMs,
+		Class<? extends Exception>... interceptedExceptions
+	)
+	{
+		super ( maxAttempts, minPauseTimeMs, maxPauseTimeMs, interceptedExceptions );
+		Validate.notNull ( attemptExecutor, "Can't use a null executor for hedged attempts" );
+
+		this.attemptExecutor = attemptExecutor;
+		this.setHedgePercentile ( hedgePercentile );
+	}
+
+	/**
+	 * Defaults to 2 attempts, the p95 as hedging delay, 0-3000ms as min/max pause.
+	 */
+	@SafeVarargs
+	public HedgedExecutor ( Executor attemptExecutor, Class<? extends Exception>... interceptedExceptions )
+	{
+		this ( attemptExecutor, 2, 95, 0, 3000, interceptedExceptions );
+	}
+
+
+	/**
+	 * Runs the action with hedged attempts and waits for the result.
+	 *
+	 * If the operation fails, throws the exception of the last failed attempt. If there is a 
+	 * {@link Deadline current deadline}, waits until then at most, and then throws 
+	 * {@link DeadlineExceededException}. 
+	 */
+	@Override
+	public void executeChecked ( ThrowingRunnable action ) throws Exception
+	{
+		long callStart = listeners.startCall ();
+		CompletableFuture<Void> result = executeAsync ( () -> { action.run (); return null; } );
+		try 
+		{
+			long deadlineNanos = Deadline.currentRemainingNanos ();
+			if ( deadlineNanos == Long.MAX_VALUE ) result.get ();
+			else result.get ( deadlineNanos, TimeUnit.NANOSECONDS );
+		}
+		catch ( TimeoutException ex )
+		{
+			if ( callStart != ExecutionListeners.NOT_LISTENED ) 
+				listeners.onTimeout ( this, ExecutionListeners.elapsed ( callStart ) );
+			result.cancel ( true );
+			throw new DeadlineExceededException ( "Deadline exceeded while running a hedged operation", ex );
+		}
+		catch ( InterruptedException ex )
+		{
+			result.cancel ( true );
+			throw new UncheckedInterruptedException ( "Hedged operation interrupted", ex );
+		}
+		catch ( ExecutionException ex )
+		{
+			Throwable cause = ex.getCause ();
+			if ( cause instanceof Exception ) throw (Exception) cause;
+			if ( cause instanceof Error ) throw (Error) cause;
+			throw ex;
+		}
+	}
+
+	/**
+	 * Runs the attempts on the given executor instead of the one set with the constructor.
+	 * The returned future is completed with the first successful result, or with the exception of the last failed
+	 * attempt. If you cancel it, the running attempts are interrupted.
+	 * 
+	 * The {@link Deadline current deadline} is propagated to the attempts and no hedged attempt or 
+	 * re-attempt is started if its delay would exceed the deadline.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive all the attempts, including the hedged ones, 
+	 * the re-attempts after a failure and the call outcome.
+	 */
+	@Override
+	public <T> CompletableFuture<T> executeAsync ( Callable<T> action, Executor attemptExecutor )
+	{
+		try {
+			Deadline.checkCurrent ( "running a hedged operation" );
+		}
+		catch ( DeadlineExceededException ex ) {
+			return CompletableFuture.failedFuture ( ex );
+		}
+
+		RetryBudget hedgeBudget = this.hedgeBudget, retryBudget = getRetryBudget ();
+		if ( hedgeBudget != null ) hedgeBudget.recordCall ();
+		if ( retryBudget != null && retryBudget != hedgeBudget ) retryBudget.recordCall ();
+
+		HedgedCall<T> call = new HedgedCall<> ( action, attemptExecutor );
+		call.launch ();
+		return call.result;
+	}
+
+	/**
+	 * Uses the executor set with the constructor.
+	 */
+	@Override
+	public <T> CompletableFuture<T> executeAsync ( Callable<T> action )
+	{
+		return executeAsync ( action, attemptExecutor );
+	}
+
+
+	private void recordLatency ( long latencyNs )
+	{
+		latencies.record ( latencyNs );
+		if ( successfulAttempts.incrementAndGet () % DELAY_UPDATE_SAMPLES != 0 ) return;
+
+		// Only the recent latencies count
+		long percentileNs = latencies.getIntervalSnapshot ().getPercentile ( hedgePercentile );
+		percentileDelay = TimeUnit.NANOSECONDS.toMillis ( percentileNs );
+	}
+
+	/**
+	 * The current delay before sending a new hedged attempt, in ms. This is based on the latencies of the
+	 * recent successful attempts, see the class comment.
+	 */
+	public long getHedgeDelay ()
+	{
+		long delay = percentileDelay;
+		if ( delay < 0 ) return getMaxPauseTime ();
+		return Math.max ( getMinPauseTime (), Math.min ( delay, getMaxPauseTime () ) );
+	}
+
+	/**
+	 * The latency percentile used for the hedging delay. Default is 95.
+	 */
+	public double getHedgePercentile ()
+	{
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile ( double hedgePercentile )
+	{
+		Validate.inclusiveBetween ( 0d, 100d, hedgePercentile, "Invalid hedging percentile: " + hedgePercentile );
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	/**
+	 * If set, hedged attempts are started only if they're allowed by this budget, which is independent of the
+	 * {@link #getRetryBudget() retry budget} of the failed attempts, unless you set the same instance for both.
+	 * Default is a budget of 10% of the calls, seeded with one hedge. Null means no limit.
+	 */
+	public RetryBudget getHedgeBudget ()
+	{
+		return hedgeBudget;
+	}
+
+	public void setHedgeBudget ( RetryBudget hedgeBudget )
+	{
+		this.hedgeBudget = hedgeBudget;
+	}
+
+	/**
+	 * The number of hedged attempts started so far, not including the re-attempts after failures.
+	 */
+	public long getHedgedAttempts ()
+	{
+		return hedgedAttempts.get ();
+	}
+}
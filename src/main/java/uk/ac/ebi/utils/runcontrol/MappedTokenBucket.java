@@ -0,0 +1,166 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import uk.ac.ebi.utils.exceptions.ExceptionUtils;
+
+/**
+ * <p>A {@link TokenBucket} that keeps its state in a memory-mapped file, so that multiple JVM processes
+ * running on the same host can share the same rate limit.</p>
+ *
+ * <p>The state is updated under a {@link FileLock}, plus an in-JVM lock, so it's safe to have multiple
+ * instances of this class mapping the same file, both in the same JVM and in different processes. The
+ * rate and the burst capacity aren't stored in the file, so all the clients should use the same values.
+ * The bucket refill is based on the wall clock, rather than {@link System#nanoTime()}, since the latter
+ * isn't comparable across processes.</p>
+ *
+ * <p>The file is created if it doesn't exist. Remember to {@link #close()} the bucket when you don't
+ * need it anymore.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class MappedTokenBucket extends TokenBucket implements Closeable
+{
+	private static final long STATE_MARKER = 0x6A7574696C735442L;
+	private static final int STATE_SIZE = 24;
+
+	/**
+	 * {@link FileLock} is per-process, the same JVM can't lock the same file twice, so we use these
+	 * to serialise the access from multiple instances in the same JVM.
+	 */
+	private static final Map<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<> ();
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final ReentrantLock jvmLock;
+	private FileLock fileLock;
+
+	/**
+	 * @see TokenBucket#TokenBucket(double, double)
+	 */
+	public MappedTokenBucket ( Path path, double permitsPerSecond, double burstCapacity )
+	{
+		super ( permitsPerSecond, burstCapacity );
+
+		this.path = path.toAbsolutePath ().normalize ();
+		this.jvmLock = JVM_LOCKS.computeIfAbsent ( this.path, p -> new ReentrantLock () );
+		try
+		{
+			this.channel = FileChannel.open ( this.path, CREATE, READ, WRITE );
+			this.buffer = channel.map ( MapMode.READ_WRITE, 0, STATE_SIZE );
+		}
+		catch ( IOException ex ) {
+			throw ExceptionUtils.buildEx ( UncheckedIOException.class, ex,
+				"Error while mapping the token bucket file \"%s\": $cause", this.path
+			);
+		}
+
+		// Initialises the file when it's new
+		synchronized ( this ) {
+			beginStateUpdate ();
+			endStateUpdate ();
+		}
+	}
+
+	/**
+	 * Uses one second worth of permits as burst capacity.
+	 */
+	public MappedTokenBucket ( Path path, double permitsPerSecond )
+	{
+		this ( path, permitsPerSecond, 0 );
+	}
+
+
+	/**
+	 * Epoch time, in ns.
+	 */
+	@Override
+	protected long nanoTime ()
+	{
+		Instant now = Instant.now ();
+		return now.getEpochSecond () * 1_000_000_000L + now.getNano ();
+	}
+
+	/**
+	 * Locks the file and reads the state from it.
+	 */
+	@Override
+	protected void beginStateUpdate ()
+	{
+		jvmLock.lock ();
+		try {
+			fileLock = channel.lock ( 0, STATE_SIZE, false );
+		}
+		catch ( IOException ex )
+		{
+			jvmLock.unlock ();
+			throw ExceptionUtils.buildEx ( UncheckedIOException.class, ex,
+				"Error while locking the token bucket file \"%s\": $cause", this.path
+			);
+		}
+
+		if ( buffer.getLong ( 0 ) == STATE_MARKER )
+		{
+			storedPermits = buffer.getDouble ( 8 );
+			lastRefillTime = buffer.getLong ( 16 );
+			return;
+		}
+
+		// New file, starts empty, like the parent class
+		storedPermits = 0;
+		lastRefillTime = nanoTime ();
+	}
+
+	/**
+	 * Writes the state and unlocks the file.
+	 */
+	@Override
+	protected void endStateUpdate ()
+	{
+		try
+		{
+			buffer.putLong ( 0, STATE_MARKER );
+			buffer.putDouble ( 8, storedPermits );
+			buffer.putLong ( 16, lastRefillTime );
+			fileLock.release ();
+		}
+		catch ( IOException ex ) {
+			throw ExceptionUtils.buildEx ( UncheckedIOException.class, ex,
+				"Error while unlocking the token bucket file \"%s\": $cause", this.path
+			);
+		}
+		finally {
+			fileLock = null;
+			jvmLock.unlock ();
+		}
+	}
+
+	public Path getPath ()
+	{
+		return path;
+	}
+
+	@Override
+	public void close () throws IOException
+	{
+		channel.close ();
+	}
+}
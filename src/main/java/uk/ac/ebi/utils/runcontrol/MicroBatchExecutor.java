@@ -0,0 +1,295 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+import uk.ac.ebi.utils.threading.HashedWheelTimer;
+import uk.ac.ebi.utils.threading.ThreadUtils;
+
+/**
+ * <p>An executor that gathers single-item requests coming from multiple threads into batches and
+ * processes each batch with a single call to a bulk function, eg, a remote API with a bulk endpoint. Each
+ * caller receives its own result, as if it had called a single-item function.</p>
+ *
+ * <p>A batch is sent to the bulk function when it reaches {@link #getMaxBatchSize()} items, or
+ * {@link #getMaxWaitTime()} after its first item arrived, whichever comes first. So, under low load, the max
+ * wait time is the latency cost of batching.</p>
+ *
+ * <p>The bulk function receives the batch items and must return their results in the same order. If it
+ * fails, all the callers in the batch get its exception. The function is run by the batch executor, which
+ * is where you can control the concurrency of bulk calls. Rate limiting, retries and alike can be obtained by
+ * running the bulk call via the other executors in this package, eg,
+ * {@code items -> retryExecutor.executeAsync ( () -> client.getAll ( items ) ).join ()}.</p>
+ *
+ * @param <I> the type of the single items (the inputs).
+ * @param <O> the type of the single results.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class MicroBatchExecutor<I, O> implements AutoCloseable
+{
+	/**
+	 * Lazily initialised, used to flush the batches on the max wait time. The timer's worker only hands
+	 * the batches to the flusher, since it can't be blocked by the batch executors.
+	 */
+	private static class TimerHolder
+	{
+		private static final HashedWheelTimer TIMER = new HashedWheelTimer ( "MicroBatchExecutor-Timer" );
+		private static final ExecutorService FLUSHER = Executors.newCachedThreadPool (
+			ThreadUtils.createNamingThreadFactory (
+				"MicroBatchExecutor-Flusher-", Thread.ofPlatform ().daemon ().factory ()
+			)
+		);
+	}
+
+	private final Function<List<I>, List<O>> bulkFunction;
+	private final int maxBatchSize;
+	private final long maxWaitTime;
+	private final Executor batchExecutor;
+
+	private Batch<I, O> currentBatch = null;
+	private boolean isClosed = false;
+
+	private final AtomicLong batchCount = new AtomicLong ( 0 ), itemCount = new AtomicLong ( 0 );
+
+	private static class Request<I, O>
+	{
+		private final I item;
+		private final CompletableFuture<O> result = new CompletableFuture<> ();
+
+		private Request ( I item ) {
+			this.item = item;
+		}
+	}
+
+	private static class Batch<I, O>
+	{
+		private final List<Request<I, O>> requests;
+		/** Flushes the batch on the max wait time, cancelled if the batch is sent earlier */
+		private HashedWheelTimer.Timeout timeout;
+
+		private Batch ( int maxSize ) {
+			// Batches flushed by the timeout are often much smaller than the max, so don't reserve it all upfront
+			this.requests = new ArrayList<> ( Math.min ( maxSize, 1024 ) );
+		}
+	}
+
+
+	/**
+	 * @param bulkFunction processes a batch, returning the results in the same order as the items.
+	 * @param maxBatchSize a batch is processed when it has this size.
+	 * @param maxWaitTimeMs a batch is processed after this time since its first item arrived, even if it's smaller
+	 *        than the max size. The precision of this is about 10ms.
+	 * @param batchExecutor runs the bulk function. This can be a direct executor (eg, {@code Runnable::run}),
+	 *        in which case the bulk function is run by the thread that completes a batch, or by an internal
+	 *        flushing thread, when the batch is sent on the max wait time.
+	 */
+	public MicroBatchExecutor (
+		Function<List<I>, List<O>> bulkFunction, int maxBatchSize, long maxWaitTimeMs, Executor batchExecutor
+	)
+	{
+		Validate.notNull ( bulkFunction, "Can't use a null bulk function for micro-batching" );
+		Validate.isTrue ( maxBatchSize > 0, "Invalid micro-batching size: %d", maxBatchSize );
+		Validate.isTrue ( maxWaitTimeMs >= 0, "Invalid micro-batching wait time: %d", maxWaitTimeMs );
+		Validate.notNull ( batchExecutor, "Can't use a null batch executor for micro-batching" );
+
+		this.bulkFunction = bulkFunction;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitTime = maxWaitTimeMs;
+		this.batchExecutor = batchExecutor;
+	}
+
+
+	/**
+	 * Adds the item to the current batch.
+	 *
+	 * @return a future that is completed with the item's result, when its batch has been processed.
+	 * @throws RejectedExecutionException if this executor was closed.
+	 */
+	public CompletableFuture<O> submit ( I item )
+	{
+		Request<I, O> request = new Request<> ( item );
+		Batch<I, O> fullBatch = null;
+
+		synchronized ( this )
+		{
+			if ( isClosed ) throw new RejectedExecutionException ( "Can't submit items to a closed micro-batch executor" );
+
+			if ( currentBatch == null )
+			{
+				Batch<I, O> newBatch = currentBatch = new Batch<> ( maxBatchSize );
+				if ( maxBatchSize > 1 ) newBatch.timeout = TimerHolder.TIMER.newTimeout (
+					() -> TimerHolder.FLUSHER.execute ( () -> flush ( newBatch ) ), maxWaitTime, TimeUnit.MILLISECONDS
+				);
+			}
+
+			currentBatch.requests.add ( request );
+			if ( currentBatch.requests.size () >= maxBatchSize ) {
+				fullBatch = currentBatch;
+				currentBatch = null;
+			}
+		}
+
+		if ( fullBatch != null ) dispatch ( fullBatch );
+		return request.result;
+	}
+
+	/**
+	 * Submits the item and waits for its result. If there is a {@link Deadline current deadline}, waits until
+	 * then at most.
+	 *
+	 * @throws Exception the exception raised by the bulk function.
+	 * @throws DeadlineExceededException if the {@link Deadline current deadline} passes before the result is
+	 *         available.
+	 */
+	public O execute ( I item ) throws Exception
+	{
+		Deadline.checkCurrent ( "submitting to a micro-batch" );
+
+		CompletableFuture<O> result = submit ( item );
+		try
+		{
+			long deadlineNanos = Deadline.currentRemainingNanos ();
+			return deadlineNanos == Long.MAX_VALUE ? result.get () : result.get ( deadlineNanos, TimeUnit.NANOSECONDS );
+		}
+		catch ( ExecutionException ex )
+		{
+			Throwable cause = ex.getCause ();
+			if ( cause instanceof Exception ) throw (Exception) cause;
+			if ( cause instanceof Error ) throw (Error) cause;
+			throw ex;
+		}
+		catch ( TimeoutException ex ) {
+			throw new DeadlineExceededException ( "Deadline exceeded while waiting for a micro-batch", ex );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread ().interrupt ();
+			throw new UncheckedInterruptedException ( "Interrupted while waiting for a micro-batch", ex );
+		}
+	}
+
+	/**
+	 * Sends the current batch to processing immediately, if there is one.
+	 */
+	public void flush ()
+	{
+		Batch<I, O> batch;
+		synchronized ( this ) {
+			batch = currentBatch;
+			currentBatch = null;
+		}
+		if ( batch != null ) dispatch ( batch );
+	}
+
+	/**
+	 * Flushes the batch, if it's still the current one, ie, it wasn't sent yet, due to its size.
+	 */
+	private void flush ( Batch<I, O> batch )
+	{
+		synchronized ( this ) {
+			if ( batch != currentBatch ) return;
+			currentBatch = null;
+		}
+		dispatch ( batch );
+	}
+
+	/**
+	 * Flushes the current batch and doesn't accept new items anymore. The batches already sent are still
+	 * processed.
+	 */
+	@Override
+	public void close ()
+	{
+		synchronized ( this ) {
+			isClosed = true;
+		}
+		flush ();
+	}
+
+	private void dispatch ( Batch<I, O> batch )
+	{
+		// No-op if it's the timer that is flushing, else the timer doesn't keep the batch until the max wait
+		if ( batch.timeout != null ) batch.timeout.cancel ();
+
+		List<Request<I, O>> requests = batch.requests;
+		batchCount.incrementAndGet ();
+		itemCount.addAndGet ( requests.size () );
+
+		try {
+			batchExecutor.execute ( () -> process ( requests ) );
+		}
+		catch ( RejectedExecutionException ex ) {
+			for ( Request<I, O> request: requests ) request.result.completeExceptionally ( ex );
+		}
+	}
+
+	private void process ( List<Request<I, O>> batch )
+	{
+		try
+		{
+			List<I> items = new ArrayList<> ( batch.size () );
+			for ( Request<I, O> request: batch ) items.add ( request.item );
+
+			List<O> results = bulkFunction.apply ( items );
+
+			if ( results == null || results.size () != batch.size () ) throw new IllegalStateException ( String.format (
+				"The micro-batch bulk function returned %s results for %d items",
+				results == null ? "null" : results.size (), batch.size ()
+			));
+
+			for ( int i = 0; i < batch.size (); i++ )
+				batch.get ( i ).result.complete ( results.get ( i ) );
+		}
+		catch ( Throwable ex ) {
+			for ( Request<I, O> request: batch ) request.result.completeExceptionally ( ex );
+		}
+	}
+
+
+	public int getMaxBatchSize ()
+	{
+		return maxBatchSize;
+	}
+
+	/**
+	 * In ms.
+	 */
+	public long getMaxWaitTime ()
+	{
+		return maxWaitTime;
+	}
+
+	/**
+	 * The no. of batches sent to processing so far.
+	 */
+	public long getBatchCount ()
+	{
+		return batchCount.get ();
+	}
+
+	/**
+	 * The no. of items sent to processing so far, together with {@link #getBatchCount()}, this tells the
+	 * average batch size.
+	 */
+	public long getItemCount ()
+	{
+		return itemCount.get ();
+	}
+}
@@ -0,0 +1,255 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * <p>A {@link PermitLimiter} that enforces multiple quotas at the same time, eg, 10 calls/second, 500
+ * calls/minute and 10000 calls/day, as many web APIs require.</p>
+ *
+ * <p>Each quota is a sliding window, which is split into {@link #getSlotsPerWindow() slots}, recording the
+ * permits given away in each slot. A request gets its permits at the earliest time when all the windows
+ * ending then have room for them. Unlike a {@link TokenBucket}, which can give away up to twice its burst
+ * capacity within a window time, this never exceeds a quota in any window, so it's suitable for APIs that ban
+ * clients exceeding their quotas. The price of that is a slight over-throttling, since a window is
+ * considered one slot longer than it is, eg, with 60 slots, a 1-minute window is considered 61 seconds long.</p>
+ *
+ * <p>Requests are served in FIFO order and each waits exactly until its permits are available, so
+ * {@link #getWaitNanos()} is accurate for all the windows.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class MultiWindowRateLimiter implements PermitLimiter
+{
+	private final int slotsPerWindow;
+	private final List<Window> windows = new ArrayList<> ();
+	private final long startTime = System.nanoTime ();
+
+	/**
+	 * The time the last request got its permits, relative to {@link #startTime}.
+	 */
+	private long lastReservationTime = 0;
+
+	/**
+	 * A sliding window, its slots are a ring, each slot has the ID (ie, the absolute position in time) it
+	 * refers to, so that the stale slots are recognised without having to clean them.
+	 */
+	private class Window
+	{
+		private double maxPermits;
+		private final long duration;
+		private final long slotDuration;
+		private final double[] slotPermits;
+		private final long[] slotIds;
+
+		private Window ( double maxPermits, long durationNanos )
+		{
+			this.maxPermits = maxPermits;
+			this.duration = durationNanos;
+			this.slotDuration = Math.max ( 1, durationNanos / slotsPerWindow );
+			// Current slot + the window's ones before it
+			this.slotPermits = new double [ slotsPerWindow + 1 ];
+			this.slotIds = new long [ slotsPerWindow + 1 ];
+			Arrays.fill ( this.slotIds, -1 );
+		}
+
+		/**
+		 * The earliest time &gt;= time, at which the permits can be given away, without exceeding this window.
+		 */
+		private long getEarliestTime ( double permits, long time )
+		{
+			long slot = time / slotDuration;
+
+			// The window ending at the slot
+			double used = 0;
+			for ( long s = slot - slotsPerWindow; s <= slot; s++ ) used += getSlotPermits ( s );
+
+			// Move the window forward, until it has room
+			for ( long first = slot - slotsPerWindow; used + permits > maxPermits; first++ ) {
+				used -= getSlotPermits ( first );
+				slot++;
+			}
+
+			return Math.max ( time, slot * slotDuration );
+		}
+
+		private void record ( double permits, long time )
+		{
+			long slot = time / slotDuration;
+			int idx = (int) ( slot % slotPermits.length );
+			if ( slotIds [ idx ] != slot ) {
+				slotIds [ idx ] = slot;
+				slotPermits [ idx ] = 0;
+			}
+			slotPermits [ idx ] += permits;
+		}
+
+		private double getSlotPermits ( long slot )
+		{
+			if ( slot < 0 ) return 0;
+			int idx = (int) ( slot % slotPermits.length );
+			return slotIds [ idx ] == slot ? slotPermits [ idx ] : 0;
+		}
+
+		private double getRate ()
+		{
+			return maxPermits / duration * 1E9;
+		}
+	} // class Window
+
+
+	/**
+	 * @param slotsPerWindow the precision of the windows, see the class comment.
+	 */
+	public MultiWindowRateLimiter ( int slotsPerWindow )
+	{
+		Validate.isTrue ( slotsPerWindow > 0, "Invalid no. of slots for a multi-window rate limiter: %d", slotsPerWindow );
+		this.slotsPerWindow = slotsPerWindow;
+	}
+
+	/**
+	 * Uses 60 slots per window.
+	 */
+	public MultiWindowRateLimiter ()
+	{
+		this ( 60 );
+	}
+
+
+	/**
+	 * Adds a quota, ie, no more than maxPermits can be given away in any time window of the given duration.
+	 */
+	public synchronized MultiWindowRateLimiter addWindow ( double maxPermits, long duration, TimeUnit unit )
+	{
+		Validate.isTrue ( maxPermits > 0, "Invalid permits for a rate limit window: %s", maxPermits );
+		Validate.isTrue ( duration > 0, "Invalid duration for a rate limit window: %d", duration );
+
+		windows.add ( new Window ( maxPermits, unit.toNanos ( duration ) ) );
+		return this;
+	}
+
+
+	@Override
+	public long acquire ( double permits )
+	{
+		long waitNanos = reserve ( permits, Long.MAX_VALUE );
+		if ( waitNanos > 0 ) Uninterruptibles.sleepUninterruptibly ( waitNanos, TimeUnit.NANOSECONDS );
+		return waitNanos;
+	}
+
+	@Override
+	public boolean tryAcquire ( double permits, long timeout, TimeUnit timeUnit )
+	{
+		long waitNanos = reserve ( permits, timeUnit.toNanos ( timeout ) );
+		if ( waitNanos < 0 ) return false;
+		if ( waitNanos > 0 ) Uninterruptibles.sleepUninterruptibly ( waitNanos, TimeUnit.NANOSECONDS );
+		return true;
+	}
+
+	/**
+	 * Reserves the permits in all the windows, see {@link PermitLimiter#reserve(double, long)}.
+	 */
+	@Override
+	public synchronized long reserve ( double permits, long maxWaitNanos )
+	{
+		Validate.isTrue ( permits > 0, "Can't acquire %s permits", permits );
+		Validate.validState ( !windows.isEmpty (), "Multi-window rate limiter without any window" );
+
+		long now = System.nanoTime () - startTime;
+		long time = getEarliestTime ( permits, now );
+		long waitNanos = time - now;
+		if ( waitNanos > maxWaitNanos ) return -1;
+
+		for ( Window window: windows ) window.record ( permits, time );
+		lastReservationTime = time;
+		return waitNanos;
+	}
+
+	/**
+	 * The earliest time when all the windows can give away the permits. Since a window can only postpone
+	 * this time, and postponing it for one window can only make room in the others, this converges
+	 * quickly.
+	 */
+	private long getEarliestTime ( double permits, long now )
+	{
+		for ( Window window: windows )
+			Validate.isTrue ( permits <= window.maxPermits,
+				"Can't acquire %s permits from a rate limit window of %s permits", permits, window.maxPermits
+			);
+
+		long time = Math.max ( now, lastReservationTime );
+		for ( boolean isChanged = true; isChanged; )
+		{
+			isChanged = false;
+			for ( Window window: windows )
+			{
+				long windowTime = window.getEarliestTime ( permits, time );
+				if ( windowTime == time ) continue;
+				time = windowTime;
+				isChanged = true;
+			}
+		}
+		return time;
+	}
+
+	/**
+	 * The wait for one permit, or for the permits of the smallest window, if that has less than one permit.
+	 */
+	@Override
+	public synchronized long getWaitNanos ()
+	{
+		Validate.validState ( !windows.isEmpty (), "Multi-window rate limiter without any window" );
+
+		double permits = 1;
+		for ( Window window: windows ) permits = Math.min ( permits, window.maxPermits );
+
+		long now = System.nanoTime () - startTime;
+		return getEarliestTime ( permits, now ) - now;
+	}
+
+	/**
+	 * The long-term rate, ie, the one of the most restrictive window.
+	 */
+	@Override
+	public synchronized double getRate ()
+	{
+		return windows.stream ()
+			.mapToDouble ( Window::getRate )
+			.min ()
+			.orElse ( Double.NaN );
+	}
+
+	/**
+	 * Scales the permits of all the windows, so that {@link #getRate()} becomes the new rate.
+	 *
+	 * @throws IllegalArgumentException if the new rate would leave a window with less than one permit, which
+	 * couldn't serve any single-permit request.
+	 */
+	@Override
+	public synchronized void setRate ( double permitsPerSecond )
+	{
+		Validate.isTrue ( permitsPerSecond > 0, "Can't set a rate of %s", permitsPerSecond );
+		double factor = permitsPerSecond / getRate ();
+		for ( Window window: windows )
+			Validate.isTrue ( window.maxPermits * factor >= 1,
+				"Can't set a rate of %s permits/sec, since it would leave a window of %s ms with %s permits",
+				permitsPerSecond, window.duration / 1_000_000, window.maxPermits * factor
+			);
+		for ( Window window: windows ) window.maxPermits *= factor;
+	}
+
+	public int getSlotsPerWindow ()
+	{
+		return slotsPerWindow;
+	}
+}
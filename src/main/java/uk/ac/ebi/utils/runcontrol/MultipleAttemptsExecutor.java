@@ -1,12 +1,18 @@
 package uk.ac.ebi.utils.runcontrol;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import com.machinezoo.noexception.throwing.ThrowingRunnable;
 
 import uk.ac.ebi.utils.exceptions.ExceptionUtils;
 import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
 import uk.org.lidalia.slf4jext.Level;
 import uk.org.lidalia.slf4jext.Logger;
 import uk.org.lidalia.slf4jext.LoggerFactory;
@@ -26,8 +32,14 @@ public class MultipleAttemptsExecutor implements Executor
 	private long maxPauseTime = 3000;
 	private long minPauseTime = 0;
 	
+	private boolean isExponentialBackoff = false;
+	private RetryBudget retryBudget = null;
+	
 	private Class<Exception>[] interceptedExceptions;
 	
+	/** Package-visible for the subclasses reporting their own events */
+	final ExecutionListeners listeners = new ExecutionListeners ();
+	
 	private Level attemptMsgLogLevel = Level.INFO;
 	private Logger log = LoggerFactory.getLogger ( this.getClass () );
 	
@@ -74,50 +86,56 @@ public class MultipleAttemptsExecutor implements Executor
 	 * Tries to run the action and, if it fails with one of {@link #getInterceptedExceptions()}, re-run it up to 
 	 * {@link #getMaxAttempts()}. A pause with a random time between {@link #getMinPauseTime()} and {@link #getMaxPauseTime()}
 	 * is inserted between attempts, so that, in case of race conditions between parallel threads, they don't 
-	 * re-attempt the same conflicting operation at the same time.
+	 * re-attempt the same conflicting operation at the same time (see also {@link #isExponentialBackoff()}).
 	 * 
 	 * This version is based on the possibility that a checked exception occurs, use {@link #execute(Runnable)}
 	 * when you have only unchecked exceptions. 
+	 * 
+	 * The pause between attempts is done by sleeping the current thread. Use {@link #executeAsync(Callable, Executor)}
+	 * if you don't want to hold a thread while waiting.
+	 * 
+	 * If there is a {@link Deadline current deadline}, no attempt is started after it, and no re-attempt is 
+	 * made if the pause before it would exceed it.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive the attempts, the re-attempts, the 
+	 * re-attempts prevented by the deadline (as timeouts) and the call outcome.
 	 */
 	public void executeChecked ( ThrowingRunnable action ) throws Exception
 	{
+		long callStart = listeners.startCall ();
+		Throwable error = null;
+		try {
+			runAttempts ( action, callStart );
+		}
+		catch ( Throwable ex ) {
+			error = ex;
+			throw ex;
+		}
+		finally {
+			listeners.onOutcome ( this, callStart, error );
+		}
+	}
+	
+	private void runAttempts ( ThrowingRunnable action, long callStart ) throws Exception
+	{
+		Deadline.checkCurrent ( "running a multiple attempts operation" );
+		if ( this.retryBudget != null ) this.retryBudget.recordCall ();
+		
 		try
 		{
-			int attempts = 0; 
-			Exception lastInterceptedEx = null; 
-			
-			for ( attempts = this.maxAttempts; attempts > 0; attempts-- )
+			long pause = 0;
+			for ( int attempt = 1; ; attempt++ )
 			{
+				if ( callStart != ExecutionListeners.NOT_LISTENED ) listeners.onAttempt ( this, attempt );
 				try {
 					action.run ();
-					break;
+					return;
 				}
 				catch ( Exception ex ) 
 				{
-					boolean mustReattempt = false;
-					lastInterceptedEx = ex;
-					
-					for ( Class<Exception> exi: interceptedExceptions )
-					{
-						if ( exi.isAssignableFrom ( ex.getClass () ) ) 
-						{
-							log.log ( attemptMsgLogLevel,
-								"Operation failure due to: {}, re-attempting for {} more time(s)", ex.getMessage (), attempts - 1
-							);
-					
-							mustReattempt = true;
-							break;
-						}
-					}
-					if ( !mustReattempt )
-						throw ex;
-
-					// Let's pause
-					if ( this.maxPauseTime - this.minPauseTime > 0 )
-						Thread.sleep ( ThreadLocalRandom.current ().nextLong ( 
-							this.minPauseTime, this.maxPauseTime + 1 
-					));
-					
+					pause = retryPause ( ex, attempt, pause, callStart );
+					if ( pause < 0 ) throw ex;
+					if ( pause > 0 ) Thread.sleep ( pause );
 				} // catch attempt
 				catch ( Throwable ex ) {
 					ExceptionUtils.throwEx ( Exception.class, ex, 
@@ -125,17 +143,158 @@ public class MultipleAttemptsExecutor implements Executor
 					);
 				}
 			} // attempts
-			
-			if ( attempts == 0 && lastInterceptedEx != null ) {
-				log.error ( "Operation failed after {} attempts, rethrowing exception", this.maxAttempts );
-				throw lastInterceptedEx;
-			}
-		
 		} // outer try
 		catch ( InterruptedException ex ) {
 			throw new UncheckedInterruptedException ( "Internal error: " + ex.getMessage (), ex );
 		}
-	} // execute ( action )
+	} // runAttempts ()
+
+	/**
+	 * <p>An asynchronous version of {@link #executeChecked(ThrowingRunnable)}, which runs the attempts
+	 * via the attemptExecutor and schedules the re-attempts after the pause, without holding any thread
+	 * in the meantime.</p>
+	 * 
+	 * <p>The returned future is completed with the action's result, or with the last exception if the 
+	 * attempts are exhausted or a non-intercepted exception occurs. If you cancel it, no further
+	 * attempt is made.</p> 
+	 * 
+	 * <p>The {@link Deadline current deadline}, if any, is honoured like in the synchronous version and
+	 * it's propagated to the attempt threads.</p>
+	 */
+	public <T> CompletableFuture<T> executeAsync ( Callable<T> action, Executor attemptExecutor )
+	{
+		try {
+			Deadline.checkCurrent ( "running a multiple attempts operation" );
+		}
+		catch ( DeadlineExceededException ex ) {
+			return CompletableFuture.failedFuture ( ex );
+		}
+		if ( this.retryBudget != null ) this.retryBudget.recordCall ();
+
+		CompletableFuture<T> result = new CompletableFuture<> ();
+		long callStart = listeners.startCall ();
+		if ( callStart != ExecutionListeners.NOT_LISTENED )
+			result.whenComplete ( ( v, ex ) -> listeners.onOutcome ( this, callStart, ex ) );
+
+		scheduleAttempt ( action, attemptExecutor, result, 1, 0, callStart );
+		return result;
+	}
+
+	/**
+	 * Uses the {@link ForkJoinPool#commonPool() default executor} of {@link CompletableFuture}. Beware that this
+	 * isn't suitable for blocking operations.
+	 */
+	public <T> CompletableFuture<T> executeAsync ( Callable<T> action )
+	{
+		return executeAsync ( action, ForkJoinPool.commonPool () );
+	}
+	
+	private <T> void scheduleAttempt ( 
+		Callable<T> action, Executor attemptExecutor, CompletableFuture<T> result, int attempt, long pause, 
+		long callStart
+	)
+	{
+		Executor scheduler = pause > 0 
+			? CompletableFuture.delayedExecutor ( pause, TimeUnit.MILLISECONDS, attemptExecutor )
+			: attemptExecutor;
+		
+		try 
+		{
+			scheduler.execute ( Deadline.propagate ( () -> 
+			{
+				if ( result.isDone () ) return;
+				if ( callStart != ExecutionListeners.NOT_LISTENED ) listeners.onAttempt ( this, attempt );
+				try {
+					result.complete ( action.call () );
+				}
+				catch ( Throwable ex ) 
+				{
+					long nextPause = retryPause ( ex, attempt, pause, callStart );
+					if ( nextPause < 0 ) result.completeExceptionally ( ex );
+					else scheduleAttempt ( action, attemptExecutor, result, attempt + 1, nextPause, callStart );
+				}
+			}));
+		}
+		catch ( RejectedExecutionException ex ) {
+			result.completeExceptionally ( ex );
+		}
+	}
+
+	/**
+	 * Decides what to do after an attempt has failed, without reporting anything to the listeners. This is
+	 * public for the clients that run the attempts on their own, eg, asynchronous clients, so that they can 
+	 * share the same re-attempt policy, including the {@link #getRetryBudget() retry budget}.
+	 * 
+	 * @return the pause before the next attempt, or -1 if the operation must not be re-attempted, either
+	 * because the exception isn't among {@link #getInterceptedExceptions()}, or the attempts are over, or 
+	 * the {@link #getRetryBudget() retry budget} is exhausted, or the pause would exceed the 
+	 * {@link Deadline current deadline}.
+	 */
+	public long getRetryPause ( Throwable ex, int attempt, long lastPause )
+	{
+		return retryPause ( ex, attempt, lastPause, ExecutionListeners.NOT_LISTENED );
+	}
+	
+	/**
+	 * The implementation of {@link #getRetryPause(Throwable, int, long)}, which also reports the re-attempts
+	 * and the timeouts to the listeners, if callStart isn't {@link ExecutionListeners#NOT_LISTENED}. 
+	 */
+	long retryPause ( Throwable ex, int attempt, long lastPause, long callStart )
+	{
+		if ( !isIntercepted ( ex ) ) return -1;
+
+		if ( attempt >= this.maxAttempts ) {
+			log.error ( "Operation failed after {} attempts, rethrowing exception", this.maxAttempts );
+			return -1;
+		}
+		
+		boolean isListened = callStart != ExecutionListeners.NOT_LISTENED;
+		
+		long pause = getNextPause ( lastPause );
+		if ( TimeUnit.MILLISECONDS.toNanos ( pause ) >= Deadline.currentRemainingNanos () ) 
+		{
+			log.error ( "Operation failed and a new attempt would exceed the deadline, rethrowing exception" );
+			if ( isListened ) listeners.onTimeout ( this, ExecutionListeners.elapsed ( callStart ) );
+			return -1;
+		}
+
+		if ( this.retryBudget != null && !this.retryBudget.tryRetry () ) {
+			log.error ( "Operation failed and the retry budget is exhausted, rethrowing exception" );
+			return -1;
+		}
+		
+		log.log ( attemptMsgLogLevel,
+			"Operation failure due to: {}, re-attempting for {} more time(s)", ex.getMessage (), this.maxAttempts - attempt
+		);
+		if ( isListened ) listeners.onRetry ( this, attempt, TimeUnit.MILLISECONDS.toNanos ( pause ), ex );
+		
+		return pause;
+	}
+	
+	protected boolean isIntercepted ( Throwable ex )
+	{
+		for ( Class<Exception> exi: interceptedExceptions )
+			if ( exi.isAssignableFrom ( ex.getClass () ) ) return true;
+		return false;
+	}
+	
+	/**
+	 * The pause before the next attempt, based on {@link #isExponentialBackoff()}.
+	 */
+	private long getNextPause ( long lastPause )
+	{
+		ThreadLocalRandom rnd = ThreadLocalRandom.current ();
+		
+		if ( !this.isExponentialBackoff ) 
+			return this.maxPauseTime - this.minPauseTime > 0 
+				? rnd.nextLong ( this.minPauseTime, this.maxPauseTime + 1 ) 
+				: 0;
+		
+		// Decorrelated jitter
+		long base = Math.max ( this.minPauseTime, 1 );
+		long upper = Math.max ( base, 3 * Math.max ( lastPause, base ) );
+		return Math.min ( this.maxPauseTime, rnd.nextLong ( base, upper + 1 ) );
+	}
 
 	/**
 	 * If the operation run by {@link #execute(Runnable)} fails even after this number of times, the exception it 
@@ -216,5 +375,53 @@ public class MultipleAttemptsExecutor implements Executor
 	{
 		this.attemptMsgLogLevel = attemptMsgLogLevel;
 	}
-	
+
+	/**
+	 * If true, the pause between attempts grows exponentially, using the decorrelated jitter approach: 
+	 * each pause is a random time between {@link #getMinPauseTime()} and three times the previous pause,
+	 * capped by {@link #getMaxPauseTime()}. This spreads the re-attempts of concurrent clients better 
+	 * than a fixed random range. In this mode, the min pause is considered as at least 1ms.
+	 * 
+	 * Default is false, which means the pause is random between min and max pause time.
+	 */
+	public boolean isExponentialBackoff ()
+	{
+		return isExponentialBackoff;
+	}
+
+	public void setExponentialBackoff ( boolean isExponentialBackoff )
+	{
+		this.isExponentialBackoff = isExponentialBackoff;
+	}
+
+	/**
+	 * If set, re-attempts are done only if they're allowed by this budget, which can be shared with other
+	 * executors. Default is null, ie, no budget, every failed call is re-attempted up to 
+	 * {@link #getMaxAttempts()}.
+	 */
+	public RetryBudget getRetryBudget ()
+	{
+		return retryBudget;
+	}
+
+	public void setRetryBudget ( RetryBudget retryBudget )
+	{
+		this.retryBudget = retryBudget;
+	}
+
+	/**
+	 * Registers a listener of this executor's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	/**
+	 * @return true if the listener was registered.
+	 */
+	public boolean removeListener ( ExecutionListener listener )
+	{
+		return listeners.remove ( listener );
+	}
 }
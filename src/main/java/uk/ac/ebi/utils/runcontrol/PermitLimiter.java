@@ -0,0 +1,52 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The abstraction of a rate limiter, ie, something that hands out permits at a given rate
+ * and makes the invokers wait when they ask for permits too fast.
+ *
+ * This is what {@link RateLimitedExecutor} is based on, when it's shared (see {@link RateLimiterRegistry}).
+ * The permits are doubles, so that the clients sharing the same limiter can have calls of different costs.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public interface PermitLimiter
+{
+	/**
+	 * Gets the permits, waiting for as long as necessary.
+	 *
+	 * @return the time spent waiting, in ns.
+	 */
+	long acquire ( double permits );
+
+	/**
+	 * Gets the permits only if this can be done within the timeout, in which case it waits for
+	 * the necessary time. If the timeout isn't enough, returns false immediately, without waiting.
+	 */
+	boolean tryAcquire ( double permits, long timeout, TimeUnit timeUnit );
+
+	/**
+	 * Reserves the permits, if they're available within maxWaitNanos, without waiting. This is for the 
+	 * asynchronous clients, which can wait for the returned time without holding a thread.
+	 *
+	 * @return the time the caller has to wait before using the reserved permits, in ns, or -1 if that would
+	 * be more than maxWaitNanos, in which case nothing is reserved.
+	 */
+	long reserve ( double permits, long maxWaitNanos );
+
+	/**
+	 * How long a new request of permits would have to wait, if issued now, in ns.
+	 * 0 means permits are available straight away.
+	 */
+	long getWaitNanos ();
+
+	/**
+	 * The rate at which permits are made available, in permits/second.
+	 */
+	double getRate ();
+
+	void setRate ( double permitsPerSecond );
+}
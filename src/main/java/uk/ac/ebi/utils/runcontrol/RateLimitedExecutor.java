@@ -1,11 +1,17 @@
 package uk.ac.ebi.utils.runcontrol;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
 
 import com.google.common.util.concurrent.RateLimiter;
 
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
 /**
- * A rate limiting executor, based on {@link RateLimiter}.
+ * A rate limiting executor, based on {@link RateLimiter} or, if a limiter is passed to the constructor, on a
+ * {@link PermitLimiter}, which can be shared with other executors.
  *
  * @author brandizi
  * <dl><dt>Date:</dt><dd>5 Oct 2015</dd></dl>
@@ -13,39 +19,165 @@ import com.google.common.util.concurrent.RateLimiter;
  */
 public class RateLimitedExecutor implements Executor
 {
+	/**
+	 * The limiter used when the executor is created with a rate, null when it's created with a {@link PermitLimiter}.
+	 */
 	protected RateLimiter rateLimiter = null;
-	
+	private final PermitLimiter permitLimiter;
+	private final double permitsPerCall;
+	private final ExecutionListeners listeners = new ExecutionListeners ();
+
 	/**
 	 * @see #getRate()
 	 */
-	public RateLimitedExecutor ( double requestsPerSecond ) {
+	public RateLimitedExecutor ( double requestsPerSecond ) 
+	{
 		this.rateLimiter = RateLimiter.create ( requestsPerSecond );
+		this.permitLimiter = null;
+		this.permitsPerCall = 1;
+	}
+
+	/**
+	 * Uses an existing limiter, which might be shared with other executors, typically via
+	 * {@link RateLimiterRegistry}.
+	 *
+	 * @param permitsPerCall how many permits each execution takes from the limiter, ie, the cost of a call.
+	 * When the limiter is shared, an executor taking 2 permits/call can do half the calls of one taking 
+	 * 1 permit/call, at the same rate. This alone isn't a fairness weight, to get a share of the limiter 
+	 * proportional to a weight, use a {@link WeightedFairLimiter.Share} (see 
+	 * {@link RateLimiterRegistry#newExecutor(String, double, double)}).
+	 */
+	public RateLimitedExecutor ( PermitLimiter permitLimiter, double permitsPerCall )
+	{
+		Validate.notNull ( permitLimiter, "Can't use a null permit limiter" );
+		Validate.isTrue ( permitsPerCall > 0, "Can't use %s permits per call", permitsPerCall );
+		this.permitLimiter = permitLimiter;
+		this.permitsPerCall = permitsPerCall;
+	}
+
+	/**
+	 * Takes one permit per call.
+	 */
+	public RateLimitedExecutor ( PermitLimiter permitLimiter ) {
+		this ( permitLimiter, 1 );
 	}
 
 	/**
-	 * Controls the execution of the action in such a way that it is run at no more than {@link #getRate()} speed within 
+	 * Controls the execution of the action in such a way that it is run at no more than {@link #getRate()} speed within
 	 * a given JVM. This is useful when you have a service that is hurt if hammered too fast.
+	 * 
+	 * If there is a {@link Deadline current deadline}, waits for a permit only if it's available before the 
+	 * deadline, else fails immediately with {@link DeadlineExceededException}.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive the permit wait and the call outcome. 
 	 */
 	public void execute ( Runnable action )
 	{
-		this.rateLimiter.acquire ();
-		action.run ();
+		long callStart = listeners.startCall ();
+		Throwable error = null;
+		try {
+			acquirePermits ( callStart );
+			action.run ();
+		}
+		catch ( Throwable ex ) {
+			error = ex;
+			throw ex;
+		}
+		finally {
+			listeners.onOutcome ( this, callStart, error );
+		}
+	}
+
+	private void acquirePermits ( long callStart )
+	{
+		boolean isListened = callStart != ExecutionListeners.NOT_LISTENED;
+		
+		long deadlineNanos = Deadline.currentRemainingNanos ();
+		if ( deadlineNanos == Long.MAX_VALUE ) 
+		{
+			long waitNanos = permitLimiter != null 
+				? permitLimiter.acquire ( permitsPerCall ) 
+				: (long) ( this.rateLimiter.acquire () * 1E9 );
+			if ( isListened ) listeners.onPermitWait ( this, permitsPerCall, waitNanos );
+			return;
+		}
+		
+		long waitStart = isListened ? System.nanoTime () : 0;
+		if ( deadlineNanos <= 0 || !tryAcquirePermits ( deadlineNanos ) )
+		{
+			if ( isListened ) listeners.onTimeout ( this, ExecutionListeners.elapsed ( callStart ) );
+			throw new DeadlineExceededException ( deadlineNanos <= 0 
+				? "Deadline exceeded before waiting for the rate limiter"
+				: "The wait for the rate limiter would exceed the current deadline" 
+			);
+		}
+		if ( isListened ) listeners.onPermitWait ( this, permitsPerCall, System.nanoTime () - waitStart );
 	}
-	
+
+	private boolean tryAcquirePermits ( long timeoutNanos )
+	{
+		return permitLimiter != null
+			? permitLimiter.tryAcquire ( permitsPerCall, timeoutNanos, TimeUnit.NANOSECONDS )
+			: this.rateLimiter.tryAcquire ( timeoutNanos, TimeUnit.NANOSECONDS );
+	}
+
 	/**
-	 * The maximum speed allowed by this executor, in actions received per second.
-	 * 0 means no limit is applied. 
+	 * The maximum speed allowed by this executor, in actions received per second. If the limiter is shared,
+	 * this is the rate of the limiter, ie, the rate of all the executors sharing it.
 	 */
 	public double getRate () {
-		return this.rateLimiter.getRate ();
+		return permitLimiter != null ? permitLimiter.getRate () : this.rateLimiter.getRate ();
+	}
+
+	/**
+	 * Note that the new actual rate might be slightly different than the passed parameters, depends on how
+	 * the {@link RateLimiter} or {@link PermitLimiter} is implemented. Also, if the limiter is shared, the new 
+	 * rate affects all the executors sharing it.
+	 */
+	public void setRate ( double requestsPerSecond )
+	{
+		if ( permitLimiter != null ) permitLimiter.setRate ( requestsPerSecond );
+		else this.rateLimiter.setRate ( requestsPerSecond );
+	}
+
+	/**
+	 * @see #RateLimitedExecutor(PermitLimiter, double)
+	 */
+	public double getPermitsPerCall ()
+	{
+		return permitsPerCall;
+	}
+
+	/**
+	 * The Guava limiter, null if the executor was created with a {@link #getPermitLimiter() permit limiter}.
+	 */
+	public RateLimiter getRateLimiter ()
+	{
+		return rateLimiter;
+	}
+
+	/**
+	 * The limiter passed to the constructor, null if the executor was created with a rate, in which case 
+	 * it's based on {@link #rateLimiter}.
+	 */
+	public PermitLimiter getPermitLimiter ()
+	{
+		return permitLimiter;
 	}
-	
+
+	/**
+	 * Registers a listener of this executor's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
 	/**
-	 * Note that the new actual rate might be slightly different than the passed parameters, depends on how 
-	 * {@link RateLimiter} is implemented. 
+	 * @return true if the listener was registered.
 	 */
-	public void setRate ( double requestsPerSecond ) 
+	public boolean removeListener ( ExecutionListener listener )
 	{
-		this.rateLimiter.setRate ( requestsPerSecond );
+		return listeners.remove ( listener );
 	}
 }
@@ -0,0 +1,192 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import uk.ac.ebi.utils.exceptions.ExceptionUtils;
+
+/**
+ * <p>A registry of named {@link PermitLimiter rate limiters}, which allows for sharing the same
+ * limit between multiple {@link RateLimitedExecutor}s.</p>
+ *
+ * <p>This is useful when you have multiple pipelines hitting the same service, eg, the same upstream
+ * web API, and you want that their overall speed doesn't go beyond a rate, instead of each having its
+ * own independent limit. For instance:</p>
+ *
+ * <pre>
+ *   TokenBucket bucket = RateLimiterRegistry.getDefault ().getTokenBucket ( "ncbi", 10 );
+ *   Executor exec1 = new RateLimitedExecutor ( bucket );
+ *   // Each call of this costs twice the ones of exec1, ie, at the same rate, it does half the calls
+ *   Executor exec2 = new RateLimitedExecutor ( bucket, 2 );
+ *   // When all are busy, this gets 3 times the permits of exec4 
+ *   Executor exec3 = RateLimiterRegistry.getDefault ().newExecutor ( "ncbi", 1, 3 );
+ *   Executor exec4 = RateLimiterRegistry.getDefault ().newExecutor ( "ncbi", 1, 1 );
+ * </pre>
+ *
+ * <p>As shown above, the clients sharing a limiter can take a different number of permits per call, ie,
+ * their calls can have different costs. That alone isn't a fairness weight: the clients using the limiter
+ * directly get the permits in the order they ask for them, so a client calling more often gets a bigger
+ * share. If you want a share of the rate for each client, use a weight, which makes the client go through a
+ * {@link WeightedFairLimiter} that the registry keeps for the limiter: the clients with a weight that keep 
+ * asking for permits get them in proportion to their weights, while the rate that an idle client doesn't 
+ * use goes to the others.</p>
+ *
+ * <p>The limiters are created on the first request and the following requests for the same name get the
+ * same instance, independently on the parameters they pass.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class RateLimiterRegistry
+{
+	private static final RateLimiterRegistry DEFAULT_INSTANCE = new RateLimiterRegistry ();
+
+	private final ConcurrentMap<String, PermitLimiter> limiters = new ConcurrentHashMap<> ();
+	private final ConcurrentMap<String, WeightedFairLimiter> fairLimiters = new ConcurrentHashMap<> ();
+
+	/**
+	 * A JVM-wide instance. You can also create your own instances, if you need separated namespaces.
+	 */
+	public static RateLimiterRegistry getDefault ()
+	{
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Gets the limiter for the name, creating it via the supplier if it doesn't exist yet.
+	 *
+	 * @throws IllegalArgumentException if the existing limiter isn't an instance of the requested type.
+	 */
+	public <L extends PermitLimiter> L getLimiter ( String name, Class<L> limiterType, Supplier<L> limiterSupplier )
+	{
+		PermitLimiter result = limiters.computeIfAbsent ( name, n -> limiterSupplier.get () );
+		if ( !limiterType.isInstance ( result ) ) ExceptionUtils.throwEx ( IllegalArgumentException.class,
+			"The rate limiter \"%s\" is a %s, not a %s",
+			name, result.getClass ().getSimpleName (), limiterType.getSimpleName ()
+		);
+		return limiterType.cast ( result );
+	}
+
+	/**
+	 * Gets a limiter previously created, or null, if there isn't any with this name.
+	 */
+	public PermitLimiter getLimiter ( String name )
+	{
+		return limiters.get ( name );
+	}
+
+	/**
+	 * Gets an in-JVM {@link TokenBucket}, creating it if it doesn't exist yet.
+	 */
+	public TokenBucket getTokenBucket ( String name, double permitsPerSecond, double burstCapacity )
+	{
+		return getLimiter ( name, TokenBucket.class, () -> new TokenBucket ( permitsPerSecond, burstCapacity ) );
+	}
+
+	/**
+	 * Uses one second worth of permits as burst capacity.
+	 */
+	public TokenBucket getTokenBucket ( String name, double permitsPerSecond )
+	{
+		return getTokenBucket ( name, permitsPerSecond, 0 );
+	}
+
+	/**
+	 * Gets a {@link MappedTokenBucket}, which can be used to share a rate limit with other processes
+	 * on the same host, creating it if it doesn't exist yet.
+	 */
+	public MappedTokenBucket getMappedTokenBucket (
+		String name, Path path, double permitsPerSecond, double burstCapacity
+	)
+	{
+		return getLimiter (
+			name, MappedTokenBucket.class, () -> new MappedTokenBucket ( path, permitsPerSecond, burstCapacity )
+		);
+	}
+
+	/**
+	 * Uses one second worth of permits as burst capacity.
+	 */
+	public MappedTokenBucket getMappedTokenBucket ( String name, Path path, double permitsPerSecond )
+	{
+		return getMappedTokenBucket ( name, path, permitsPerSecond, 0 );
+	}
+
+	/**
+	 * A shortcut to create an executor that uses the named limiter, which must exist already.
+	 *
+	 * @see RateLimitedExecutor#RateLimitedExecutor(PermitLimiter, double)
+	 * @throws IllegalArgumentException if the limiter doesn't exist.
+	 */
+	public RateLimitedExecutor newExecutor ( String name, double permitsPerCall )
+	{
+		return new RateLimitedExecutor ( getExistingLimiter ( name ), permitsPerCall );
+	}
+
+	/**
+	 * Creates an executor that gets a share of the named limiter, which must exist already, proportional 
+	 * to the weight.
+	 *
+	 * @see #getShare(String, double)
+	 * @throws IllegalArgumentException if the limiter doesn't exist.
+	 */
+	public RateLimitedExecutor newExecutor ( String name, double permitsPerCall, double weight )
+	{
+		return new RateLimitedExecutor ( getShare ( name, weight ), permitsPerCall );
+	}
+
+	/**
+	 * Takes one permit per call.
+	 */
+	public RateLimitedExecutor newExecutor ( String name )
+	{
+		return newExecutor ( name, 1 );
+	}
+
+	/**
+	 * A new client of the named limiter, which must exist already. All the shares of the same limiter
+	 * go through the same {@link WeightedFairLimiter}, so, when they're all busy, each gets a part of the
+	 * rate that is proportional to its weight.
+	 *
+	 * @throws IllegalArgumentException if the limiter doesn't exist.
+	 */
+	public WeightedFairLimiter.Share getShare ( String name, double weight )
+	{
+		PermitLimiter limiter = getExistingLimiter ( name );
+		WeightedFairLimiter fairLimiter = fairLimiters.compute ( 
+			name, 
+			// if the limiter was replaced after a remove(), start a new queue
+			( n, fl ) -> fl != null && fl.getLimiter () == limiter ? fl : new WeightedFairLimiter ( limiter ) 
+		);
+		return fairLimiter.newShare ( weight );
+	}
+
+	private PermitLimiter getExistingLimiter ( String name )
+	{
+		PermitLimiter result = getLimiter ( name );
+		if ( result == null ) ExceptionUtils.throwEx ( IllegalArgumentException.class,
+			"Can't create a rate limited executor for the non-existing limiter \"%s\"", name
+		);
+		return result;
+	}
+
+	/**
+	 * Removes the limiter from the registry. The executors that are already using it will keep doing so.
+	 * The removed limiter is returned, so that you can dispose it, if necessary (eg,
+	 * {@link MappedTokenBucket#close()}).
+	 */
+	public PermitLimiter remove ( String name )
+	{
+		fairLimiters.remove ( name );
+		return limiters.remove ( name );
+	}
+
+	public Set<String> getNames ()
+	{
+		return limiters.keySet ();
+	}
+}
@@ -0,0 +1,117 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static java.lang.Math.min;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>A retry budget, to cap the number of re-attempts that clients like {@link MultipleAttemptsExecutor} can
+ * make across multiple calls.</p>
+ *
+ * <p>This is a token bucket: each new call {@link #recordCall() deposits} {@link #getRetryRatio()}
+ * tokens, up to {@link #getMaxBalance()}, and each retry takes one token. So, retries can't be more than
+ * that fraction of the recent calls. When the budget is empty, a minimum of retries per second is still
+ * allowed, so that sporadic failures in low-traffic periods can still be recovered.</p>
+ *
+ * <p>The point of this is avoiding retry storms: when a service is down, all the clients re-attempting
+ * their calls multiply the load on it, making its recovery harder. An instance of this class can be shared
+ * between multiple executors, to have a global budget.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class RetryBudget
+{
+	private final double retryRatio;
+	private final double maxBalance;
+	private final TokenBucket minRetriesBucket;
+
+	private double balance = 0;
+
+	/**
+	 * @param retryRatio the fraction of calls that can be re-attempted, eg, 0.1 = 10%.
+	 * @param minRetriesPerSecond retries allowed anyway, even when the budget is empty. If it's 0, no
+	 *        retry is allowed when the budget is empty.
+	 * @param maxBalance the max no. of tokens that can be accumulated, ie, the max number of retries
+	 *        that can happen in a burst.
+	 * @param initialBalance the tokens available at the start, so that the first calls can be re-attempted
+	 *        before the budget is filled by {@link #recordCall()}.
+	 */
+	public RetryBudget ( double retryRatio, double minRetriesPerSecond, double maxBalance, double initialBalance )
+	{
+		Validate.isTrue ( retryRatio >= 0, "Can't use a retry ratio of %s", retryRatio );
+		Validate.isTrue ( minRetriesPerSecond >= 0, "Can't use %s min retries per second", minRetriesPerSecond );
+		Validate.isTrue ( maxBalance >= 0, "Can't use a retry max balance of %s", maxBalance );
+		Validate.isTrue (
+			initialBalance >= 0 && initialBalance <= maxBalance,
+			"Can't use a retry initial balance of %s with a max balance of %s", initialBalance, maxBalance
+		);
+
+		this.retryRatio = retryRatio;
+		this.maxBalance = maxBalance;
+		this.balance = initialBalance;
+		this.minRetriesBucket = minRetriesPerSecond == 0 ? null : new TokenBucket ( minRetriesPerSecond );
+	}
+
+	/**
+	 * Starts with an empty budget.
+	 */
+	public RetryBudget ( double retryRatio, double minRetriesPerSecond, double maxBalance )
+	{
+		this ( retryRatio, minRetriesPerSecond, maxBalance, 0 );
+	}
+
+	/**
+	 * Defaults to a max balance of 100 retries.
+	 */
+	public RetryBudget ( double retryRatio, double minRetriesPerSecond )
+	{
+		this ( retryRatio, minRetriesPerSecond, 100 );
+	}
+
+	/**
+	 * To be invoked upon a new call (not a retry), adds {@link #getRetryRatio()} to the balance.
+	 */
+	public synchronized void recordCall ()
+	{
+		balance = min ( maxBalance, balance + retryRatio );
+	}
+
+	/**
+	 * To be invoked before a retry.
+	 *
+	 * @return true if the retry can happen, in which case, it's taken from the budget.
+	 */
+	public boolean tryRetry ()
+	{
+		synchronized ( this )
+		{
+			if ( balance >= 1 ) {
+				balance--;
+				return true;
+			}
+		}
+		return minRetriesBucket != null && minRetriesBucket.tryAcquire ( 1, 0, TimeUnit.NANOSECONDS );
+	}
+
+	/**
+	 * The retries currently available, not counting the minimum retries.
+	 */
+	public synchronized double getBalance ()
+	{
+		return balance;
+	}
+
+	public double getRetryRatio ()
+	{
+		return retryRatio;
+	}
+
+	public double getMaxBalance ()
+	{
+		return maxBalance;
+	}
+}
@@ -0,0 +1,271 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.Validate;
+
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+import uk.ac.ebi.utils.threading.HashedWheelTimer;
+
+/**
+ * <p>An executor that coalesces concurrent calls for the same key (aka, single-flight): when a call for a key
+ * arrives while another call for the same key is in flight, the new call doesn't run its own loader, but it
+ * waits for the running one and gets its result (or its exception). This is useful when many threads ask
+ * for the same expensive resource at the same time, eg, an ontology term or a record from a remote API.</p>
+ *
+ * <p>Optionally, a successful result can be kept for a short {@link #getTtl() time to live} after its
+ * completion, so that calls arriving shortly after get it too. This isn't meant to be a general purpose cache,
+ * use something like Guava's caches for that. Failures are never kept.</p>
+ *
+ * <p>The in-flight calls are kept in striped concurrent maps, to reduce the contention on a single map.</p>
+ *
+ * <p>Waiting for an in-flight call honours the {@link Deadline current deadline}.</p>
+ *
+ * @param <K> the type of the keys identifying the calls.
+ * @param <V> the type of the call results.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SingleFlightExecutor<K, V>
+{
+	/**
+	 * Lazily initialised, used for the TTL expirations.
+	 */
+	private static class TimerHolder {
+		private static final HashedWheelTimer TIMER = new HashedWheelTimer ( "SingleFlightExecutor-Timer" );
+	}
+
+	private final ConcurrentHashMap<K, Flight<V>>[] stripes;
+	private final int stripeMask;
+	private final long ttl;
+
+	/**
+	 * A call in flight, or recently completed, if there is a TTL.
+	 */
+	private static class Flight<V>
+	{
+		private final CompletableFuture<V> result = new CompletableFuture<> ();
+
+		/**
+		 * In {@link System#nanoTime()} terms, it's set upon completion.
+		 */
+		private volatile long expiresAt;
+		private volatile boolean isLanded = false;
+
+		private boolean isExpired ()
+		{
+			return isLanded && System.nanoTime () - expiresAt >= 0;
+		}
+	}
+
+
+	/**
+	 * @param ttlMs how long a successful result is kept after its completion. If it's 0, results are shared only
+	 *        between calls that overlap in time.
+	 * @param stripes the number of maps the calls are split into, rounded up to a power of 2.
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public SingleFlightExecutor ( long ttlMs, int stripes )
+	{
+		Validate.isTrue ( ttlMs >= 0, "Invalid TTL for a single-flight executor: %d", ttlMs );
+		Validate.isTrue ( stripes > 0 && stripes <= 1 << 16, "Invalid no. of stripes for a single-flight executor: %d", stripes );
+
+		int n = 1;
+		while ( n < stripes ) n <<= 1;
+		this.stripes = new ConcurrentHashMap [ n ];
+		for ( int i = 0; i < n; i++ ) this.stripes [ i ] = new ConcurrentHashMap<> ();
+		this.stripeMask = n - 1;
+		this.ttl = ttlMs;
+	}
+
+	/**
+	 * Defaults to a no. of stripes based on the available processors.
+	 */
+	public SingleFlightExecutor ( long ttlMs )
+	{
+		this ( ttlMs, Runtime.getRuntime ().availableProcessors () * 2 );
+	}
+
+	/**
+	 * No TTL.
+	 */
+	public SingleFlightExecutor ()
+	{
+		this ( 0 );
+	}
+
+
+	/**
+	 * Runs the loader in the current thread, unless there is already a call for the same key, in which case
+	 * waits for its result.
+	 *
+	 * @throws Exception the exception thrown by the loader, either the current one or the in-flight one.
+	 * @throws DeadlineExceededException if the {@link Deadline current deadline} passes while waiting for
+	 *         the in-flight call.
+	 */
+	public V execute ( K key, Callable<V> loader ) throws Exception
+	{
+		Deadline.checkCurrent ( "running a single-flight call" );
+
+		Flight<V> newFlight = new Flight<> ();
+		Flight<V> flight = join ( key, newFlight );
+		if ( flight != newFlight ) return await ( flight );
+
+		V value;
+		try {
+			value = loader.call ();
+		}
+		catch ( Throwable ex )
+		{
+			land ( key, flight, null, ex );
+			throw ex;
+		}
+		land ( key, flight, value, null );
+		return value;
+	}
+
+	/**
+	 * Like {@link #execute(Object, Callable)}, but for loaders that are asynchronous already. The loader is
+	 * invoked only if there isn't an in-flight call for the key, else the returned future is completed with the
+	 * in-flight result.
+	 *
+	 * Cancelling the returned future doesn't affect other callers sharing the same call.
+	 */
+	public CompletableFuture<V> executeAsync ( K key, Supplier<? extends CompletableFuture<V>> loader )
+	{
+		Flight<V> newFlight = new Flight<> ();
+		Flight<V> flight = join ( key, newFlight );
+		if ( flight == newFlight )
+		{
+			try {
+				loader.get ().whenComplete ( ( v, ex ) -> land ( key, flight, v, ex ) );
+			}
+			catch ( Throwable ex ) {
+				land ( key, flight, null, ex );
+			}
+		}
+		return flight.result.copy ();
+	}
+
+	/**
+	 * Runs the loader asynchronously, via the executor, if there isn't an in-flight call for the key.
+	 */
+	public CompletableFuture<V> executeAsync ( K key, Callable<V> loader, Executor executor )
+	{
+		return executeAsync ( key, () -> CompletableFuture.supplyAsync ( () ->
+		{
+			try {
+				return loader.call ();
+			}
+			catch ( RuntimeException ex ) {
+				throw ex;
+			}
+			catch ( Exception ex ) {
+				throw new CompletionException ( ex );
+			}
+		}, executor ));
+	}
+
+
+	/**
+	 * @return the in-flight call for the key if there is one, else newFlight, which is registered for the key.
+	 */
+	private Flight<V> join ( K key, Flight<V> newFlight )
+	{
+		ConcurrentHashMap<K, Flight<V>> stripe = getStripe ( key );
+		for ( ;; )
+		{
+			Flight<V> flight = stripe.get ( key );
+			if ( flight != null && !flight.isExpired () ) return flight;
+
+			boolean isRegistered = flight == null
+				? stripe.putIfAbsent ( key, newFlight ) == null
+				: stripe.replace ( key, flight, newFlight );
+			if ( isRegistered ) return newFlight;
+		}
+	}
+
+	/**
+	 * Completes the call, making the result available to the waiting callers and to the next ones, if there is
+	 * a TTL. Failures are removed straight away.
+	 */
+	private void land ( K key, Flight<V> flight, V value, Throwable error )
+	{
+		if ( error instanceof CompletionException && error.getCause () != null ) error = error.getCause ();
+
+		long actualTtl = error == null ? ttl : 0;
+		flight.expiresAt = System.nanoTime () + TimeUnit.MILLISECONDS.toNanos ( actualTtl );
+		flight.isLanded = true;
+
+		// Complete before removing, so that the callers arriving meanwhile can still get the result
+		if ( error == null ) flight.result.complete ( value );
+		else flight.result.completeExceptionally ( error );
+
+		ConcurrentHashMap<K, Flight<V>> stripe = getStripe ( key );
+		if ( actualTtl == 0 ) stripe.remove ( key, flight );
+		else TimerHolder.TIMER.newTimeout ( () -> stripe.remove ( key, flight ), actualTtl, TimeUnit.MILLISECONDS );
+	}
+
+	private V await ( Flight<V> flight ) throws Exception
+	{
+		try
+		{
+			long deadlineNanos = Deadline.currentRemainingNanos ();
+			return deadlineNanos == Long.MAX_VALUE
+				? flight.result.get ()
+				: flight.result.get ( deadlineNanos, TimeUnit.NANOSECONDS );
+		}
+		catch ( ExecutionException ex )
+		{
+			Throwable cause = ex.getCause ();
+			if ( cause instanceof Exception ) throw (Exception) cause;
+			if ( cause instanceof Error ) throw (Error) cause;
+			throw ex;
+		}
+		catch ( TimeoutException ex ) {
+			throw new DeadlineExceededException ( "Deadline exceeded while waiting for a single-flight call", ex );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread ().interrupt ();
+			throw new UncheckedInterruptedException ( "Interrupted while waiting for a single-flight call", ex );
+		}
+	}
+
+	private ConcurrentHashMap<K, Flight<V>> getStripe ( K key )
+	{
+		int h = key.hashCode ();
+		return stripes [ ( h ^ ( h >>> 16 ) ) & stripeMask ];
+	}
+
+
+	/**
+	 * The no. of calls in flight, plus the completed ones still within their TTL.
+	 */
+	public int size ()
+	{
+		int result = 0;
+		for ( ConcurrentHashMap<K, Flight<V>> stripe: stripes ) result += stripe.size ();
+		return result;
+	}
+
+	/**
+	 * How long a successful result is kept after its completion, in ms. 0 means that only overlapping calls
+	 * share results.
+	 */
+	public long getTtl ()
+	{
+		return ttl;
+	}
+}
@@ -1,15 +1,21 @@
 package uk.ac.ebi.utils.runcontrol;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.utils.statistics.LatencyHistogram;
 import uk.ac.ebi.utils.time.XStopWatch;
 
 /**
  * An executor that logs statistics on the executions it receives to run.
+ * 
+ * Statistics include the calls throughput, the failure rate and the latency distribution. They are
+ * computed every {@link #getSamplingTime()} and they're available via getters like {@link #getLastLatencies()}
+ * too.
  *
  * @author brandizi
  * <dl><dt>Date:</dt><dd>5 Oct 2015</dd></dl>
@@ -23,9 +29,21 @@ public class StatsExecutor implements Executor
 	
 	private AtomicInteger totalCalls = new AtomicInteger ( 0 ), failedCalls = new AtomicInteger ( 0 );
 	private int lastTotalCalls = 0, lastFailedCalls = 0;
+	
+	private final LatencyHistogram latencies = new LatencyHistogram ();
+	private LatencyHistogram.Snapshot lastLatencies = null;
+	
+	private final ExecutionListeners listeners = new ExecutionListeners ();
 
 	private XStopWatch timer = new XStopWatch ();
 	
+	/**
+	 * When the current sampling period ends, in {@link System#nanoTime()} terms. This allows for
+	 * checking if {@link #doStats()} is needed without locking. 
+	 */
+	private volatile long samplingEnd = Long.MIN_VALUE;
+	private volatile boolean isSamplingStarted = false; 
+	
 	private Logger log = LoggerFactory.getLogger ( this.getClass () );
 
 	
@@ -41,38 +59,76 @@ public class StatsExecutor implements Executor
 	
 	/**
 	 * Runs the action, intercepts any {@link Exception} it generates. increase {@link #getTotalCalls()} and,
-	 * if there is an exception, {@link #getFailedCalls()} too. Eventually invokes {@link #doStats()}.
+	 * if there is an exception, {@link #getFailedCalls()} too. The action's running time is recorded too. 
+	 * Eventually invokes {@link #doStats()}, when {@link #getSamplingTime()} has passed.
 	 * 
-	 * If {@link #isPopUpExceptions()} exceptions are let to reach the invoker. 
+	 * If {@link #isPopUpExceptions()} exceptions are let to reach the invoker. In any case, the 
+	 * {@link #addListener(ExecutionListener) listeners} receive the call outcome.
 	 */
 	@Override
 	public void execute ( Runnable action )
 	{
+		long start = System.nanoTime ();
+		Throwable error = null;
 		try {
 			action.run ();
 		}
 		catch ( Exception ex ) 
 		{
-			this.failedCalls.incrementAndGet ();
+			error = ex;
 			if ( this.popUpExceptions ) throw ex;
-			
-			log.warn ( "Call to {} failed, due to: {}", this.serviceName, ex.getMessage () );
-			if ( log.isTraceEnabled () ) log.trace ( "Call to " + this.serviceName + ", reason:", ex );
+			logFailure ( ex );
+		}
+		catch ( Error ex ) {
+			error = ex;
+			throw ex;
 		}
 		finally {
-			this.totalCalls.incrementAndGet ();
+			recordCall ( System.nanoTime () - start, error );
 		}
-		doStats ();
-	}	
+	}
+	
+	/**
+	 * Records a call that wasn't run by {@link #execute(Runnable)}, eg, an asynchronous call. This does the
+	 * same accounting as {@link #execute(Runnable)}, ie, a call is considered failed if the error is an 
+	 * {@link Exception}.
+	 * 
+	 * @param error null if the call was successful.
+	 */
+	public void recordCall ( long durationNanos, Throwable error )
+	{
+		if ( error instanceof Exception ) this.failedCalls.incrementAndGet ();
+		this.totalCalls.incrementAndGet ();
+		this.latencies.record ( durationNanos );
+		if ( listeners.isEnabled () )
+		{
+			if ( error == null ) listeners.onSuccess ( this, durationNanos ); 
+			else listeners.onFailure ( this, durationNanos, error );
+		}
+		// Don't lock unless it's needed
+		if ( !isSamplingStarted || System.nanoTime () - samplingEnd >= 0 ) doStats ();
+	}
 	
 	/**
-	 * Checks if {@link #getSamplingTime()} has passed. If yes, logs statistics on recorded calls/min and failed calls.
+	 * Logs a failure that isn't {@link #isPopUpExceptions() popped up}.
+	 */
+	public void logFailure ( Throwable ex )
+	{
+		log.warn ( "Call to {} failed, due to: {}", this.serviceName, ex.getMessage () );
+		if ( log.isTraceEnabled () ) log.trace ( "Call to " + this.serviceName + ", reason:", ex );
+	}
+	
+	/**
+	 * Checks if {@link #getSamplingTime()} has passed. If yes, logs statistics on recorded calls/min, failed calls
+	 * and latencies.
 	 */
 	protected synchronized boolean doStats ()
 	{
 		if ( this.timer.isStopped () ) {
 			// First call
 			timer.start ();
+			this.latencies.getIntervalSnapshot (); // discard what was recorded before
+			this.startSamplingPeriod ();
 			return false;
 		}
 		
@@ -86,19 +142,32 @@ public class StatsExecutor implements Executor
 			? 0d
 			: 1d * this.failedCalls.get () / this.totalCalls.get ();
 
+		LatencyHistogram.Snapshot latencies = this.latencies.getIntervalSnapshot ();
+		
 		log.info ( String.format ( 
-			"---- %s Statistics, throughput: %.0f calls/min, failed: %.1f %%",
+			"---- %s Statistics, throughput: %.0f calls/min, failed: %.1f %%, " 
+				+ "latency p50/p95/p99/max: %.1f/%.1f/%.1f/%.1f ms",
 			serviceName,
-			avgCalls * 60000, avgFails * 100
+			avgCalls * 60000, avgFails * 100,
+			latencies.getPercentile ( 50 ) / 1E6, latencies.getPercentile ( 95 ) / 1E6, 
+			latencies.getPercentile ( 99 ) / 1E6, latencies.getMax () / 1E6
 		));
 		
 		this.lastTotalCalls = totalCalls;
 		this.lastFailedCalls = failedCalls;
+		this.lastLatencies = latencies;
 		this.totalCalls.set ( 0 ); 
 		this.failedCalls.set ( 0 );
 		timer.restart ();
+		this.startSamplingPeriod ();
 		return true;
 	}
+	
+	private void startSamplingPeriod ()
+	{
+		this.samplingEnd = System.nanoTime () + TimeUnit.MILLISECONDS.toNanos ( this.samplingTime );
+		this.isSamplingStarted = true;
+	}
 
 	/**
 	 * This is reset every {@link #getSamplingTime()} ms.
@@ -133,6 +202,16 @@ public class StatsExecutor implements Executor
 	}
 
 	
+	/**
+	 * The distribution of the action running times (in ns) in the last sampling period, including the 
+	 * failed ones. This is updated every {@link #getSamplingTime()} and it's null until the end of the
+	 * first period.
+	 */
+	public synchronized LatencyHistogram.Snapshot getLastLatencies ()
+	{
+		return lastLatencies;
+	}
+	
 	/**
 	 * @see #execute(Runnable)
 	 * 
@@ -150,6 +229,11 @@ public class StatsExecutor implements Executor
 		return this;
 	}
 
+	public String getServiceName ()
+	{
+		return serviceName;
+	}
+
 	/**
 	 * Statistics are logged and then reset every this amount of time, in ms. 
 	 */
@@ -162,5 +246,20 @@ public class StatsExecutor implements Executor
 	{
 		this.samplingTime = samplingTime;
 	}
-		
+
+	/**
+	 * Registers a listener of this executor's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	/**
+	 * @return true if the listener was registered.
+	 */
+	public boolean removeListener ( ExecutionListener listener )
+	{
+		return listeners.remove ( listener );
+	}
 }
@@ -0,0 +1,206 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static java.lang.Math.min;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * <p>A {@link PermitLimiter} based on the token bucket algorithm.</p>
+ *
+ * <p>Permits are added to the bucket at {@link #getRate()} speed, up to {@link #getBurstCapacity()}, which
+ * is the maximum number of permits that can be accumulated while the bucket is idle and then given away
+ * without waiting.</p>
+ *
+ * <p>Like Guava's {@link RateLimiter} (which we used before this class), a request never waits for the
+ * permits it asks for, but for the ones reserved by the previous requests. That is, the permits are
+ * "paid later", so that a slow rate doesn't delay the first request and requests
+ * for many permits don't stall the ones coming after them more than necessary.</p>
+ *
+ * <p>This class is thread-safe. Its state is kept in a couple of fields, which are accessed
+ * between {@link #beginStateUpdate()} and {@link #endStateUpdate()}, so that extensions like
+ * {@link MappedTokenBucket} can store it elsewhere.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class TokenBucket implements PermitLimiter
+{
+	private double rate;
+	private double burstCapacity;
+	private boolean isBurstFromRate;
+
+	/**
+	 * The permits currently in the bucket. Negative values mean permits already reserved by
+	 * requests that are waiting for them.
+	 */
+	protected double storedPermits = 0;
+
+	/**
+	 * The last time {@link #storedPermits} were updated, in the {@link #nanoTime()} scale.
+	 */
+	protected long lastRefillTime;
+
+	/**
+	 * The bucket starts empty, as {@link RateLimiter} does.
+	 *
+	 * @param burstCapacity the max no. of permits accumulated by the bucket. If it's &lt;= 0, it's set to
+	 * one second worth of permits (ie, {@link #getRate()}) and it's updated when the rate changes.
+	 */
+	public TokenBucket ( double permitsPerSecond, double burstCapacity )
+	{
+		Validate.isTrue ( permitsPerSecond > 0, "Can't set a token bucket rate of %s", permitsPerSecond );
+		this.rate = permitsPerSecond;
+		this.isBurstFromRate = burstCapacity <= 0;
+		this.burstCapacity = burstCapacity;
+		this.lastRefillTime = nanoTime ();
+	}
+
+	/**
+	 * A bucket with one second of burst capacity, like {@link RateLimiter#create(double)}.
+	 */
+	public TokenBucket ( double permitsPerSecond )
+	{
+		this ( permitsPerSecond, 0 );
+	}
+
+
+	@Override
+	public long acquire ( double permits )
+	{
+		long waitNanos = reserve ( permits, Long.MAX_VALUE );
+		if ( waitNanos > 0 ) Uninterruptibles.sleepUninterruptibly ( waitNanos, TimeUnit.NANOSECONDS );
+		return waitNanos;
+	}
+
+	@Override
+	public boolean tryAcquire ( double permits, long timeout, TimeUnit timeUnit )
+	{
+		long waitNanos = reserve ( permits, timeUnit.toNanos ( timeout ) );
+		if ( waitNanos < 0 ) return false;
+		if ( waitNanos > 0 ) Uninterruptibles.sleepUninterruptibly ( waitNanos, TimeUnit.NANOSECONDS );
+		return true;
+	}
+
+	@Override
+	public synchronized long reserve ( double permits, long maxWaitNanos )
+	{
+		Validate.isTrue ( permits > 0, "Can't acquire %s permits", permits );
+
+		beginStateUpdate ();
+		try
+		{
+			refill ( nanoTime () );
+			long waitNanos = computeWaitNanos ();
+			if ( waitNanos > maxWaitNanos ) return -1;
+			storedPermits -= permits;
+			return waitNanos;
+		}
+		finally {
+			endStateUpdate ();
+		}
+	}
+
+	@Override
+	public synchronized long getWaitNanos ()
+	{
+		beginStateUpdate ();
+		try
+		{
+			refill ( nanoTime () );
+			return computeWaitNanos ();
+		}
+		finally {
+			endStateUpdate ();
+		}
+	}
+
+	private void refill ( long now )
+	{
+		if ( now <= lastRefillTime ) return;
+		storedPermits = min ( getBurstCapacity (), storedPermits + ( now - lastRefillTime ) / 1E9 * rate );
+		lastRefillTime = now;
+	}
+
+	private long computeWaitNanos ()
+	{
+		if ( storedPermits >= 0 ) return 0;
+		return (long) Math.ceil ( -storedPermits / rate * 1E9 );
+	}
+
+
+	@Override
+	public synchronized double getRate ()
+	{
+		return rate;
+	}
+
+	/**
+	 * If the {@link #getBurstCapacity() burst capacity} is based on the rate, it is changed too, and the
+	 * stored permits are scaled accordingly, as {@link RateLimiter#setRate(double)} does.
+	 */
+	@Override
+	public synchronized void setRate ( double permitsPerSecond )
+	{
+		Validate.isTrue ( permitsPerSecond > 0, "Can't set a token bucket rate of %s", permitsPerSecond );
+
+		beginStateUpdate ();
+		try
+		{
+			refill ( nanoTime () );
+			double oldCapacity = getBurstCapacity ();
+			this.rate = permitsPerSecond;
+			double newCapacity = getBurstCapacity ();
+
+			if ( isBurstFromRate && storedPermits > 0 )
+				storedPermits = Double.isInfinite ( oldCapacity )
+					? newCapacity
+					: storedPermits * ( newCapacity / oldCapacity );
+			storedPermits = min ( storedPermits, newCapacity );
+		}
+		finally {
+			endStateUpdate ();
+		}
+	}
+
+	/**
+	 * The max number of permits this bucket can accumulate. This is the permits that the clients can
+	 * take without waiting, after the bucket has been idle for long enough.
+	 */
+	public synchronized double getBurstCapacity ()
+	{
+		return isBurstFromRate ? rate : burstCapacity;
+	}
+
+
+	/**
+	 * The time reference used to refill the bucket. By default, this is {@link System#nanoTime()}.
+	 */
+	protected long nanoTime ()
+	{
+		return System.nanoTime ();
+	}
+
+	/**
+	 * Invoked before accessing {@link #storedPermits} and {@link #lastRefillTime}, always in a synchronised
+	 * block. Does nothing by default, it's a hook for extensions that keep the bucket state elsewhere.
+	 */
+	protected void beginStateUpdate ()
+	{
+		// Nothing to do by default
+	}
+
+	/**
+	 * Invoked after accessing the bucket state, the counterpart of {@link #beginStateUpdate()}. This
+	 * is invoked in a finally block.
+	 */
+	protected void endStateUpdate ()
+	{
+		// Nothing to do by default
+	}
+}
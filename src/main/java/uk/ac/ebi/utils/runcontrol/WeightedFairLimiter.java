@@ -0,0 +1,264 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>Shares a {@link PermitLimiter} between multiple clients, giving each of them a share of the limiter's rate
+ * that is proportional to its weight. For instance:</p>
+ *
+ * <pre>
+ *   WeightedFairLimiter limiter = new WeightedFairLimiter ( new TokenBucket ( 10 ) );
+ *   // When both are busy, the first gets 7.5 permits/sec, the second 2.5
+ *   Executor exec1 = new RateLimitedExecutor ( limiter.newShare ( 3 ) );
+ *   Executor exec2 = new RateLimitedExecutor ( limiter.newShare ( 1 ) );
+ * </pre>
+ *
+ * <p>This is a weighted fair queue in front of the limiter: each request of permits gets a virtual finish time,
+ * which is its start time plus permits / weight, where the start time is the finish time of the share's previous
+ * request, or the current virtual time, if the share has been idle. The requests are served one at a time, in
+ * the order of their finish times, so the shares that keep asking for permits get them in proportion to their
+ * weights, independently on how many threads they use or how often they ask. The queue is work-conserving:
+ * the rate that an idle share doesn't use goes to the others and a share alone gets the whole rate. An idle
+ * share doesn't accumulate credit either, so it can't starve the others when it becomes active.</p>
+ *
+ * <p>The weights only apply to the requests that go through the shares: clients using the underlying limiter
+ * directly bypass the queue.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class WeightedFairLimiter
+{
+	private final PermitLimiter limiter;
+
+	private final PriorityQueue<Request> queue = new PriorityQueue<> ();
+	/** The start time of the last request that was served */
+	private double virtualTime = 0;
+	/** A request is waiting for its permits from the limiter */
+	private boolean isServing = false;
+	/** Breaks the ties between equal finish times, in arrival order */
+	private long requestCount = 0;
+
+	private class Request implements Comparable<Request>
+	{
+		private final Share share;
+		private final double start, finish, prevShareFinish;
+		private final long seq;
+
+		private Request ( Share share, double permits )
+		{
+			this.share = share;
+			this.prevShareFinish = share.lastFinish;
+			this.start = Math.max ( virtualTime, share.lastFinish );
+			this.finish = start + permits / share.weight;
+			this.seq = requestCount++;
+		}
+
+		@Override
+		public int compareTo ( Request other )
+		{
+			int result = Double.compare ( finish, other.finish );
+			return result != 0 ? result : Long.compare ( seq, other.seq );
+		}
+	}
+
+	/**
+	 * A client of the shared limiter, which can be used with {@link RateLimitedExecutor} and alike.
+	 */
+	public class Share implements PermitLimiter
+	{
+		private final double weight;
+		/** Guarded by the enclosing instance */
+		private double lastFinish = 0;
+
+		private Share ( double weight ) {
+			this.weight = weight;
+		}
+
+		/**
+		 * Waits in the fair queue and then gets the permits from the underlying limiter.
+		 */
+		@Override
+		public long acquire ( double permits )
+		{
+			Validate.isTrue ( permits > 0, "Can't acquire %s permits", permits );
+
+			long start = System.nanoTime ();
+			Request request = enqueue ( this, permits );
+			awaitTurn ( request, Long.MAX_VALUE );
+			try {
+				limiter.acquire ( permits );
+			}
+			finally {
+				endTurn ();
+			}
+			return System.nanoTime () - start;
+		}
+
+		/**
+		 * Waits in the fair queue for the timeout at most, then tries to get the permits from the underlying
+		 * limiter within the remaining time. Unlike other limiters, this might wait before returning false, since
+		 * the time spent in the queue can't be known in advance.
+		 */
+		@Override
+		public boolean tryAcquire ( double permits, long timeout, TimeUnit timeUnit )
+		{
+			Validate.isTrue ( permits > 0, "Can't acquire %s permits", permits );
+
+			long timeoutNanos = timeUnit.toNanos ( timeout );
+			long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime () + timeoutNanos;
+
+			Request request = enqueue ( this, permits );
+			if ( !awaitTurn ( request, deadline ) ) return false;
+			try
+			{
+				long remainingNanos = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime ();
+				return remainingNanos >= 0 && limiter.tryAcquire ( permits, remainingNanos, TimeUnit.NANOSECONDS );
+			}
+			finally {
+				endTurn ();
+			}
+		}
+
+		/**
+		 * The non-blocking clients can't wait in the queue, so this reserves the permits from the underlying
+		 * limiter straight away. The permits are charged to this share anyway, so they delay its next queued
+		 * requests.
+		 */
+		@Override
+		public long reserve ( double permits, long maxWaitNanos )
+		{
+			Validate.isTrue ( permits > 0, "Can't acquire %s permits", permits );
+
+			long result = limiter.reserve ( permits, maxWaitNanos );
+			if ( result >= 0 ) charge ( this, permits );
+			return result;
+		}
+
+		/**
+		 * The wait of the underlying limiter, not including the time in the queue.
+		 */
+		@Override
+		public long getWaitNanos ()
+		{
+			return limiter.getWaitNanos ();
+		}
+
+		/**
+		 * The rate of the underlying limiter, ie, of all the shares.
+		 */
+		@Override
+		public double getRate ()
+		{
+			return limiter.getRate ();
+		}
+
+		/**
+		 * Changes the rate of the underlying limiter, ie, of all the shares.
+		 */
+		@Override
+		public void setRate ( double permitsPerSecond )
+		{
+			limiter.setRate ( permitsPerSecond );
+		}
+
+		public double getWeight ()
+		{
+			return weight;
+		}
+
+		public WeightedFairLimiter getFairLimiter ()
+		{
+			return WeightedFairLimiter.this;
+		}
+	} // class Share
+
+
+	public WeightedFairLimiter ( PermitLimiter limiter )
+	{
+		Validate.notNull ( limiter, "Can't use a null limiter for fair sharing" );
+		this.limiter = limiter;
+	}
+
+
+	/**
+	 * A new client of the limiter. The weight is relative to the other shares, eg, a share with weight 2 gets twice
+	 * the rate of one with weight 1, when both are busy.
+	 */
+	public Share newShare ( double weight )
+	{
+		Validate.isTrue ( weight > 0, "Can't use a fair share weight of %s", weight );
+		return new Share ( weight );
+	}
+
+	private synchronized Request enqueue ( Share share, double permits )
+	{
+		Request result = new Request ( share, permits );
+		share.lastFinish = result.finish;
+		queue.add ( result );
+		return result;
+	}
+
+	/**
+	 * Waits until the request is the first in the queue and nothing else is being served.
+	 *
+	 * @return false if the deadline passed before, in which case the request is removed from the queue.
+	 */
+	private synchronized boolean awaitTurn ( Request request, long deadline )
+	{
+		boolean isInterrupted = false;
+		try
+		{
+			while ( isServing || queue.peek () != request )
+			{
+				long waitNanos = deadline == Long.MAX_VALUE ? 0 : deadline - System.nanoTime ();
+				if ( deadline != Long.MAX_VALUE && waitNanos <= 0 )
+				{
+					queue.remove ( request );
+					// Don't charge the share for what it didn't get, unless it has queued more in the meantime
+					if ( request.share.lastFinish == request.finish ) request.share.lastFinish = request.prevShareFinish;
+					notifyAll ();
+					return false;
+				}
+				try {
+					// Like the limiters, this doesn't react to interruptions
+					if ( deadline == Long.MAX_VALUE ) wait ();
+					else TimeUnit.NANOSECONDS.timedWait ( this, waitNanos );
+				}
+				catch ( InterruptedException ex ) {
+					isInterrupted = true;
+				}
+			}
+
+			queue.poll ();
+			isServing = true;
+			virtualTime = Math.max ( virtualTime, request.start );
+			return true;
+		}
+		finally {
+			if ( isInterrupted ) Thread.currentThread ().interrupt ();
+		}
+	}
+
+	private synchronized void endTurn ()
+	{
+		isServing = false;
+		notifyAll ();
+	}
+
+	private synchronized void charge ( Share share, double permits )
+	{
+		Request request = new Request ( share, permits );
+		share.lastFinish = request.finish;
+		virtualTime = Math.max ( virtualTime, request.start );
+	}
+
+	public PermitLimiter getLimiter ()
+	{
+		return limiter;
+	}
+}
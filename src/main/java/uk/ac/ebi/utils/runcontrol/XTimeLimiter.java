@@ -1,5 +1,7 @@
 package uk.ac.ebi.utils.runcontrol;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.time.Duration;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -7,18 +9,28 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.util.concurrent.SimpleTimeLimiter;
 import com.google.common.util.concurrent.TimeLimiter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 
 import uk.ac.ebi.utils.exceptions.ExceptionUtils;
 import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+import uk.ac.ebi.utils.threading.HashedWheelTimer;
 import uk.ac.ebi.utils.threading.ThreadUtils;
 
 /**
- * An extension of {@link TimeLimiter} to ease the use of {@link SimpleTimeLimiter}, by offering
- * a suitable internal {@link ExecutorService} and by throwing unchecked exceptions.
+ * <p>An extension of {@link TimeLimiter} to ease the use of {@link SimpleTimeLimiter}, by offering
+ * a suitable internal {@link ExecutorService} and by throwing unchecked exceptions.</p>
+ * 
+ * <p>The default {@link #create()} runs every timed call on another thread, taken from a cached pool,
+ * which grows without bounds when there are many concurrent calls. Alternatively, {@link #createSameThread()}
+ * runs the calls on the caller thread and enforces the timeouts via a shared {@link HashedWheelTimer},
+ * which interrupts the caller when the timeout expires, while {@link #createWithVirtualThreads()} uses 
+ * virtual threads, which are cheap to create and don't need pooling.</p>
  *
  * @author Marco Brandizi
  * <dl><dt>Date:</dt><dd>6 Jun 2025</dd></dl>
@@ -30,179 +42,312 @@ public class XTimeLimiter implements TimeLimiter
 		ThreadUtils.createNamingThreadFactory ( "XTimeLimiter-Thread-" )
 	);
 
+	private static final int CALL_RUNNING = 0, CALL_DONE = 1, CALL_INTERRUPTING = 2, CALL_INTERRUPTED = 3;
+	
+	/**
+	 * Lazy initialisation of the same-thread mode resources.
+	 */
+	private static class SameThreadResources 
+	{
+		private static final HashedWheelTimer TIMER = new HashedWheelTimer ( "XTimeLimiter-Timer" );
+	}
+
+	/**
+	 * Lazy initialisation of the virtual threads executor.
+	 */
+	private static class VirtualThreadResources
+	{
+		private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor (
+			ThreadUtils.createNamingThreadFactory ( "XTimeLimiter-VThread-", Thread.ofVirtual ().factory () )
+		);
+	}
+	
+	/**
+	 * null means same-thread mode.
+	 */
 	private final TimeLimiter delegate;
 	
-	private XTimeLimiter ( ExecutorService executorService )
+	private final ExecutionListeners listeners = new ExecutionListeners ();
+	
+	private XTimeLimiter ( ExecutorService executorService, boolean isSameThread )
 	{
+		if ( isSameThread ) {
+			this.delegate = null;
+			return;
+		}
 		if ( executorService == null ) executorService = TIME_LIMITER_SERVICE;
 		this.delegate = SimpleTimeLimiter.create ( executorService );
 	}
 
   public static XTimeLimiter create ( ExecutorService executorService ) {
-    return new XTimeLimiter ( executorService );
+    return new XTimeLimiter ( executorService, false );
   }
 
   /**
    * Uses a default {@link ExecutorService}
    */
   public static XTimeLimiter create () {
-    return new XTimeLimiter ( null );
+    return new XTimeLimiter ( null, false );
+  }
+
+  /**
+   * <p>A time limiter that runs the calls on the invoking thread, with no hand-off to other threads. 
+   * When a timeout expires, a shared {@link HashedWheelTimer} interrupts the invoker, so the 
+   * call stops only if it responds to interruptions. Once the call has ended, the time limiter clears the 
+   * interruption it caused and throws an {@link UncheckedTimeoutException}, even if the call returned
+   * a result.</p>
+   * 
+   * <p>In this mode, the timeout precision is the timer's tick, ie, 10ms, and the uninterruptible methods
+   * behave like the interruptible ones, since the invoker and the call's thread are the same. Exceptions 
+   * thrown by the call are re-thrown as they are, if they are unchecked, or wrapped by 
+   * {@link UncheckedExecutionException}.</p>
+   */
+  public static XTimeLimiter createSameThread () {
+  	return new XTimeLimiter ( null, true );
+  }
+  
+  /**
+   * Like {@link #create()}, but the calls are run on virtual threads, which are cheap to create and
+   * don't need pooling.
+   */
+  public static XTimeLimiter createWithVirtualThreads () {
+  	return new XTimeLimiter ( VirtualThreadResources.EXECUTOR, false );
   }
 
   
 	@Override
 	public <T> T newProxy ( T target, Class<T> interfaceType, long timeoutDuration, TimeUnit timeoutUnit )
 	{
+		if ( delegate == null ) return newSameThreadProxy ( target, interfaceType, timeoutUnit.toNanos ( timeoutDuration ) );
 		return delegate.newProxy ( target, interfaceType, timeoutDuration, timeoutUnit );
 	}
 
 	@Override
 	public <T> T newProxy ( T target, Class<T> interfaceType, Duration timeout )
 	{
+		if ( delegate == null ) return newSameThreadProxy ( target, interfaceType, toNanos ( timeout ) );
 		return delegate.newProxy ( target, interfaceType, timeout );
 	}
 
+	/**
+	 * If there is a {@link Deadline current deadline} coming before the timeout, the timeout is reduced to 
+	 * the time left and a {@link DeadlineExceededException} is thrown when it expires. If the deadline has 
+	 * already passed, the callable isn't run at all. The deadline is propagated to the thread running the 
+	 * callable. This applies to all the timed methods, except the proxies.
+	 * 
+	 * The {@link #addListener(ExecutionListener) listeners} receive the timeouts and the call outcome, again for
+	 * all the timed methods, except the proxies.
+	 */
 	@Override
 	public <T> T callWithTimeout ( Callable<T> callable, long timeoutDuration, TimeUnit timeoutUnit )
 	{
-		try {
-			return delegate.callWithTimeout ( callable, timeoutDuration, timeoutUnit );
-		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Error: an operation exceeded a set timeout", ex	
-			);
-		}
-		catch ( InterruptedException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Error: an operation was interrupted", ex	
-			);
-		}
-		catch ( ExecutionException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Error during timed execution: $cause", ex	
-			);
-		}
+		return timedCall ( callable, timeoutUnit.toNanos ( timeoutDuration ), false );
 	}
 
 	@Override
 	public <T> T callWithTimeout ( Callable<T> callable, Duration timeout )
 	{
-		try {
-			return delegate.callWithTimeout ( callable, timeout );
-		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
-		}
-		catch ( InterruptedException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Interruption during timed execution", ex	
-			);
-		}
-		catch ( ExecutionException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Error during timed execution: $cause", ex	
-			);
-		}
+		return timedCall ( callable, toNanos ( timeout ), false );
 	}
 
 	@Override
 	public <T> T callUninterruptiblyWithTimeout ( Callable<T> callable, long timeoutDuration, TimeUnit timeoutUnit )
 	{
-		try {
-			return delegate.callUninterruptiblyWithTimeout ( callable, timeoutDuration, timeoutUnit );
-		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
-		}
-		catch ( ExecutionException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Error during timed execution: $cause", ex	
-			);
-			} 		
+		return timedCall ( callable, timeoutUnit.toNanos ( timeoutDuration ), true );
 	}
 
 	@Override
 	public <T> T callUninterruptiblyWithTimeout ( Callable<T> callable, Duration timeout )
 	{
-		try {
-			return delegate.callUninterruptiblyWithTimeout ( callable, timeout );
-		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
-		}
-		catch ( ExecutionException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Error during timed execution: $cause", ex	
-			);
-		} 		
+		return timedCall ( callable, toNanos ( timeout ), true );
 	}
 
 	@Override
 	public void runWithTimeout ( Runnable runnable, long timeoutDuration, TimeUnit timeoutUnit )
 	{
-		try {
-			delegate.runWithTimeout ( runnable, timeoutDuration, timeoutUnit );
-		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
-		}
-		catch ( InterruptedException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Interruption during timed execution", ex	
-			);
-		}
+		timedCall ( Executors.callable ( runnable ), timeoutUnit.toNanos ( timeoutDuration ), false );
 	}
 
 	@Override
 	public void runWithTimeout ( Runnable runnable, Duration timeout )
 	{
-		try {
-			delegate.runWithTimeout ( runnable, timeout );
+		timedCall ( Executors.callable ( runnable ), toNanos ( timeout ), false );
+	}
+
+	@Override
+	public void runUninterruptiblyWithTimeout ( Runnable runnable, long timeoutDuration, TimeUnit timeoutUnit )
+	{
+		timedCall ( Executors.callable ( runnable ), timeoutUnit.toNanos ( timeoutDuration ), true );
+	}
+	
+	@Override
+	public void runUninterruptiblyWithTimeout ( Runnable runnable, Duration timeout )
+	{
+		timedCall ( Executors.callable ( runnable ), toNanos ( timeout ), true );
+	}
+	
+	
+	/**
+	 * All the timed methods go here, this reports the call to the listeners.
+	 */
+	private <T> T timedCall ( Callable<T> callable, long timeoutNanos, boolean isUninterruptible )
+	{
+		long callStart = listeners.startCall ();
+		if ( callStart == ExecutionListeners.NOT_LISTENED ) 
+			return doTimedCall ( callable, timeoutNanos, isUninterruptible );
+		
+		try 
+		{
+			T result = doTimedCall ( callable, timeoutNanos, isUninterruptible );
+			listeners.onSuccess ( this, ExecutionListeners.elapsed ( callStart ) );
+			return result;
+		}
+		catch ( RuntimeException | Error ex )
+		{
+			long elapsed = ExecutionListeners.elapsed ( callStart );
+			if ( ex instanceof UncheckedTimeoutException ) listeners.onTimeout ( this, elapsed );
+			listeners.onFailure ( this, elapsed, ex );
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Deals with the {@link Deadline current deadline} and wraps the checked exceptions.
+	 */
+	private <T> T doTimedCall ( Callable<T> callable, long timeoutNanos, boolean isUninterruptible )
+	{
+		long deadlineNanos = Deadline.currentRemainingNanos ();
+		boolean isDeadlineFirst = deadlineNanos < timeoutNanos;
+		if ( isDeadlineFirst ) 
+		{
+			Deadline.checkCurrent ( "a timed execution" );
+			timeoutNanos = deadlineNanos;
+		}
+		
+		if ( delegate == null ) return callInSameThread ( callable, timeoutNanos, isDeadlineFirst );
+		
+		callable = Deadline.propagate ( callable );
+		try 
+		{
+			return isUninterruptible 
+				? delegate.callUninterruptiblyWithTimeout ( callable, timeoutNanos, TimeUnit.NANOSECONDS )
+				: delegate.callWithTimeout ( callable, timeoutNanos, TimeUnit.NANOSECONDS );
 		}
 		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
+			throw buildTimeoutEx ( ex, isDeadlineFirst );
 		}
 		catch ( InterruptedException ex ) {
 			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
-				"Interruption during timed execution", ex	
+				"Interruption during timed execution"	
+			);
+		}
+		catch ( ExecutionException ex ) {
+			throw ExceptionUtils.buildEx ( UncheckedInterruptedException.class, ex, 
+				"Error during timed execution: $cause"	
 			);
 		}
 	}
-
-	@Override
-	public void runUninterruptiblyWithTimeout ( Runnable runnable, long timeoutDuration, TimeUnit timeoutUnit )
+	
+	private static UncheckedTimeoutException buildTimeoutEx ( Throwable cause, boolean isDeadline )
+	{
+		return isDeadline
+			? new DeadlineExceededException ( "Deadline exceeded during timed execution", cause )
+			: new UncheckedTimeoutException ( "Timeout during timed execution", cause );
+	}
+	
+	/**
+	 * Saturates to {@link Long#MAX_VALUE} for the durations that are too long.
+	 */
+	private static long toNanos ( Duration duration )
 	{
 		try {
-			delegate.runUninterruptiblyWithTimeout ( runnable, timeoutDuration, timeoutUnit );
+			return duration.toNanos ();
 		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
+		catch ( ArithmeticException ex ) {
+			return duration.isNegative () ? Long.MIN_VALUE : Long.MAX_VALUE;
 		}
 	}
 	
-	@Override
-	public void runUninterruptiblyWithTimeout ( Runnable runnable, Duration timeout )
+	/**
+	 * The same-thread mode implementation, see {@link #createSameThread()}.
+	 */
+	private <T> T callInSameThread ( Callable<T> callable, long timeoutNanos, boolean isDeadline )
 	{
+		Thread invoker = Thread.currentThread ();
+		// The timer's interruption is cleared after a timeout, but not one the invoker had already
+		boolean wasInterrupted = invoker.isInterrupted ();
+		AtomicInteger state = new AtomicInteger ( CALL_RUNNING );
+		HashedWheelTimer.Timeout timeout = SameThreadResources.TIMER.newTimeout ( () -> 
+		{
+			if ( !state.compareAndSet ( CALL_RUNNING, CALL_INTERRUPTING ) ) return;
+			invoker.interrupt ();
+			state.set ( CALL_INTERRUPTED );
+		}, timeoutNanos, TimeUnit.NANOSECONDS );
+		
+		T result = null;
+		Throwable error = null;
 		try {
-			delegate.runUninterruptiblyWithTimeout ( runnable, timeout );
+			result = callable.call ();
 		}
-		catch ( TimeoutException ex ) {
-			throw ExceptionUtils.buildEx ( UncheckedTimeoutException.class, ex, 
-				"Timeout during timed execution", ex	
-			);
+		catch ( Throwable ex ) {
+			error = ex;
 		}
+		
+		timeout.cancel ();
+		if ( !state.compareAndSet ( CALL_RUNNING, CALL_DONE ) )
+		{
+			// The timer has fired, wait for it to finish and clear its interruption 
+			while ( state.get () == CALL_INTERRUPTING ) Thread.onSpinWait ();
+			Thread.interrupted ();
+			if ( wasInterrupted ) invoker.interrupt ();
+			throw buildTimeoutEx ( error, isDeadline );
+		}
+		
+		if ( error == null ) return result;
+		if ( error instanceof InterruptedException ) throw ExceptionUtils.buildEx ( 
+			UncheckedInterruptedException.class, error, "Interruption during timed execution" 
+		);
+		if ( error instanceof RuntimeException ) throw (RuntimeException) error;
+		if ( error instanceof Error ) throw (Error) error;
+		throw ExceptionUtils.buildEx ( UncheckedExecutionException.class, error,
+			"Error during timed execution: $cause" 
+		);
+	}
+	
+	@SuppressWarnings ( "unchecked" )
+	private <T> T newSameThreadProxy ( T target, Class<T> interfaceType, long timeoutNanos )
+	{
+		return (T) Proxy.newProxyInstance ( 
+			interfaceType.getClassLoader (), 
+			new Class<?>[] { interfaceType },
+			( proxy, method, args ) -> callInSameThread ( () -> 
+			{
+				try {
+					return method.invoke ( target, args );
+				}
+				catch ( InvocationTargetException ex ) 
+				{
+					Throwable cause = ex.getCause ();
+					if ( cause instanceof Exception ) throw (Exception) cause;
+					throw ex;
+				}
+			}, timeoutNanos, false )
+		);
+	}
+
+	/**
+	 * Registers a listener of this time limiter's events, see {@link ExecutionListener}.
+	 */
+	public void addListener ( ExecutionListener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	/**
+	 * @return true if the listener was registered.
+	 */
+	public boolean removeListener ( ExecutionListener listener )
+	{
+		return listeners.remove ( listener );
 	}
 }
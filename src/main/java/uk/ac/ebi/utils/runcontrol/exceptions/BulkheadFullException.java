@@ -0,0 +1,28 @@
+package uk.ac.ebi.utils.runcontrol.exceptions;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import uk.ac.ebi.utils.runcontrol.BulkheadExecutor;
+
+/**
+ * Thrown by {@link BulkheadExecutor} when a call is rejected, since the
+ * max number of concurrent calls is reached and the call can't wait for a free slot.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BulkheadFullException extends RejectedExecutionException
+{
+	private static final long serialVersionUID = -2349014541232771095L;
+
+	public BulkheadFullException ( String message, Throwable cause )
+	{
+		super ( message, cause );
+	}
+
+	public BulkheadFullException ( String message )
+	{
+		super ( message );
+	}
+}
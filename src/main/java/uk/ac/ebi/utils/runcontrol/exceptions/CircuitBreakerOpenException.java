@@ -0,0 +1,27 @@
+package uk.ac.ebi.utils.runcontrol.exceptions;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import uk.ac.ebi.utils.runcontrol.CircuitBreakerExecutor;
+
+/**
+ * Thrown by {@link CircuitBreakerExecutor} when a call is rejected, since the circuit is open.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class CircuitBreakerOpenException extends RejectedExecutionException
+{
+	private static final long serialVersionUID = 4069395870587409226L;
+
+	public CircuitBreakerOpenException ( String message, Throwable cause )
+	{
+		super ( message, cause );
+	}
+
+	public CircuitBreakerOpenException ( String message )
+	{
+		super ( message );
+	}
+}
@@ -0,0 +1,28 @@
+package uk.ac.ebi.utils.runcontrol.exceptions;
+
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+import uk.ac.ebi.utils.runcontrol.Deadline;
+
+/**
+ * Thrown by the executors in the runcontrol package when the {@link Deadline current deadline} has passed,
+ * or it would pass before the executor could run the call.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class DeadlineExceededException extends UncheckedTimeoutException
+{
+	private static final long serialVersionUID = -2185396010271694530L;
+
+	public DeadlineExceededException ( String message, Throwable cause )
+	{
+		super ( message, cause );
+	}
+
+	public DeadlineExceededException ( String message )
+	{
+		super ( message );
+	}
+}
@@ -0,0 +1,191 @@
+package uk.ac.ebi.utils.statistics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A lock-free histogram of non-negative long values, typically latencies in ns, which can be used to
+ * compute percentiles.</p>
+ *
+ * <p>The values are recorded in log-linear buckets, in the same spirit of the HDR histogram: every
+ * power-of-2 range is split into 32 linear sub-buckets, so that the relative error of the reported values
+ * is within ~3% and the buckets cover the whole long range with a fixed amount of memory
+ * (about 15k). Recording a value costs a couple of atomic increments, which makes this suitable
+ * for hot paths.</p>
+ *
+ * <p>Statistics are obtained through {@link Snapshot snapshots}, which can either cover all
+ * the values recorded since the beginning, or the ones recorded since the previous interval
+ * snapshot.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray ( BUCKETS );
+	private final LongAdder sum = new LongAdder ();
+
+	private long[] lastIntervalCounts = new long [ BUCKETS ];
+	private long lastIntervalSum = 0;
+
+
+	/**
+	 * An immutable view of the histogram at a given time.
+	 */
+	public static class Snapshot
+	{
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+
+		private Snapshot ( long[] counts, long sum )
+		{
+			this.counts = counts;
+			this.sum = sum;
+
+			long count = 0;
+			for ( long c: counts ) count += c;
+			this.count = count;
+		}
+
+		public long getCount ()
+		{
+			return count;
+		}
+
+		/**
+		 * The value at the given percentile, eg, 99 for the p99. This is approximated to the middle of the
+		 * bucket it falls in.
+		 *
+		 * @return the value, or 0 if there isn't any value.
+		 */
+		public long getPercentile ( double percentile )
+		{
+			if ( count == 0 ) return 0;
+
+			long target = Math.max ( 1, (long) Math.ceil ( percentile / 100d * count ) );
+			long cumulated = 0;
+			for ( int i = 0; i < counts.length; i++ )
+			{
+				cumulated += counts [ i ];
+				if ( cumulated < target ) continue;
+				long lower = bucketLowerBound ( i );
+				return lower + ( bucketUpperBound ( i ) - lower ) / 2;
+			}
+			return getMax ();
+		}
+
+		/**
+		 * The max value, approximated to the upper bound of its bucket.
+		 */
+		public long getMax ()
+		{
+			for ( int i = counts.length - 1; i >= 0; i-- )
+				if ( counts [ i ] > 0 ) return bucketUpperBound ( i );
+			return 0;
+		}
+
+		/**
+		 * The min value, approximated to the lower bound of its bucket.
+		 */
+		public long getMin ()
+		{
+			for ( int i = 0; i < counts.length; i++ )
+				if ( counts [ i ] > 0 ) return bucketLowerBound ( i );
+			return 0;
+		}
+
+		/**
+		 * This is exact, NaN if there isn't any value.
+		 */
+		public double getMean ()
+		{
+			return count == 0 ? Double.NaN : 1d * sum / count;
+		}
+
+		@Override
+		public String toString ()
+		{
+			return String.format (
+				"{count: %d, p50: %d, p95: %d, p99: %d, max: %d}",
+				count, getPercentile ( 50 ), getPercentile ( 95 ), getPercentile ( 99 ), getMax ()
+			);
+		}
+	} // class Snapshot
+
+
+	/**
+	 * Negative values are recorded as 0.
+	 */
+	public void record ( long value )
+	{
+		if ( value < 0 ) value = 0;
+		counts.incrementAndGet ( bucketIndex ( value ) );
+		sum.add ( value );
+	}
+
+	/**
+	 * All the values recorded so far.
+	 */
+	public Snapshot getSnapshot ()
+	{
+		long[] result = new long [ BUCKETS ];
+		for ( int i = 0; i < BUCKETS; i++ )
+			result [ i ] = counts.get ( i );
+		return new Snapshot ( result, sum.sum () );
+	}
+
+	/**
+	 * The values recorded since the last invocation of this method, or since the beginning, the first time.
+	 * Since the recording isn't blocked meanwhile, a value recorded while this is running might be accounted
+	 * in the next interval.
+	 */
+	public synchronized Snapshot getIntervalSnapshot ()
+	{
+		long[] result = new long [ BUCKETS ];
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			long c = counts.get ( i );
+			result [ i ] = c - lastIntervalCounts [ i ];
+			lastIntervalCounts [ i ] = c;
+		}
+		long currentSum = sum.sum ();
+		Snapshot snapshot = new Snapshot ( result, currentSum - lastIntervalSum );
+		lastIntervalSum = currentSum;
+		return snapshot;
+	}
+
+
+	private static int bucketIndex ( long value )
+	{
+		if ( value < SUB_BUCKETS ) return (int) value;
+
+		int msb = 63 - Long.numberOfLeadingZeros ( value );
+		int shift = msb - SUB_BUCKET_BITS;
+		// The value's top bits, in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+		int topBits = (int) ( value >>> shift );
+		return ( shift + 1 ) * SUB_BUCKETS + topBits - SUB_BUCKETS;
+	}
+
+	private static long bucketLowerBound ( int index )
+	{
+		if ( index < SUB_BUCKETS ) return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long topBits = SUB_BUCKETS + index % SUB_BUCKETS;
+		return topBits << shift;
+	}
+
+	private static long bucketUpperBound ( int index )
+	{
+		if ( index < SUB_BUCKETS ) return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long topBits = SUB_BUCKETS + index % SUB_BUCKETS;
+		// For the last bucket, this overflows to Long.MIN_VALUE, then -1 gives Long.MAX_VALUE, which is right
+		return ( ( topBits + 1 ) << shift ) - 1;
+	}
+}
@@ -0,0 +1,272 @@
+package uk.ac.ebi.utils.threading;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A timer based on a hashed wheel, which makes scheduling and cancelling a task cost O(1), without
+ * locks. This is the approach used by Netty and similar tools to manage large numbers of timeouts, which
+ * usually are cancelled before they expire.</p>
+ *
+ * <p>The wheel is an array of buckets, each covering a tick of time. A task is put in the bucket of its
+ * expiry tick and a single worker thread visits a bucket per tick, running the expired tasks. So, the
+ * timer's precision is the tick duration (10ms by default) and the tasks run on the worker thread, which
+ * means they must be quick (eg, interrupting another thread, completing a future).</p>
+ *
+ * <p>The worker is a daemon thread, started with the timer and stopped by {@link #close()}.</p>
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class HashedWheelTimer implements AutoCloseable
+{
+	private static final int STATE_PENDING = 0, STATE_CANCELLED = 1, STATE_EXPIRED = 2;
+
+	private final long tickDuration;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final long startTime;
+
+	private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<> ();
+	private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<> ();
+
+	private final Thread worker;
+	private volatile boolean isClosed = false;
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+
+	/**
+	 * A task scheduled by {@link HashedWheelTimer#newTimeout(Runnable, long, TimeUnit)}.
+	 */
+	public final class Timeout
+	{
+		private final Runnable task;
+		/** Relative to the timer's start time */
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger ( STATE_PENDING );
+
+		// These are managed by the worker only
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout prev, next;
+
+		private Timeout ( Runnable task, long deadline )
+		{
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return true if the task was cancelled before it started, false if it's already expired or cancelled.
+		 */
+		public boolean cancel ()
+		{
+			if ( !state.compareAndSet ( STATE_PENDING, STATE_CANCELLED ) ) return false;
+			// Let the worker remove it from its bucket
+			cancelledTimeouts.add ( this );
+			return true;
+		}
+
+		public boolean isCancelled ()
+		{
+			return state.get () == STATE_CANCELLED;
+		}
+
+		/**
+		 * true if the task was run, or it's being run.
+		 */
+		public boolean isExpired ()
+		{
+			return state.get () == STATE_EXPIRED;
+		}
+
+		private void expire ()
+		{
+			if ( !state.compareAndSet ( STATE_PENDING, STATE_EXPIRED ) ) return;
+			try {
+				task.run ();
+			}
+			catch ( Throwable ex ) {
+				log.warn ( "Error while running a timer task: " + ex.getMessage (), ex );
+			}
+		}
+	} // class Timeout
+
+
+	/**
+	 * A doubly linked list of timeouts, so that cancelled ones can be removed in O(1).
+	 */
+	private static class Bucket
+	{
+		private Timeout head, tail;
+
+		void add ( Timeout timeout )
+		{
+			timeout.bucket = this;
+			if ( head == null ) head = tail = timeout;
+			else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		Timeout remove ( Timeout timeout )
+		{
+			Timeout next = timeout.next;
+			if ( timeout.prev != null ) timeout.prev.next = next;
+			if ( next != null ) next.prev = timeout.prev;
+			if ( timeout == head ) head = next;
+			if ( timeout == tail ) tail = timeout.prev;
+
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+	}
+
+
+	/**
+	 * @param name used to name the worker thread.
+	 * @param tickDuration the timer's precision.
+	 * @param wheelSize the no. of buckets, rounded up to a power of 2. With many timeouts, a bigger wheel
+	 *        means less timeouts to check on every tick.
+	 */
+	public HashedWheelTimer ( String name, long tickDuration, TimeUnit unit, int wheelSize )
+	{
+		Validate.isTrue ( tickDuration > 0, "Invalid tick duration for the timer: %d", tickDuration );
+		Validate.isTrue ( wheelSize > 0 && wheelSize <= 1 << 30, "Invalid wheel size for the timer: %d", wheelSize );
+
+		this.tickDuration = unit.toNanos ( tickDuration );
+
+		int size = 1;
+		while ( size < wheelSize ) size <<= 1;
+		this.wheel = new Bucket [ size ];
+		for ( int i = 0; i < size; i++ ) this.wheel [ i ] = new Bucket ();
+		this.mask = size - 1;
+
+		this.startTime = System.nanoTime ();
+		this.worker = new Thread ( this::runWorker, name );
+		this.worker.setDaemon ( true );
+		this.worker.start ();
+	}
+
+	/**
+	 * Defaults to 10ms as tick duration and 512 buckets.
+	 */
+	public HashedWheelTimer ( String name )
+	{
+		this ( name, 10, TimeUnit.MILLISECONDS, 512 );
+	}
+
+
+	/**
+	 * Schedules the task to be run after the delay, with the precision of the tick duration. A delay like
+	 * {@link Long#MAX_VALUE} means the task is never run.
+	 *
+	 * @throws IllegalStateException if the timer was {@link #close() closed}.
+	 */
+	public Timeout newTimeout ( Runnable task, long delay, TimeUnit unit )
+	{
+		if ( isClosed ) throw new IllegalStateException ( "Can't use the timer \"" + worker.getName () + "\", it's closed" );
+
+		// toNanos () saturates, but adding the time elapsed since the start might still overflow, so clamp, which
+		// makes very long delays never expire in practice
+		long elapsed = System.nanoTime () - startTime;
+		long delayNanos = unit.toNanos ( delay );
+		long deadline = delayNanos > Long.MAX_VALUE - elapsed ? Long.MAX_VALUE : elapsed + delayNanos;
+
+		Timeout timeout = new Timeout ( task, deadline );
+		newTimeouts.add ( timeout );
+		return timeout;
+	}
+
+	/**
+	 * Stops the worker, the pending tasks aren't run anymore.
+	 */
+	@Override
+	public void close ()
+	{
+		isClosed = true;
+		worker.interrupt ();
+	}
+
+
+	private void runWorker ()
+	{
+		for ( long tick = 0; !isClosed; tick++ )
+		{
+			if ( !waitForTick ( tick ) ) break;
+
+			removeCancelled ();
+			addNewTimeouts ( tick );
+			expireBucket ( wheel [ (int) ( tick & mask ) ] );
+		}
+	}
+
+	/**
+	 * Waits for the end of the tick, so that all the timeouts in its bucket are expired.
+	 *
+	 * @return false if the timer was stopped meanwhile.
+	 */
+	private boolean waitForTick ( long tick )
+	{
+		long deadline = ( tick + 1 ) * tickDuration;
+		for ( ;; )
+		{
+			long now = System.nanoTime () - startTime;
+			if ( now >= deadline ) return true;
+			LockSupport.parkNanos ( this, deadline - now );
+			if ( isClosed ) return false;
+		}
+	}
+
+	private void removeCancelled ()
+	{
+		for ( Timeout timeout; ( timeout = cancelledTimeouts.poll () ) != null; )
+			if ( timeout.bucket != null ) timeout.bucket.remove ( timeout );
+	}
+
+	private void addNewTimeouts ( long currentTick )
+	{
+		// Limits the work per tick, in case of floods of new timeouts
+		for ( int i = 0; i < 100_000; i++ )
+		{
+			Timeout timeout = newTimeouts.poll ();
+			if ( timeout == null ) return;
+			if ( timeout.state.get () != STATE_PENDING ) continue;
+
+			long expiryTick = timeout.deadline / tickDuration;
+			timeout.remainingRounds = ( expiryTick - currentTick ) / wheel.length;
+
+			// Eg, it's already expired
+			long tick = Math.max ( expiryTick, currentTick );
+			wheel [ (int) ( tick & mask ) ].add ( timeout );
+		}
+	}
+
+	private void expireBucket ( Bucket bucket )
+	{
+		for ( Timeout timeout = bucket.head; timeout != null; )
+		{
+			if ( timeout.remainingRounds > 0 ) {
+				timeout.remainingRounds--;
+				timeout = timeout.next;
+				continue;
+			}
+
+			Timeout next = bucket.remove ( timeout );
+			timeout.expire ();
+			timeout = next;
+		}
+	}
+}
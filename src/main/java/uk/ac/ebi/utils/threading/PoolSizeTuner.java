@@ -154,6 +154,15 @@ public abstract class PoolSizeTuner
 		prevThroughput = curThru;
 		
 		prevThreadPoolSize = curThreadPoolSize;
+		
+		afterTuningStep ();
+	}
+	
+	/**
+	 * Invoked at the end of each {@link #run() monitoring step}, so that extensions can tune other parameters at
+	 * the same pace. Does nothing by default. 
+	 */
+	protected void afterTuningStep () {
 	}
 	
 	public abstract int getThreadPoolSize ();
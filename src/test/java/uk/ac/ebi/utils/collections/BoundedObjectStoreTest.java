@@ -0,0 +1,101 @@
+package uk.ac.ebi.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BoundedObjectStore}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BoundedObjectStoreTest
+{
+	@Test
+	public void testEviction ()
+	{
+		List<Integer> evictedKeys = new ArrayList<> ();
+		BoundedObjectStore<String, Integer, String> store = new BoundedObjectStore<String, Integer, String> ( 10 )
+			.withEvictionListener ( ( type, key, value ) -> evictedKeys.add ( key ) );
+
+		for ( int key = 0; key < 15; key++ )
+			store.put ( "type", key, "Object " + key );
+
+		assertEquals ( "Wrong size!", 10, store.size () );
+		assertEquals ( "Wrong no. of evictions!", 5, store.getEvictions () );
+		assertEquals ( "Wrong evicted keys!", List.of ( 0, 1, 2, 3, 4 ), evictedKeys );
+		assertNull ( "Evicted entry still there!", store.get ( "type", 0 ) );
+		assertEquals ( "Wrong value!", "Object 14", store.get ( "type", 14 ) );
+		assertEquals ( "Wrong type keys!", 10, store.typeKeys ( "type" ).size () );
+		assertEquals ( "Wrong type values!", 10, store.values ( "type" ).size () );
+
+		assertEquals ( "Wrong hits!", 1, store.getHits () );
+		assertEquals ( "Wrong misses!", 1, store.getMisses () );
+		assertEquals ( "Wrong hit rate!", 0.5, store.getHitRate (), 0 );
+
+		store.put ( "type", 14, null );
+		store.remove ( "foo" );
+		assertEquals ( "Wrong size after removal!", 9, store.size () );
+		store.remove ( "type" );
+		assertEquals ( "Wrong size after type removal!", 0, store.size () );
+		assertEquals ( "Removals were notified as evictions!", 5, evictedKeys.size () );
+	}
+
+	@Test
+	public void testScanResistance ()
+	{
+		BoundedObjectStore<String, Integer, String> store = new BoundedObjectStore<> ( 100 );
+
+		// The hot entries are accessed more than once
+		for ( int key = 0; key < 50; key++ ) {
+			store.put ( "hot", key, "Hot " + key );
+			store.get ( "hot", key );
+		}
+
+		// A long scan of entries used once, with a plain LRU, this would evict the hot entries
+		for ( int key = 0; key < 1000; key++ )
+			store.put ( "scan", key, "Scan " + key );
+
+		store.resetStats ();
+		for ( int key = 0; key < 50; key++ )
+			assertNotNull ( "Hot entry evicted by a scan!", store.get ( "hot", key ) );
+		assertEquals ( "Wrong hit rate!", 1.0, store.getHitRate (), 0 );
+		assertEquals ( "Wrong size!", 100, store.size () );
+	}
+
+	@Test
+	public void testWeight ()
+	{
+		List<String> evictedValues = new ArrayList<> ();
+		BoundedObjectStore<String, Integer, String> store = new BoundedObjectStore<String, Integer, String> (
+			100, String::length
+		)
+		.withEvictionListener ( ( type, key, value ) -> evictedValues.add ( value ) );
+
+		store.put ( "type", 1, "a".repeat ( 40 ) );
+		store.put ( "type", 2, "b".repeat ( 40 ) );
+		assertEquals ( "Wrong weight!", 80, store.getWeight () );
+
+		// Replacement changes the weight
+		store.put ( "type", 1, "a".repeat ( 10 ) );
+		assertEquals ( "Wrong weight after replacement!", 50, store.getWeight () );
+
+		store.put ( "type", 3, "c".repeat ( 60 ) );
+		assertEquals ( "Wrong weight after eviction!", 70, store.getWeight () );
+		assertEquals ( "Wrong evicted value!", List.of ( "b".repeat ( 40 ) ), evictedValues );
+
+		// Heavier than the max, evicted straight away, without evicting the others
+		store.put ( "type", 4, "d".repeat ( 101 ) );
+		assertNull ( "Too heavy entry not evicted!", store.get ( "type", 4 ) );
+		assertEquals ( "Wrong size after too heavy entry!", 2, store.size () );
+		assertTrue ( "Too heavy entry not notified!", evictedValues.contains ( "d".repeat ( 101 ) ) );
+	}
+}
@@ -0,0 +1,84 @@
+package uk.ac.ebi.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrentObjectStore}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ConcurrentObjectStoreTest
+{
+	@Test
+	public void testBasics ()
+	{
+		ConcurrentObjectStore<String, Integer, String> store = new ConcurrentObjectStore<> ();
+		store.put ( "type1", 1, "Object 1.1" );
+		store.put ( "type1", 2, "Object 1.2" );
+		store.put ( "type2", 1, "Object 2.1" );
+		store.put ( "type2", 1, "Object 2.1b" );
+
+		assertEquals ( "Wrong size!", 3, store.size () );
+		assertEquals ( "Wrong value!", "Object 2.1b", store.get ( "type2", 1 ) );
+		assertNull ( "Wrong value for a non-existing type!", store.get ( "type3", 1 ) );
+
+		assertEquals ( "putIfAbsent() didn't return the existing value!",
+			"Object 1.1", store.putIfAbsent ( "type1", 1, "Object 1.1b" )
+		);
+		assertEquals ( "putIfAbsent() changed the existing value!", "Object 1.1", store.get ( "type1", 1 ) );
+		assertNull ( "putIfAbsent() didn't store the new value!", store.putIfAbsent ( "type1", 3, "Object 1.3" ) );
+		assertEquals ( "Wrong size after putIfAbsent()!", 4, store.size () );
+
+		assertEquals ( "computeIfAbsent() didn't return the existing value!",
+			"Object 1.3", store.computeIfAbsent ( "type1", 3, k -> "Object 1.3b" )
+		);
+		assertNull ( "computeIfAbsent() stored a null value!", store.computeIfAbsent ( "type1", 4, k -> null ) );
+		assertEquals ( "Wrong size after computeIfAbsent()!", 4, store.size () );
+
+		store.put ( "type1", 1, null );
+		store.put ( "type1", 1, null );
+		store.put ( "type5", 1, null );
+		assertEquals ( "Wrong size after removal!", 3, store.size () );
+
+		store.remove ( "type1" );
+		assertEquals ( "Wrong size after type removal!", 1, store.size () );
+		assertNull ( "Type removal didn't work!", store.get ( "type1", 2 ) );
+	}
+
+	@Test
+	public void testDedupConcurrency () throws InterruptedException
+	{
+		ConcurrentObjectStore<String, Integer, Object> store = new ConcurrentObjectStore<> ();
+		final int nthreads = 8, nkeys = 10000;
+		AtomicInteger winners = new AtomicInteger ();
+
+		ExecutorService executor = Executors.newFixedThreadPool ( nthreads );
+		for ( int t = 0; t < nthreads; t++ )
+			executor.submit ( () ->
+			{
+				for ( int key = 0; key < nkeys; key++ )
+				{
+					Object candidate = new Object ();
+					Object existing = store.putIfAbsent ( "type" + key % 3, key, candidate );
+					if ( existing == null ) winners.incrementAndGet ();
+					else assertSame ( "Wrong existing value!", existing, store.get ( "type" + key % 3, key ) );
+				}
+			});
+		executor.shutdown ();
+		executor.awaitTermination ( 1, TimeUnit.MINUTES );
+
+		assertEquals ( "Wrong no. of putIfAbsent() winners!", nkeys, winners.get () );
+		assertEquals ( "Wrong size!", nkeys, store.size () );
+	}
+}
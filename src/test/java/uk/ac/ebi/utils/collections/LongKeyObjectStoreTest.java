@@ -0,0 +1,164 @@
+package uk.ac.ebi.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LongKeyObjectStore} and {@link LongKeyHashMap}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class LongKeyObjectStoreTest
+{
+	@Test
+	public void testBasics ()
+	{
+		LongKeyObjectStore<String, String> store = new LongKeyObjectStore<> ();
+		store.put ( "type1", 1, "Object 1.1" );
+		store.put ( "type1", 2L, "Object 1.2" );
+		store.put ( "type2", 1, "Object 2.1" );
+
+		assertEquals ( "Wrong size!", 3, store.size () );
+		assertEquals ( "Wrong get()!", "Object 1.2", store.get ( "type1", 2 ) );
+		assertEquals ( "Wrong boxed get()!", "Object 2.1", store.get ( "type2", Long.valueOf ( 1 ) ) );
+		assertEquals ( "Wrong types!", Set.of ( "type1", "type2" ), store.types () );
+		assertEquals ( "Wrong typeKeys()!", Set.of ( 1L, 2L ), store.typeKeys ( "type1" ) );
+		assertEquals ( "Wrong values()!", Set.of ( "Object 1.1", "Object 1.2" ), Set.copyOf ( store.values ( "type1" ) ) );
+
+		store.put ( "type1", 1, null );
+		store.put ( "type1", 100, null );
+		store.put ( "type3", 100, null );
+		assertNull ( "Removal didn't work!", store.get ( "type1", 1 ) );
+		assertEquals ( "Wrong size after removal!", 2, store.size () );
+
+		store.remove ( "type1" );
+		assertEquals ( "Wrong size after type removal!", 1, store.size () );
+	}
+
+	@Test
+	public void testAgainstHashMap ()
+	{
+		randomOps ( new LongKeyObjectStore<> () );
+	}
+
+	@Test
+	public void testOffHeap ()
+	{
+		LongKeyObjectStore<String, String> store = new LongKeyObjectStore<> ( ValueCodec.utf8 () );
+		randomOps ( store );
+
+		long usedBytes = store.getOffHeapUsedBytes ();
+		assertTrue ( "No wasted off-heap bytes!", store.getOffHeapWastedBytes () > 0 );
+
+		Map<Long, String> before = new HashMap<> ();
+		for ( long key: store.typeKeys ( "type" ) ) before.put ( key, store.get ( "type", key ) );
+
+		store.compact ();
+
+		assertTrue ( "Compaction didn't work!", store.getOffHeapUsedBytes () < usedBytes );
+		assertEquals ( "Wrong wasted bytes after compaction!", 0, store.getOffHeapWastedBytes () );
+		for ( long key: before.keySet () )
+			assertEquals ( "Wrong value after compaction!", before.get ( key ), store.get ( "type", key ) );
+	}
+
+	@Test
+	public void testJavaSerializationCodec ()
+	{
+		LongKeyObjectStore<String, Integer> store = new LongKeyObjectStore<> ( ValueCodec.javaSerialization () );
+		for ( int i = 0; i < 1000; i++ ) store.put ( "type", i, i * 2 );
+		for ( int i = 0; i < 1000; i++ ) assertEquals ( "Wrong value!", Integer.valueOf ( i * 2 ), store.get ( "type", i ) );
+	}
+
+	@Test
+	public void testViewsContains ()
+	{
+		LongKeyHashMap<String> map = new LongKeyHashMap<> ();
+		for ( long i = 0; i < 1000; i++ ) map.put ( i, "v" + i );
+
+		assertTrue ( "keySet().contains() failed!", map.keySet ().contains ( 500L ) );
+		assertFalse ( "keySet().contains() failed with a missing key!", map.keySet ().contains ( 5000L ) );
+		assertFalse ( "keySet().contains() failed with a non-Long!", map.keySet ().contains ( 500 ) );
+		assertTrue ( "entrySet().contains() failed!", map.entrySet ().contains ( new SimpleImmutableEntry<> ( 500L, "v500" ) ) );
+		assertFalse ( 
+			"entrySet().contains() failed with a wrong value!", 
+			map.entrySet ().contains ( new SimpleImmutableEntry<> ( 500L, "v501" ) ) 
+		);
+		assertFalse ( "entrySet().contains() failed with a non-entry!", map.entrySet ().contains ( 500L ) );
+	}
+
+	@Test
+	public void testFailingCodec ()
+	{
+		ValueCodec<String> utf8 = ValueCodec.utf8 ();
+		LongKeyHashMap<String> map = new LongKeyHashMap<> ( 16, new ValueCodec<String> ()
+		{
+			@Override
+			public byte[] encode ( String value ) {
+				if ( value.isEmpty () ) throw new IllegalArgumentException ( "Test codec failure" );
+				return utf8.encode ( value );
+			}
+
+			@Override
+			public String decode ( byte[] data ) {
+				return utf8.decode ( data );
+			}
+		});
+		map.put ( 1L, "v1" );
+
+		try {
+			map.put ( 2L, "" );
+			fail ( "The codec failure wasn't propagated!" );
+		}
+		catch ( IllegalArgumentException ex ) {
+			// Expected
+		}
+
+		assertEquals ( "Wrong size after a codec failure!", 1, map.size () );
+		assertFalse ( "Key added despite the codec failure!", map.containsKey ( 2L ) );
+		assertEquals ( "Wrong keys after a codec failure!", Set.of ( 1L ), map.keySet () );
+	}
+
+	/**
+	 * Random puts, updates and removals, checked against a {@link HashMap}.
+	 */
+	private void randomOps ( LongKeyObjectStore<String, String> store )
+	{
+		Map<Long, String> reference = new HashMap<> ();
+		Random rnd = new Random ( 42 );
+
+		for ( int i = 0; i < 200000; i++ )
+		{
+			// A small range, so that there are many collisions, updates and removals
+			long key = rnd.nextInt ( 20000 ) * 31L - 100000;
+			if ( rnd.nextInt ( 3 ) == 0 ) {
+				store.put ( "type", key, null );
+				reference.remove ( key );
+			}
+			else {
+				String value = "v" + i;
+				store.put ( "type", key, value );
+				reference.put ( key, value );
+			}
+		}
+
+		assertEquals ( "Wrong size!", reference.size (), store.size () );
+		assertEquals ( "Wrong keys!", reference.keySet (), store.typeKeys ( "type" ) );
+		for ( Map.Entry<Long, String> e: reference.entrySet () )
+			assertEquals ( "Wrong value!", e.getValue (), store.get ( "type", e.getKey () ) );
+		for ( long key = -100000; key < 0; key += 7 )
+			if ( !reference.containsKey ( key ) ) assertNull ( "Unexpected value!", store.get ( "type", key ) );
+	}
+}
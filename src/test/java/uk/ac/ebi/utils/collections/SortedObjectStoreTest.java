@@ -0,0 +1,119 @@
+package uk.ac.ebi.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the queries of {@link SortedObjectStore} and {@link SortedObjectStoreSnapshot}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SortedObjectStoreTest
+{
+	private SortedObjectStore<String, String, Integer> store = new SortedObjectStore<> ();
+
+	public SortedObjectStoreTest ()
+	{
+		int i = 0;
+		for ( String key: new String[] { "apple", "apricot", "banana", "blueberry", "cherry", "ap" } )
+			store.put ( "fruit", key, i++ );
+		store.put ( "veg", "carrot", i++ );
+	}
+
+	@Test
+	public void testRanges ()
+	{
+		assertEquals ( "Wrong range!",
+			List.of ( "apricot", "banana" ), new ArrayList<> ( store.range ( "fruit", "apricot", "blueberry" ).keySet () )
+		);
+		assertEquals ( "Wrong open range!",
+			List.of ( "blueberry", "cherry" ), new ArrayList<> ( store.range ( "fruit", "b", null ).tailMap ( "bb" ).keySet () )
+		);
+		assertTrue ( "Wrong range for a non-existing type!", store.range ( "meat", null, null ).isEmpty () );
+		assertTrue ( "Wrong inverted range!", store.range ( "fruit", "cherry", "apricot" ).isEmpty () );
+
+		assertEquals ( "Wrong prefix!",
+			List.of ( "ap", "apple", "apricot" ), new ArrayList<> ( store.prefix ( "fruit", "ap" ).keySet () )
+		);
+		assertEquals ( "Wrong empty prefix!", 6, store.prefix ( "fruit", "" ).size () );
+
+		assertEquals ( "Wrong floor!", "banana", store.floor ( "fruit", "bb" ).getKey () );
+		assertEquals ( "Wrong exact floor!", "banana", store.floor ( "fruit", "banana" ).getKey () );
+		assertNull ( "Wrong null floor!", store.floor ( "fruit", "a" ) );
+		assertEquals ( "Wrong ceiling!", "blueberry", store.ceiling ( "fruit", "bb" ).getKey () );
+		assertNull ( "Wrong null ceiling!", store.ceiling ( "fruit", "z" ) );
+	}
+
+	@Test
+	public void testSnapshotQueries ()
+	{
+		SortedObjectStoreSnapshot<String, String, Integer> snapshot = store.snapshot ();
+
+		assertEquals ( "Wrong size!", 7, snapshot.size () );
+		assertEquals ( "Wrong types!", List.of ( "fruit", "veg" ), snapshot.types () );
+		assertEquals ( "Wrong get()!", 2, (int) snapshot.get ( "fruit", "banana" ) );
+		assertNull ( "Wrong get() for a non-existing key!", snapshot.get ( "fruit", "kiwi" ) );
+		assertNull ( "Wrong get() for a non-existing type!", snapshot.get ( "meat", "beef" ) );
+		assertEquals ( "Wrong type keys!",
+			List.of ( "ap", "apple", "apricot", "banana", "blueberry", "cherry" ), snapshot.typeKeys ( "fruit" )
+		);
+		assertEquals ( "Wrong values!", List.of ( 6 ), snapshot.values ( "veg" ) );
+
+		assertEquals ( "Wrong range!",
+			List.of ( "apricot", "banana" ), keys ( snapshot.range ( "fruit", "apricot", "blueberry" ) )
+		);
+		assertEquals ( "Wrong prefix!", List.of ( "ap", "apple", "apricot" ), keys ( snapshot.prefix ( "fruit", "ap" ) ) );
+		assertEquals ( "Wrong floor!", "banana", snapshot.floor ( "fruit", "bb" ).getKey () );
+		assertNull ( "Wrong null floor!", snapshot.floor ( "fruit", "a" ) );
+		assertEquals ( "Wrong ceiling!", "blueberry", snapshot.ceiling ( "fruit", "bb" ).getKey () );
+		assertNull ( "Wrong null ceiling!", snapshot.ceiling ( "fruit", "z" ) );
+	}
+
+	/**
+	 * Compares the snapshot with the store, using random keys and a custom comparator
+	 */
+	@Test
+	public void testSnapshotAgainstStore ()
+	{
+		SortedObjectStore<Integer, Integer, Integer> intStore = new SortedObjectStore<Integer, Integer, Integer> (
+			null, Comparator.<Integer>reverseOrder ()
+		);
+		Random rnd = new Random ( 42 );
+		for ( int i = 0; i < 10000; i++ )
+			intStore.put ( rnd.nextInt ( 5 ), rnd.nextInt ( 100000 ), i );
+
+		SortedObjectStoreSnapshot<Integer, Integer, Integer> snapshot = intStore.snapshot ();
+		assertEquals ( "Wrong snapshot size!", intStore.size (), snapshot.size () );
+
+		for ( int i = 0; i < 10000; i++ )
+		{
+			// key1 can be on both sides of key, so some ranges are inverted
+			int type = rnd.nextInt ( 6 ), key = rnd.nextInt ( 100000 ), key1 = key + rnd.nextInt ( 2001 ) - 1000;
+
+			assertEquals ( "Wrong get()!", intStore.get ( type, key ), snapshot.get ( type, key ) );
+			assertEquals ( "Wrong floor()!", intStore.floor ( type, key ), snapshot.floor ( type, key ) );
+			assertEquals ( "Wrong ceiling()!", intStore.ceiling ( type, key ), snapshot.ceiling ( type, key ) );
+			assertEquals ( "Wrong range()!",
+				new ArrayList<> ( intStore.range ( type, key, key1 ).entrySet () ), snapshot.range ( type, key, key1 )
+			);
+		}
+	}
+
+	private static List<String> keys ( List<Entry<String, Integer>> entries )
+	{
+		List<String> result = new ArrayList<> ();
+		for ( Entry<String, Integer> e: entries ) result.add ( e.getKey () );
+		return result;
+	}
+}
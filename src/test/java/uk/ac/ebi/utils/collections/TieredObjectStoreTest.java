@@ -0,0 +1,96 @@
+package uk.ac.ebi.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TieredObjectStore}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class TieredObjectStoreTest
+{
+	@Test
+	public void testSpilling ()
+	{
+		try ( TieredObjectStore<String, Integer, String> store = new TieredObjectStore<> ( 100, ValueCodec.utf8 () ) )
+		{
+			for ( int key = 0; key < 1000; key++ )
+				store.put ( "type" + key % 2, key, "Object " + key );
+
+			assertEquals ( "Wrong size!", 1000, store.size () );
+			assertEquals ( "Wrong hot size!", 100, store.getHotStore ().size () );
+			assertEquals ( "Wrong cold size!", 900, store.getColdSize () );
+			assertTrue ( "Nothing written to the disk!", store.getDiskBytes () > 0 );
+
+			// Transparent lookups, with cold entries moved back to the heap
+			for ( int key = 0; key < 1000; key++ )
+				assertEquals ( "Wrong value!", "Object " + key, store.get ( "type" + key % 2, key ) );
+			assertEquals ( "Wrong size after the gets!", 1000, store.size () );
+			assertTrue ( "No cold hits!", store.getColdHits () >= 900 );
+			assertNull ( "Wrong value for a non-existing key!", store.get ( "type0", 1 ) );
+
+			// Views over both tiers
+			assertEquals ( "Wrong types!", Set.of ( "type0", "type1" ), store.types () );
+			assertEquals ( "Wrong type keys!", 500, store.typeKeys ( "type0" ).size () );
+			Set<String> values = new HashSet<> ( store.values ( "type1" ) );
+			assertEquals ( "Wrong type values!", 500, values.size () );
+			assertTrue ( "Wrong type values!", values.contains ( "Object 1" ) );
+
+			// Updates and removals
+			store.put ( "type0", 0, "Object 0b" );
+			store.put ( "type0", 2, null );
+			assertEquals ( "Wrong size after updates!", 999, store.size () );
+			assertEquals ( "Wrong updated value!", "Object 0b", store.get ( "type0", 0 ) );
+			assertNull ( "Removal didn't work!", store.get ( "type0", 2 ) );
+
+			store.remove ( "type1" );
+			assertEquals ( "Wrong size after type removal!", 499, store.size () );
+			assertNull ( "Type removal didn't work!", store.get ( "type1", 1 ) );
+		}
+	}
+
+	@Test
+	public void testCompact () throws Exception
+	{
+		Path spillDir = Files.createTempDirectory ( "tiered-store-test-" );
+
+		TieredObjectStore<String, Integer, Integer> store = new TieredObjectStore<> (
+			10, ValueCodec.javaSerialization (), spillDir
+		);
+		for ( int key = 0; key < 100; key++ )
+			store.put ( "type", key, key );
+		for ( int key = 0; key < 50; key++ )
+			store.put ( "type", key, null );
+
+		long diskBytes = store.getDiskBytes ();
+		assertTrue ( "No wasted space!", store.getWastedDiskBytes () > 0 );
+
+		store.compact ();
+		assertTrue ( "Compaction didn't reduce the disk size!", store.getDiskBytes () < diskBytes );
+		assertEquals ( "Wasted space after compaction!", 0, store.getWastedDiskBytes () );
+		for ( int key = 50; key < 100; key++ )
+			assertEquals ( "Wrong value after compaction!", key, (int) store.get ( "type", key ) );
+		// On some systems, DELETE_ON_CLOSE unlinks the current file too, straight after its opening
+		try ( var files = Files.list ( spillDir ) ) {
+			assertTrue ( "Old spill file not deleted!", files.count () <= 1 );
+		}
+
+		store.close ();
+		try ( var files = Files.list ( spillDir ) ) {
+			assertFalse ( "Spill file not deleted!", files.findAny ().isPresent () );
+		}
+		Files.delete ( spillDir );
+	}
+}
@@ -0,0 +1,194 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import reactor.core.publisher.Flux;
+import uk.ac.ebi.utils.exceptions.UncheckedInterruptedException;
+import uk.ac.ebi.utils.opt.runcontrol.BatchErrorHandler.Strategy;
+import uk.ac.ebi.utils.opt.runcontrol.ReactorUtils.ParallelBatchFluxBuilder;
+import uk.ac.ebi.utils.runcontrol.MultipleAttemptsExecutor;
+
+/**
+ * Tests for {@link BatchErrorHandler}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BatchErrorHandlerTest
+{
+	private static final int N_ITEMS = 1000;
+	private static final Set<Integer> BAD_ITEMS = Set.of ( 13, 500, 501, 998 );
+
+	private final AtomicLong processedSum = new AtomicLong ();
+	private final Set<Integer> deadLetters = ConcurrentHashMap.newKeySet ();
+
+	/**
+	 * Fails if the batch contains a bad item, else sums the items.
+	 */
+	private void task ( List<Integer> batch )
+	{
+		for ( Integer item: batch )
+			if ( BAD_ITEMS.contains ( item ) ) throw new IllegalArgumentException ( "Bad item: " + item );
+		processedSum.addAndGet ( batch.stream ().mapToLong ( Integer::longValue ).sum () );
+	}
+
+	private void runBatches ( BatchErrorHandler<Integer> handler )
+	{
+		handler.withDeadLetterSink ( ( items, ex ) -> deadLetters.addAll ( items ) );
+
+		ReactorUtils.batchProcessing (
+			new ParallelBatchFluxBuilder<Integer, List<Integer>> ( Flux.range ( 0, N_ITEMS ) )
+				.withBatchSize ( 100 )
+				.build (),
+			handler.wrap ( this::task )
+		);
+	}
+
+	private static long sum ( IntStream items ) {
+		return items.asLongStream ().sum ();
+	}
+
+	@Test
+	public void testFailFast ()
+	{
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<> ( Strategy.FAIL_FAST );
+		assertThrows ( IllegalArgumentException.class, () -> runBatches ( handler ) );
+		assertEquals ( "Dead letters with fail-fast!", 0, deadLetters.size () );
+	}
+
+	@Test
+	public void testSkip ()
+	{
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<> ( Strategy.SKIP );
+		runBatches ( handler );
+
+		// Batches 0, 5 and 9 fail
+		Set<Integer> expectedDead = IntStream.range ( 0, N_ITEMS )
+			.filter ( i -> i / 100 == 0 || i / 100 == 5 || i / 100 == 9 )
+			.boxed ()
+			.collect ( Collectors.toSet () );
+
+		assertEquals ( "Wrong dead letters!", expectedDead, deadLetters );
+		assertEquals ( "Wrong failed batches!", 3, handler.getFailedBatches () );
+		assertEquals ( "Wrong processed items!",
+			sum ( IntStream.range ( 0, N_ITEMS ).filter ( i -> !expectedDead.contains ( i ) ) ), processedSum.get ()
+		);
+	}
+
+	@Test
+	public void testRetry ()
+	{
+		// A transient failure, the first time a batch is seen
+		Set<Integer> seenBatches = ConcurrentHashMap.newKeySet ();
+		AtomicInteger calls = new AtomicInteger ();
+
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<Integer> ( Strategy.RETRY )
+			.withRetryExecutor ( new MultipleAttemptsExecutor ( 3, 0, 10, IllegalStateException.class ) )
+			.withDeadLetterSink ( ( items, ex ) -> deadLetters.addAll ( items ) );
+
+		ReactorUtils.batchProcessing (
+			new ParallelBatchFluxBuilder<Integer, List<Integer>> ( Flux.range ( 0, N_ITEMS ) )
+				.withBatchSize ( 100 )
+				.build (),
+			handler.wrap ( batch -> {
+				calls.incrementAndGet ();
+				if ( seenBatches.add ( batch.get ( 0 ) ) ) throw new IllegalStateException ( "Transient failure" );
+				processedSum.addAndGet ( batch.stream ().mapToLong ( Integer::longValue ).sum () );
+			})
+		);
+
+		assertEquals ( "Wrong processed items!", sum ( IntStream.range ( 0, N_ITEMS ) ), processedSum.get () );
+		assertEquals ( "Wrong no. of calls!", 20, calls.get () );
+		assertEquals ( "Dead letters with transient failures!", 0, deadLetters.size () );
+		assertEquals ( "Failed batches with transient failures!", 0, handler.getFailedBatches () );
+	}
+
+	@Test
+	public void testSplitAndRetry ()
+	{
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<Integer> ( Strategy.SPLIT_AND_RETRY )
+			.withRetryExecutor ( new MultipleAttemptsExecutor ( 1, 0, 0, IllegalStateException.class ) );
+		runBatches ( handler );
+
+		assertEquals ( "Bad items not isolated!", BAD_ITEMS, deadLetters );
+		assertEquals ( "Wrong dead letter count!", BAD_ITEMS.size (), handler.getDeadLetterItems () );
+		assertEquals ( "Wrong processed items!",
+			sum ( IntStream.range ( 0, N_ITEMS ).filter ( i -> !BAD_ITEMS.contains ( i ) ) ), processedSum.get ()
+		);
+	}
+
+	@Test
+	public void testSplitAndRetryDefaults ()
+	{
+		AtomicInteger calls = new AtomicInteger ();
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<Integer> ( Strategy.SPLIT_AND_RETRY )
+			.withDeadLetterSink ( ( items, ex ) -> deadLetters.addAll ( items ) );
+
+		handler.wrap ( ( List<Integer> batch ) -> {
+			calls.incrementAndGet ();
+			if ( batch.contains ( 0 ) ) throw new IllegalStateException ( "On-purpose failure" );
+		}).accept ( List.of ( 0, 1, 2, 3 ) );
+
+		// [0,1,2,3] fails, [0,1] fails, [0] fails, [1] and [2,3] succeed, no re-attempts
+		assertEquals ( "Wrong no. of calls with the default single attempt!", 5, calls.get () );
+		assertEquals ( "Bad item not isolated!", Set.of ( 0 ), deadLetters );
+	}
+
+	@Test
+	public void testInterruption ()
+	{
+		AtomicInteger calls = new AtomicInteger ();
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<Integer> ( Strategy.RETRY )
+			.withRetryExecutor ( new MultipleAttemptsExecutor ( 3, 0, 10, Exception.class ) )
+			.withDeadLetterSink ( ( items, ex ) -> deadLetters.addAll ( items ) );
+
+		try
+		{
+			assertThrows ( UncheckedInterruptedException.class, () -> handler.wrap ( batch -> {
+				calls.incrementAndGet ();
+				throw new UncheckedInterruptedException ( "On-purpose interruption" );
+			}).accept ( List.of ( 1, 2, 3 ) ) );
+			assertTrue ( "Interruption flag not restored!", Thread.currentThread ().isInterrupted () );
+		}
+		finally {
+			Thread.interrupted ();
+		}
+
+		assertEquals ( "Interruption re-attempted!", 1, calls.get () );
+		assertEquals ( "Interruption sent to the dead letters!", 0, deadLetters.size () );
+		assertEquals ( "Interruption counted as a failure!", 0, handler.getFailedBatches () );
+	}
+
+	@Test
+	public void testCancellation ()
+	{
+		AtomicInteger calls = new AtomicInteger ();
+		BatchErrorHandler<Integer> handler = new BatchErrorHandler<Integer> ( Strategy.SPLIT_AND_RETRY )
+			.withRetryExecutor ( new MultipleAttemptsExecutor ( 3, 0, 10, Exception.class ) )
+			.withDeadLetterSink ( ( items, ex ) -> deadLetters.addAll ( items ) );
+
+		assertThrows ( CancellationException.class, () -> handler.wrap ( batch -> {
+			calls.incrementAndGet ();
+			throw new CancellationException ( "On-purpose cancellation" );
+		}).accept ( List.of ( 1, 2, 3 ) ) );
+
+		assertEquals ( "Cancellation re-attempted or split!", 1, calls.get () );
+		assertEquals ( "Cancellation sent to the dead letters!", 0, deadLetters.size () );
+		assertFalse ( "Cancellation set the interruption flag!", Thread.interrupted () );
+	}
+}
@@ -0,0 +1,113 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Tests for {@link BatchWriter}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BatchWriterTest
+{
+	@Test
+	public void testPipeline ()
+	{
+		int max = 10000;
+		StageStats processingStats = new StageStats ( "processing" );
+
+		AtomicLong writtenSum = new AtomicLong ();
+		AtomicInteger inFlight = new AtomicInteger (), maxInFlight = new AtomicInteger ();
+
+		BatchWriter<Long> writer = BatchWriter.<Long> of ( results ->
+		{
+			maxInFlight.accumulateAndGet ( inFlight.incrementAndGet (), Math::max );
+			Uninterruptibles.sleepUninterruptibly ( Duration.ofMillis ( 10 ) );
+			writtenSum.addAndGet ( results.stream ().mapToLong ( Long::longValue ).sum () );
+			inFlight.decrementAndGet ();
+		})
+		.withCommitSize ( 7 )
+		.withMaxInFlight ( 2 );
+
+		List<List<Long>> commits = ReactorUtils.batchMapping (
+			new ReactorUtils.ParallelBatchFluxBuilder<Integer, List<Integer>> ( Flux.range ( 0, max ) )
+				.withBatchSize ( 100 )
+				.build (),
+			batch -> batch.stream ().mapToLong ( Integer::longValue ).sum (),
+			processingStats
+		)
+		.transform ( writer )
+		.collectList ()
+		.block ();
+
+		assertEquals ( "Wrong written result!", (long) max * ( max - 1 ) / 2, writtenSum.get () );
+		// 100 batch sums, in groups of 7
+		assertEquals ( "Wrong no. of commits!", 15, commits.size () );
+		assertTrue ( "Too many commits in flight!", maxInFlight.get () <= 2 );
+
+		assertEquals ( "Wrong processing calls!", 100, processingStats.getCalls () );
+		assertEquals ( "Wrong processing items!", max, processingStats.getItems () );
+		assertEquals ( "Wrong writer calls!", 15, writer.getStats ().getCalls () );
+		assertEquals ( "Wrong writer items!", 100, writer.getStats ().getItems () );
+		assertTrue ( "No writer throughput!", writer.getStats ().getThroughput () > 0 );
+	}
+
+	@Test
+	public void testAsyncProcessing ()
+	{
+		int max = 1000;
+		AtomicInteger inFlight = new AtomicInteger (), maxInFlight = new AtomicInteger ();
+
+		Long sum = ReactorUtils.batchMappingAsync (
+			new ReactorUtils.ParallelBatchFluxBuilder<Integer, List<Integer>> ( Flux.range ( 0, max ) )
+				.withBatchSize ( 10 )
+				.build (),
+			batch -> Mono.fromCallable ( () -> {
+				maxInFlight.accumulateAndGet ( inFlight.incrementAndGet (), Math::max );
+				Uninterruptibles.sleepUninterruptibly ( Duration.ofMillis ( 5 ) );
+				inFlight.decrementAndGet ();
+				return batch.stream ().mapToLong ( Integer::longValue ).sum ();
+			})
+			.subscribeOn ( Schedulers.boundedElastic () ),
+			3
+		)
+		.reduce ( 0L, Long::sum )
+		.block ();
+
+		assertEquals ( "Wrong result!", Long.valueOf ( (long) max * ( max - 1 ) / 2 ), sum );
+		assertTrue ( "Too many batches in flight!", maxInFlight.get () <= 3 );
+	}
+
+	@Test
+	public void testMaxCommitWait ()
+	{
+		AtomicInteger commits = new AtomicInteger ();
+
+		BatchWriter<Long> writer = new BatchWriter<Long> ( results -> Mono.fromRunnable ( commits::incrementAndGet ) )
+			.withCommitSize ( 1000 )
+			.withMaxCommitWait ( Duration.ofMillis ( 50 ) );
+
+		Flux.interval ( Duration.ofMillis ( 20 ) )
+			.take ( 10 )
+			.transform ( writer )
+			.blockLast ();
+
+		assertTrue ( "No periodic commits!", commits.get () > 1 );
+		assertEquals ( "Wrong written items!", 10, writer.getStats ().getItems () );
+	}
+}
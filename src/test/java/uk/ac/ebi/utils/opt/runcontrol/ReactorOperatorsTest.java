@@ -0,0 +1,152 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.ac.ebi.utils.runcontrol.CircuitBreakerExecutor;
+import uk.ac.ebi.utils.runcontrol.ExecutionListener;
+import uk.ac.ebi.utils.runcontrol.MultipleAttemptsExecutor;
+import uk.ac.ebi.utils.runcontrol.RateLimitedExecutor;
+import uk.ac.ebi.utils.runcontrol.StatsExecutor;
+import uk.ac.ebi.utils.runcontrol.TokenBucket;
+import uk.ac.ebi.utils.runcontrol.exceptions.CircuitBreakerOpenException;
+
+/**
+ * Tests for {@link ReactorOperators}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ReactorOperatorsTest
+{
+	@Test
+	public void testRateLimited ()
+	{
+		RateLimitedExecutor executor = new RateLimitedExecutor ( new TokenBucket ( 10, 1 ) );
+
+		long start = System.currentTimeMillis ();
+		List<Integer> result = Flux.range ( 0, 5 )
+			.transform ( ReactorOperators.rateLimited ( executor ) )
+			.collectList ()
+			.block ();
+		long time = System.currentTimeMillis () - start;
+
+		assertEquals ( "Wrong result!", List.of ( 0, 1, 2, 3, 4 ), result );
+		// The first is immediate, the others come at 10/s
+		assertTrue ( "Rate limit not applied, time is " + time, time >= 350 );
+	}
+
+	@Test
+	public void testRetry ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 3, 10, 50, IllegalStateException.class );
+
+		AtomicInteger subscriptions = new AtomicInteger ( 0 );
+		String result = Mono.defer ( () ->
+			subscriptions.incrementAndGet () < 3
+				? Mono.<String> error ( new IllegalStateException ( "Test failure" ) )
+				: Mono.just ( "OK" )
+		)
+		.flux ()
+		.transform ( ReactorOperators.retry ( executor ) )
+		.blockLast ();
+
+		assertEquals ( "Wrong result!", "OK", result );
+		assertEquals ( "Wrong no. of attempts!", 3, subscriptions.get () );
+	}
+
+	@Test
+	public void testRetryNotIntercepted ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 3, 10, 50, IllegalStateException.class );
+
+		AtomicInteger subscriptions = new AtomicInteger ( 0 );
+		Flux<String> flux = Flux.<String> defer ( () -> {
+			subscriptions.incrementAndGet ();
+			return Flux.error ( new IllegalArgumentException ( "Test failure" ) );
+		})
+		.transform ( ReactorOperators.retry ( executor ) );
+
+		assertThrows ( IllegalArgumentException.class, flux::blockLast );
+		assertEquals ( "Non-intercepted exception was re-attempted!", 1, subscriptions.get () );
+	}
+
+	@Test
+	public void testTimeout ()
+	{
+		Flux<Long> flux = Mono.delay ( Duration.ofSeconds ( 2 ) )
+			.flux ()
+			.transform ( ReactorOperators.timeout ( Duration.ofMillis ( 100 ) ) );
+
+		assertThrows ( UncheckedTimeoutException.class, flux::blockLast );
+	}
+
+	@Test
+	public void testStats ()
+	{
+		StatsExecutor executor = new StatsExecutor ( "test" );
+		AtomicInteger successes = new AtomicInteger ( 0 ), failures = new AtomicInteger ( 0 );
+		executor.addListener ( new ExecutionListener ()
+		{
+			@Override
+			public void onSuccess ( Object source, long durationNanos ) {
+				successes.incrementAndGet ();
+			}
+
+			@Override
+			public void onFailure ( Object source, long durationNanos, Throwable cause ) {
+				failures.incrementAndGet ();
+			}
+		});
+
+		Flux.range ( 0, 3 )
+			.transform ( ReactorOperators.stats ( executor ) )
+			.blockLast ();
+
+		Flux<Object> failing = Flux.error ( new IllegalStateException ( "Test failure" ) )
+			.transform ( ReactorOperators.stats ( executor ) );
+		assertThrows ( IllegalStateException.class, failing::blockLast );
+
+		// Not popping up, so no exception here
+		executor.setPopUpExceptions ( false );
+		failing.blockLast ();
+
+		assertEquals ( "Wrong no. of successes!", 1, successes.get () );
+		assertEquals ( "Wrong no. of failures!", 2, failures.get () );
+	}
+
+	@Test
+	public void testCircuitBreaker ()
+	{
+		CircuitBreakerExecutor breaker = new CircuitBreakerExecutor ( "test" );
+		breaker.setWindowSize ( 4 );
+		breaker.setMinCalls ( 4 );
+
+		AtomicInteger subscriptions = new AtomicInteger ( 0 );
+		Flux<Object> failing = Flux.<Object> defer ( () -> {
+			subscriptions.incrementAndGet ();
+			return Flux.error ( new IllegalStateException ( "Test failure" ) );
+		})
+		.transform ( ReactorOperators.circuitBreaker ( breaker ) );
+
+		for ( int i = 0; i < 4; i++ )
+			assertThrows ( IllegalStateException.class, failing::blockLast );
+
+		assertEquals ( "Circuit not open!", CircuitBreakerExecutor.State.OPEN, breaker.getState () );
+
+		assertThrows ( CircuitBreakerOpenException.class, failing::blockLast );
+		assertEquals ( "Upstream subscribed with the circuit open!", 4, subscriptions.get () );
+	}
+}
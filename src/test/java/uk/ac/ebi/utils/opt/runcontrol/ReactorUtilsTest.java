@@ -3,10 +3,14 @@ package uk.ac.ebi.utils.opt.runcontrol;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -15,6 +19,9 @@ import org.apache.commons.lang3.mutable.Mutable;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Test;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
 import uk.ac.ebi.utils.opt.runcontrol.ReactorUtils.ParallelBatchFluxBuilder;
 
@@ -94,5 +101,122 @@ public class ReactorUtilsTest
 		
 		assertEquals ( "Result isn't as expected!", max * (max - 1) / 2, sum.get () );
 		assertTrue ( "parallelism wasn't retrieved from the builder!", parallelism.getValue () > 0 );
-	}	
+	}
+	
+	@Test
+	public void testAdaptiveTuning ()
+	{
+		int max = 200000;
+		
+		AtomicLong sum = new AtomicLong ();
+		
+		try ( AdaptiveBatchTuner tuner = new AdaptiveBatchTuner ( 1, 4, 10, 100000 ) )
+		{
+			tuner.setTargetBatchTime ( 50 );
+			tuner.getParallelismTuner ().setPeriodMSecs ( 100 );
+			
+			ParallelFlux<Set<Integer>> flux = new ParallelBatchFluxBuilder<Integer, Set<Integer>> ( 
+				IntStream.range ( 0, max ).mapToObj ( Integer::valueOf ) 
+			)
+			.withBatchSupplier ( HashSet::new )
+			.withAdaptiveTuner ( tuner )
+			.build ();
+			
+			ReactorUtils.batchProcessing ( flux, b -> {
+				sum.addAndGet ( b.stream ().mapToLong ( Integer::longValue ).sum () );
+				Uninterruptibles.sleepUninterruptibly ( 5, TimeUnit.MILLISECONDS );
+			});
+			
+			// The tuning depends on timing, so here we just check the results, see testAdaptiveBatchSize()
+			assertEquals ( "Result isn't as expected!", (long) max * (max - 1) / 2, sum.get () );
+			assertEquals ( "Processed items not tracked!", max, tuner.getProcessedItems () );
+			assertTrue ( "Invalid batch size!", tuner.getBatchSize () >= 10 && tuner.getBatchSize () <= 100000 );
+		}
+	}
+	
+	/**
+	 * Runs the batch size tuning steps directly, without the tuning thread.
+	 */
+	@Test
+	public void testAdaptiveBatchSize ()
+	{
+		try ( AdaptiveBatchTuner tuner = new AdaptiveBatchTuner ( 1, 4, 10, 100000 ) )
+		{
+			tuner.setTargetBatchTime ( 50 );
+			int initialBatchSize = tuner.getBatchSize ();
+			
+			// Much faster than the target time, so the batch size should grow, by 2 at most
+			for ( int i = 0; i < 10; i++ ) tuner.recordBatch ( initialBatchSize, TimeUnit.MILLISECONDS.toNanos ( 5 ) );
+			tuner.tuneBatchSize ();
+			assertEquals ( "Batch size not increased!", initialBatchSize * 2, tuner.getBatchSize () );
+			
+			// Close to the target, no change
+			for ( int i = 0; i < 10; i++ ) tuner.recordBatch ( initialBatchSize, TimeUnit.MILLISECONDS.toNanos ( 55 ) );
+			tuner.tuneBatchSize ();
+			assertEquals ( "Batch size changed!", initialBatchSize * 2, tuner.getBatchSize () );
+			
+			// Too slow, by 0.5 at most
+			for ( int i = 0; i < 10; i++ ) tuner.recordBatch ( initialBatchSize, TimeUnit.MILLISECONDS.toNanos ( 500 ) );
+			tuner.tuneBatchSize ();
+			assertEquals ( "Batch size not decreased!", initialBatchSize, tuner.getBatchSize () );
+			
+			// No batches in the period, no change
+			tuner.tuneBatchSize ();
+			assertEquals ( "Batch size changed without batches!", initialBatchSize, tuner.getBatchSize () );
+		}
+	}
+	
+	@Test
+	public void testWeightedBatches ()
+	{
+		// One heavy item every 10
+		List<String> items = IntStream.range ( 0, 100 )
+			.mapToObj ( i -> i % 10 == 0 ? "X".repeat ( 15 ) : "x".repeat ( 1 + i % 3 ) )
+			.collect ( Collectors.toList () );
+		
+		List<List<String>> batches = new ParallelBatchFluxBuilder<String, List<String>> ( items )
+		.withBatchSize ( 5 )
+		.withWeigher ( String::length, 10 )
+		.build ()
+		.sequential ()
+		.collectList ()
+		.block ();
+		
+		for ( List<String> batch: batches )
+		{
+			int weight = batch.stream ().mapToInt ( String::length ).sum ();
+			assertTrue ( "Batch too big: " + batch, batch.size () <= 5 );
+			assertTrue ( "Batch too heavy: " + batch, weight <= 10 || batch.size () == 1 );
+		}
+		
+		List<String> flatBatches = batches.stream ().flatMap ( List::stream ).collect ( Collectors.toList () );
+		assertEquals ( "Items lost in the batches!", items.size (), flatBatches.size () );
+		assertEquals ( 
+			"Items lost in the batches!", 
+			items.stream ().collect ( Collectors.toSet () ), Set.copyOf ( flatBatches ) 
+		);
+	}
+	
+	@Test
+	public void testTimedBatches ()
+	{
+		// A slow source, which would never fill a batch in time
+		Flux<Long> source = Flux.interval ( Duration.ofMillis ( 20 ) ).take ( 20 );
+		
+		AtomicLong sum = new AtomicLong ();
+		AtomicInteger nbatches = new AtomicInteger ();
+		
+		ParallelFlux<List<Long>> flux = new ParallelBatchFluxBuilder<Long, List<Long>> ( source )
+		.withBatchSize ( 1000 )
+		.withMaxBatchWait ( Duration.ofMillis ( 100 ) )
+		.build ();
+		
+		ReactorUtils.batchProcessing ( flux, b -> {
+			nbatches.incrementAndGet ();
+			sum.addAndGet ( b.stream ().mapToLong ( Long::longValue ).sum () );
+		});
+
+		assertEquals ( "Result isn't as expected!", 20 * 19 / 2, sum.get () );
+		assertTrue ( "Batches not emitted on time!", nbatches.get () > 1 );
+	}
 }
@@ -0,0 +1,130 @@
+package uk.ac.ebi.utils.opt.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import uk.ac.ebi.utils.opt.runcontrol.SchedulerRegistry.ManagedScheduler;
+import uk.ac.ebi.utils.opt.runcontrol.SchedulerRegistry.WorkloadType;
+
+/**
+ * Tests for {@link SchedulerRegistry}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SchedulerRegistryTest
+{
+	@Test
+	public void testRegistry ()
+	{
+		SchedulerRegistry registry = new SchedulerRegistry ();
+
+		ManagedScheduler cpuSched = registry.getScheduler ( "cpu", WorkloadType.CPU_BOUND );
+		ManagedScheduler ioSched = registry.getScheduler ( "io", WorkloadType.IO_BOUND );
+
+		assertSame ( "Scheduler not reused!", cpuSched, registry.getScheduler ( "cpu", WorkloadType.IO_BOUND ) );
+		assertEquals ( "Wrong CPU-bound size!", Runtime.getRuntime ().availableProcessors (), cpuSched.getMaxThreads () );
+		assertEquals ( "Wrong IO-bound size!", Runtime.getRuntime ().availableProcessors () * 10, ioSched.getMaxThreads () );
+
+		AtomicInteger sum = new AtomicInteger ();
+		Flux.range ( 0, 100 )
+			.parallel ( 4 )
+			.runOn ( ioSched.getScheduler () )
+			.doOnNext ( sum::addAndGet )
+			.sequential ()
+			.blockLast ();
+
+		assertEquals ( "Wrong result!", 100 * 99 / 2, sum.get () );
+		assertTrue ( "Completed tasks not tracked!", ioSched.getCompletedTasks () > 0 );
+
+		assertTrue ( "Disposal failed!", registry.dispose ( "io" ) );
+		assertTrue ( "Scheduler not disposed!", ioSched.isDisposed () );
+		assertNull ( "Disposed scheduler still registered!", registry.getScheduler ( "io" ) );
+		assertNotSame ( "Disposed scheduler reused!", ioSched, registry.getScheduler ( "io", WorkloadType.IO_BOUND ) );
+
+		registry.disposeAll ();
+		assertTrue ( "Schedulers not disposed!", registry.getNames ().isEmpty () );
+		assertTrue ( "Scheduler not disposed!", cpuSched.isDisposed () );
+		assertFalse ( "Disposal of non-existing scheduler succeeded!", registry.dispose ( "foo" ) );
+	}
+
+	@Test
+	public void testMetrics ()
+	{
+		SchedulerRegistry registry = new SchedulerRegistry ();
+		ManagedScheduler managedSched = registry.getScheduler ( "test", 1, 1 );
+		Scheduler scheduler = managedSched.getScheduler ();
+
+		CountDownLatch started = new CountDownLatch ( 1 ), release = new CountDownLatch ( 1 );
+		try
+		{
+			scheduler.schedule ( () -> {
+				started.countDown ();
+				Uninterruptibles.awaitUninterruptibly ( release );
+			});
+			Uninterruptibles.awaitUninterruptibly ( started );
+
+			// This is queued and the next one is rejected
+			scheduler.schedule ( () -> {} );
+			assertThrows ( RejectedExecutionException.class, () -> scheduler.schedule ( () -> {} ) );
+
+			assertEquals ( "Wrong active threads!", 1, managedSched.getActiveThreads () );
+			assertEquals ( "Wrong queue depth!", 1, managedSched.getQueueDepth () );
+			assertEquals ( "Wrong queue capacity!", 1, managedSched.getQueueCapacity () );
+			assertEquals ( "Wrong rejections!", 1, managedSched.getRejectedTasks () );
+		}
+		finally {
+			release.countDown ();
+			registry.disposeAll ();
+		}
+	}
+
+	@Test
+	public void testDisposeCompletesRunningTasks ()
+	{
+		SchedulerRegistry registry = new SchedulerRegistry ();
+		ManagedScheduler managedSched = registry.getScheduler ( "test", 1, 1 );
+
+		CountDownLatch started = new CountDownLatch ( 1 );
+		AtomicBoolean isInterrupted = new AtomicBoolean ( false ), isCompleted = new AtomicBoolean ( false );
+		managedSched.getScheduler ().schedule ( () -> {
+			started.countDown ();
+			try {
+				Thread.sleep ( 200 );
+				isCompleted.set ( true );
+			}
+			catch ( InterruptedException ex ) {
+				isInterrupted.set ( true );
+			}
+		});
+		Uninterruptibles.awaitUninterruptibly ( started );
+
+		assertTrue ( "Disposal failed!", registry.dispose ( "test" ) );
+		assertTrue ( "Scheduler not disposed!", managedSched.isDisposed () );
+		assertThrows (
+			RejectedExecutionException.class, () -> managedSched.getScheduler ().schedule ( () -> {} )
+		);
+
+		assertTrue ( "Scheduler not terminated!", managedSched.awaitTermination ( 5, TimeUnit.SECONDS ) );
+		assertFalse ( "Running task interrupted by the disposal!", isInterrupted.get () );
+		assertTrue ( "Running task not completed!", isCompleted.get () );
+	}
+}
@@ -0,0 +1,109 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.runcontrol.exceptions.BulkheadFullException;
+
+/**
+ * Tests for {@link BulkheadExecutor}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class BulkheadExecutorTest
+{
+	@Test
+	public void testNoWaiting () throws Exception
+	{
+		BulkheadExecutor bulkhead = new BulkheadExecutor ( "test", 2 );
+		CountDownLatch release = new CountDownLatch ( 1 );
+		ExecutorService threads = Executors.newFixedThreadPool ( 2 );
+
+		try
+		{
+			Future<?>[] calls = fillBulkhead ( bulkhead, threads, release );
+
+			assertEquals ( "Wrong active calls!", 2, bulkhead.getActiveCalls () );
+			assertThrows ( BulkheadFullException.class, () -> bulkhead.execute ( () -> {} ) );
+			assertEquals ( "Wrong no. of rejections!", 1, bulkhead.getRejectedCalls () );
+
+			release.countDown ();
+			for ( Future<?> call: calls ) call.get ();
+
+			AtomicInteger runCt = new AtomicInteger ( 0 );
+			bulkhead.execute ( runCt::incrementAndGet );
+			assertEquals ( "Action not run after the slots were freed!", 1, runCt.get () );
+		}
+		finally {
+			threads.shutdownNow ();
+		}
+	}
+
+	@Test
+	public void testWaiting () throws Exception
+	{
+		BulkheadExecutor bulkhead = new BulkheadExecutor ( "test", 2, 1, 300 );
+		CountDownLatch release = new CountDownLatch ( 1 );
+		ExecutorService threads = Executors.newFixedThreadPool ( 3 );
+
+		try
+		{
+			Future<?>[] calls = fillBulkhead ( bulkhead, threads, release );
+
+			// Times out
+			assertThrows ( BulkheadFullException.class, () -> bulkhead.execute ( () -> {} ) );
+			assertEquals ( "Wrong no. of rejections!", 1, bulkhead.getRejectedCalls () );
+
+			// Waits for the release
+			AtomicInteger runCt = new AtomicInteger ( 0 );
+			Future<?> waitingCall = threads.submit ( () -> bulkhead.execute ( runCt::incrementAndGet ) );
+			while ( bulkhead.getWaitingCalls () == 0 ) Thread.sleep ( 10 );
+
+			// The queue is full
+			assertThrows ( BulkheadFullException.class, () -> bulkhead.execute ( () -> {} ) );
+			assertEquals ( "Wrong no. of rejections!", 2, bulkhead.getRejectedCalls () );
+
+			release.countDown ();
+			waitingCall.get ();
+			for ( Future<?> call: calls ) call.get ();
+			assertEquals ( "The waiting action wasn't run!", 1, runCt.get () );
+		}
+		finally {
+			threads.shutdownNow ();
+		}
+	}
+
+	/**
+	 * Occupies all the slots with calls that wait for the release latch.
+	 */
+	private Future<?>[] fillBulkhead ( BulkheadExecutor bulkhead, ExecutorService threads, CountDownLatch release )
+		throws InterruptedException
+	{
+		int n = bulkhead.getMaxConcurrentCalls ();
+		CountDownLatch started = new CountDownLatch ( n );
+		Future<?>[] result = new Future<?> [ n ];
+		for ( int i = 0; i < n; i++ )
+			result [ i ] = threads.submit ( () -> bulkhead.execute ( () -> {
+				started.countDown ();
+				try {
+					release.await ();
+				}
+				catch ( InterruptedException ex ) {
+					throw new RuntimeException ( "Interrupted test", ex );
+				}
+			}));
+		started.await ( 5, TimeUnit.SECONDS );
+		return result;
+	}
+}
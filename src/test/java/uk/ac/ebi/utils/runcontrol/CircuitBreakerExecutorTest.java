@@ -0,0 +1,122 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.runcontrol.CircuitBreakerExecutor.State;
+import uk.ac.ebi.utils.runcontrol.exceptions.CircuitBreakerOpenException;
+
+/**
+ * Tests for {@link CircuitBreakerExecutor}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class CircuitBreakerExecutorTest
+{
+	private AtomicInteger runCt = new AtomicInteger ( 0 );
+
+	private Runnable failingAction = () -> {
+		throw new IllegalStateException ( "On-purpose exception #" + runCt.incrementAndGet () );
+	};
+
+	private Runnable goodAction = () -> runCt.incrementAndGet ();
+
+	@Test
+	public void testOpenAndClose () throws InterruptedException
+	{
+		CircuitBreakerExecutor executor = new CircuitBreakerExecutor ( "test", 0.5, 500 );
+		executor.setWindowSize ( 10 );
+		executor.setMinCalls ( 4 );
+		executor.setHalfOpenCalls ( 2 );
+
+		executor.execute ( goodAction );
+		for ( int i = 0; i < 3; i++ )
+			assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+
+		// 3/4 failures
+		assertEquals ( "Circuit not open!", State.OPEN, executor.getState () );
+
+		int ct = runCt.get ();
+		assertThrows ( CircuitBreakerOpenException.class, () -> executor.execute ( goodAction ) );
+		assertEquals ( "Action run with open circuit!", ct, runCt.get () );
+		assertEquals ( "Rejections not counted!", 1, executor.getRejectedCalls () );
+
+		// Trial calls
+		Thread.sleep ( 600 );
+		executor.execute ( goodAction );
+		assertEquals ( "Circuit not half-open!", State.HALF_OPEN, executor.getState () );
+		executor.execute ( goodAction );
+		assertEquals ( "Circuit not closed!", State.CLOSED, executor.getState () );
+	}
+
+	@Test
+	public void testHalfOpenFailure () throws InterruptedException
+	{
+		CircuitBreakerExecutor executor = new CircuitBreakerExecutor ( "test", 0.5, 300 );
+		executor.setMinCalls ( 2 );
+		executor.setHalfOpenCalls ( 1 );
+
+		for ( int i = 0; i < 2; i++ )
+			assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+		assertEquals ( "Circuit not open!", State.OPEN, executor.getState () );
+
+		Thread.sleep ( 400 );
+		assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+		assertEquals ( "Circuit not re-opened!", State.OPEN, executor.getState () );
+	}
+
+	@Test
+	public void testSlowCalls ()
+	{
+		CircuitBreakerExecutor executor = new CircuitBreakerExecutor ( "test" );
+		executor.setMinCalls ( 3 );
+		executor.setSlowCallDuration ( 50 );
+		executor.setSlowCallRateThreshold ( 0.6 );
+
+		Runnable slowAction = () -> {
+			try {
+				Thread.sleep ( 100 );
+			}
+			catch ( InterruptedException ex ) {
+				throw new RuntimeException ( "Interrupted test", ex );
+			}
+		};
+
+		executor.execute ( goodAction );
+		executor.execute ( slowAction );
+		assertEquals ( "Circuit shouldn't be open yet!", State.CLOSED, executor.getState () );
+		executor.execute ( slowAction );
+		assertEquals ( "Circuit not open for slow calls!", State.OPEN, executor.getState () );
+	}
+
+	@Test
+	public void testIgnoredExceptions ()
+	{
+		CircuitBreakerExecutor executor = new CircuitBreakerExecutor ( "test", UnsupportedOperationException.class );
+		executor.setMinCalls ( 2 );
+
+		for ( int i = 0; i < 5; i++ )
+			assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+		assertEquals ( "Circuit opened by non-recorded exceptions!", State.CLOSED, executor.getState () );
+	}
+
+	@Test
+	public void testMinCallsValidation ()
+	{
+		CircuitBreakerExecutor executor = new CircuitBreakerExecutor ( "test" );
+		executor.setWindowSize ( 10 );
+
+		assertThrows ( IllegalArgumentException.class, () -> executor.setMinCalls ( 0 ) );
+		assertThrows ( IllegalArgumentException.class, () -> executor.setMinCalls ( 11 ) );
+		executor.setMinCalls ( 10 );
+
+		executor.setWindowSize ( 5 );
+		assertEquals ( "Min calls not lowered to the window size!", 5, executor.getMinCalls () );
+	}
+}
@@ -0,0 +1,140 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+import uk.ac.ebi.utils.time.XStopWatch;
+
+/**
+ * Tests for {@link Deadline} and how the executors honour it.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class DeadlineTest
+{
+	@Test
+	public void testNesting () throws Exception
+	{
+		assertNull ( "Unexpected deadline!", Deadline.current () );
+
+		Deadline.after ( 1, TimeUnit.SECONDS ).run ( () ->
+		{
+			Deadline outer = Deadline.current ();
+
+			// Can't extend the outer one
+			Deadline.after ( 1, TimeUnit.HOURS ).run (
+				() -> assertEquals ( "Outer deadline not kept!", outer, Deadline.current () )
+			);
+
+			Deadline inner = Deadline.after ( 100, TimeUnit.MILLISECONDS );
+			inner.run ( () -> assertEquals ( "Inner deadline not used!", inner, Deadline.current () ) );
+
+			assertEquals ( "Outer deadline not restored!", outer, Deadline.current () );
+		});
+
+		assertNull ( "Deadline not removed!", Deadline.current () );
+	}
+
+	@Test
+	public void testChainFailsFast ()
+	{
+		// Without a deadline, this would take several seconds to give up
+		MultipleAttemptsExecutor attempts = new MultipleAttemptsExecutor ( 5, 900, 1000, IllegalStateException.class );
+		RateLimitedExecutor rateLimiter = new RateLimitedExecutor ( 1 );
+		ChainExecutor chain = new ChainExecutor ( attempts, rateLimiter );
+
+		AtomicInteger runCt = new AtomicInteger ( 0 );
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		assertThrows ( IllegalStateException.class, () ->
+			Deadline.after ( 500, TimeUnit.MILLISECONDS ).run ( () ->
+				chain.execute ( () -> {
+					runCt.incrementAndGet ();
+					throw new IllegalStateException ( "On-purpose failure" );
+				})
+			)
+		);
+
+		assertTrue ( "Deadline not honoured (" + timer.getTime () + "ms)!", timer.getTime () < 500 );
+		assertEquals ( "Wrong no. of attempts!", 1, runCt.get () );
+
+		// Now the rate limiter would need to wait about 1s
+		assertThrows ( DeadlineExceededException.class, () ->
+			Deadline.after ( 500, TimeUnit.MILLISECONDS ).run ( () -> rateLimiter.execute ( runCt::incrementAndGet ) )
+		);
+		assertEquals ( "Rate-limited action run!", 1, runCt.get () );
+	}
+
+	@Test
+	public void testExpired ()
+	{
+		Deadline deadline = Deadline.after ( -1, TimeUnit.MILLISECONDS );
+		AtomicInteger runCt = new AtomicInteger ( 0 );
+
+		assertThrows ( DeadlineExceededException.class, () ->
+			deadline.run ( () -> new MultipleAttemptsExecutor ().execute ( runCt::incrementAndGet ) )
+		);
+		assertThrows ( DeadlineExceededException.class, () ->
+			deadline.run ( () -> new CircuitBreakerExecutor ( "test" ).execute ( runCt::incrementAndGet ) )
+		);
+		assertEquals ( "Action run after the deadline!", 0, runCt.get () );
+	}
+
+	@Test
+	public void testTimeLimiter () throws Exception
+	{
+		XTimeLimiter limiter = XTimeLimiter.create ();
+
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		assertThrows ( DeadlineExceededException.class, () ->
+			Deadline.after ( 100, TimeUnit.MILLISECONDS ).run ( () ->
+				limiter.runWithTimeout ( () -> {
+					try {
+						Thread.sleep ( 5000 );
+					}
+					catch ( InterruptedException ex ) {
+						Thread.currentThread ().interrupt ();
+					}
+				}, 10, TimeUnit.SECONDS )
+			)
+		);
+		assertTrue ( "Timeout not reduced (" + timer.getTime () + "ms)!", timer.getTime () < 1000 );
+
+		// The deadline reaches the limiter's thread
+		String result = Deadline.after ( 1, TimeUnit.MINUTES ).call ( () ->
+			limiter.callWithTimeout ( () -> Deadline.current () == null ? "no deadline" : "deadline", 1, TimeUnit.SECONDS )
+		);
+		assertEquals ( "Deadline not propagated!", "deadline", result );
+	}
+
+	@Test
+	public void testAsyncPropagation () throws Exception
+	{
+		MultipleAttemptsExecutor attempts = new MultipleAttemptsExecutor ( 5, 250, 300, IllegalStateException.class );
+		AtomicInteger runCt = new AtomicInteger ( 0 );
+
+		CompletableFuture<Object> result = Deadline.after ( 500, TimeUnit.MILLISECONDS ).call ( () ->
+			attempts.executeAsync ( () -> {
+				runCt.incrementAndGet ();
+				throw new IllegalStateException ( "On-purpose failure" );
+			})
+		);
+
+		ExecutionException ex = assertThrows ( ExecutionException.class, result::get );
+		assertTrue ( "Wrong exception!", ex.getCause () instanceof IllegalStateException );
+		assertEquals ( "Wrong no. of attempts!", 2, runCt.get () );
+	}
+}
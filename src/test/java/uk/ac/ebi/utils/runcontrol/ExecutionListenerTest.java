@@ -0,0 +1,249 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.runcontrol.exceptions.BulkheadFullException;
+import uk.ac.ebi.utils.runcontrol.exceptions.DeadlineExceededException;
+
+/**
+ * Tests for {@link ExecutionListener} and the executors reporting their events to it.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class ExecutionListenerTest
+{
+	/**
+	 * Records the events as strings, eg, "retry:1".
+	 */
+	private static class RecordingListener implements ExecutionListener
+	{
+		final List<String> events = Collections.synchronizedList ( new ArrayList<> () );
+		volatile long lastDuration = -1, lastWait = -1;
+		
+		@Override
+		public void onAttempt ( Object source, int attempt ) {
+			events.add ( "attempt:" + attempt );
+		}
+
+		@Override
+		public void onRetry ( Object source, int failedAttempt, long pauseNanos, Throwable cause ) {
+			events.add ( "retry:" + failedAttempt );
+		}
+
+		@Override
+		public void onPermitWait ( Object source, double permits, long waitNanos ) 
+		{
+			lastWait = waitNanos;
+			events.add ( "wait" );
+		}
+
+		@Override
+		public void onTimeout ( Object source, long elapsedNanos ) {
+			events.add ( "timeout" );
+		}
+
+		@Override
+		public void onSuccess ( Object source, long durationNanos ) 
+		{
+			lastDuration = durationNanos;
+			events.add ( "success" );
+		}
+
+		@Override
+		public void onFailure ( Object source, long durationNanos, Throwable cause ) 
+		{
+			lastDuration = durationNanos;
+			events.add ( "failure:" + cause.getClass ().getSimpleName () );
+		}
+	}
+	
+	
+	@Test
+	public void testAttempts ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 3, 0, 0, IllegalStateException.class );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+		
+		AtomicInteger ct = new AtomicInteger ( 0 );
+		executor.execute ( () -> {
+			if ( ct.incrementAndGet () < 3 ) throw new IllegalStateException ( "Test failure" );
+		});
+		
+		assertEquals ( "Wrong events!", 
+			List.of ( "attempt:1", "retry:1", "attempt:2", "retry:2", "attempt:3", "success" ), listener.events 
+		);
+		assertTrue ( "Duration not reported!", listener.lastDuration > 0 );
+	}
+
+	@Test
+	public void testAttemptsFailure ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 2, 0, 0, IllegalStateException.class );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+		
+		assertThrows ( IllegalStateException.class, () -> executor.execute ( () -> {
+			throw new IllegalStateException ( "Test failure" );
+		}));
+		
+		assertEquals ( "Wrong events!", 
+			List.of ( "attempt:1", "retry:1", "attempt:2", "failure:IllegalStateException" ), listener.events 
+		);
+	}
+
+	@Test
+	public void testAsyncAttempts () throws Exception
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 3, 0, 0, IllegalStateException.class );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+		
+		AtomicInteger ct = new AtomicInteger ( 0 );
+		String result = executor.executeAsync ( () -> {
+			if ( ct.incrementAndGet () < 2 ) throw new IllegalStateException ( "Test failure" );
+			return "OK";
+		}).get ();
+		
+		assertEquals ( "Wrong result!", "OK", result );
+		assertEquals ( "Wrong events!", List.of ( "attempt:1", "retry:1", "attempt:2", "success" ), listener.events );
+	}
+	
+	@Test
+	public void testAttemptsDeadline ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 3, 500, 600, IllegalStateException.class );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+
+		assertThrows ( IllegalStateException.class, () -> Deadline.after ( 100, TimeUnit.MILLISECONDS ).run ( 
+			() -> executor.execute ( () -> { throw new IllegalStateException ( "Test failure" ); } )
+		));
+
+		assertEquals ( "Wrong events!", 
+			List.of ( "attempt:1", "timeout", "failure:IllegalStateException" ), listener.events 
+		);
+	}
+	
+	@Test
+	public void testRateLimitedWait ()
+	{
+		RateLimitedExecutor executor = new RateLimitedExecutor ( new TokenBucket ( 10, 1 ) );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+
+		executor.execute ( () -> {} );
+		executor.execute ( () -> {} );
+		
+		assertEquals ( "Wrong events!", List.of ( "wait", "success", "wait", "success" ), listener.events );
+		assertTrue ( 
+			"Permit wait too short: " + listener.lastWait, listener.lastWait >= TimeUnit.MILLISECONDS.toNanos ( 50 ) 
+		);
+	}
+	
+	@Test
+	public void testRateLimitedDeadline ()
+	{
+		RateLimitedExecutor executor = new RateLimitedExecutor ( new TokenBucket ( 1, 1 ) );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+		executor.execute ( () -> {} );
+
+		assertThrows ( DeadlineExceededException.class, () -> Deadline.after ( 100, TimeUnit.MILLISECONDS ).run ( 
+			() -> executor.execute ( () -> {} ) 
+		));
+		
+		assertEquals ( "Wrong events!", 
+			List.of ( "wait", "success", "timeout", "failure:DeadlineExceededException" ), listener.events 
+		);
+	}
+
+	@Test
+	public void testBulkheadRejection ()
+	{
+		BulkheadExecutor bulkhead = new BulkheadExecutor ( "test", 1 );
+		RecordingListener listener = new RecordingListener ();
+		bulkhead.addListener ( listener );
+
+		// Nested calls take the same bulkhead twice 
+		assertThrows ( BulkheadFullException.class, () -> bulkhead.execute ( () -> bulkhead.execute ( () -> {} ) ) );
+		
+		assertEquals ( "Wrong events!", 
+			List.of ( "wait", "failure:BulkheadFullException", "failure:BulkheadFullException" ), listener.events 
+		);
+	}
+	
+	@Test
+	public void testStats ()
+	{
+		StatsExecutor executor = new StatsExecutor ( "test" ).setPopUpExceptions ( false );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( listener );
+		
+		executor.execute ( () -> {} );
+		executor.execute ( () -> { throw new IllegalArgumentException ( "Test failure" ); } );
+
+		assertEquals ( "Wrong events!", List.of ( "success", "failure:IllegalArgumentException" ), listener.events );
+	}
+
+	@Test
+	public void testTimeLimiter ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+		RecordingListener listener = new RecordingListener ();
+		limiter.addListener ( listener );
+		
+		limiter.runWithTimeout ( () -> {}, 1, TimeUnit.SECONDS );
+		assertThrows ( RuntimeException.class, () -> limiter.runWithTimeout ( 
+			() -> {
+				try {
+					Thread.sleep ( 2000 );
+				}
+				catch ( InterruptedException ex ) {
+					// Expected
+				}
+			}, 
+			100, TimeUnit.MILLISECONDS 
+		));
+		
+		assertEquals ( "Wrong events!", 
+			List.of ( "success", "timeout", "failure:UncheckedTimeoutException" ), listener.events 
+		);
+	}
+	
+	@Test
+	public void testRemoveAndBadListener ()
+	{
+		StatsExecutor executor = new StatsExecutor ( "test" );
+		RecordingListener listener = new RecordingListener ();
+		executor.addListener ( new ExecutionListener () {
+			@Override
+			public void onSuccess ( Object source, long durationNanos ) {
+				throw new IllegalStateException ( "Test listener failure" );
+			}
+		});
+		executor.addListener ( listener );
+		
+		// The first listener is ignored
+		executor.execute ( () -> {} );
+		assertEquals ( "Wrong events!", List.of ( "success" ), listener.events );
+
+		assertTrue ( "Listener not removed!", executor.removeListener ( listener ) );
+		assertFalse ( "Listener removed twice!", executor.removeListener ( listener ) );
+		executor.execute ( () -> {} );
+		assertEquals ( "Events after the listener removal!", 1, listener.events.size () );
+	}
+}
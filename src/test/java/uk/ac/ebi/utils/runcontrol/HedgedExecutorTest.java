@@ -0,0 +1,151 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import uk.ac.ebi.utils.time.XStopWatch;
+
+/**
+ * Tests for {@link HedgedExecutor}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class HedgedExecutorTest
+{
+	private ExecutorService threads = Executors.newCachedThreadPool ();
+
+	@After
+	public void shutdownThreads ()
+	{
+		threads.shutdownNow ();
+	}
+
+	@Test
+	public void testHedging () throws Exception
+	{
+		HedgedExecutor executor = new HedgedExecutor ( threads, 2, 95, 100, 100 );
+		executor.setHedgeBudget ( null );
+
+		AtomicInteger attemptCt = new AtomicInteger ( 0 );
+		AtomicBoolean isSlowInterrupted = new AtomicBoolean ( false );
+
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		String result = executor.executeAsync ( () ->
+		{
+			// The first attempt gets the slow replica
+			if ( attemptCt.incrementAndGet () == 1 )
+			{
+				try {
+					Thread.sleep ( 5000 );
+				}
+				catch ( InterruptedException ex ) {
+					isSlowInterrupted.set ( true );
+				}
+				return "slow";
+			}
+			return "fast";
+		}).get ();
+		long time = timer.getTime ();
+
+		assertEquals ( "Wrong result!", "fast", result );
+		assertTrue ( "Hedged call too slow (" + time + "ms)!", time < 2000 );
+		assertEquals ( "Wrong no. of hedges!", 1, executor.getHedgedAttempts () );
+
+		Thread.sleep ( 100 );
+		assertTrue ( "The slow attempt wasn't interrupted!", isSlowInterrupted.get () );
+	}
+
+	@Test
+	public void testNoHedgingForFastCalls () throws Exception
+	{
+		HedgedExecutor executor = new HedgedExecutor ( threads );
+		AtomicInteger attemptCt = new AtomicInteger ( 0 );
+
+		for ( int i = 0; i < 10; i++ )
+			executor.execute ( attemptCt::incrementAndGet );
+
+		assertEquals ( "Wrong no. of attempts!", 10, attemptCt.get () );
+		assertEquals ( "Wrong no. of hedges!", 0, executor.getHedgedAttempts () );
+	}
+
+	@Test
+	public void testBudget () throws Exception
+	{
+		// Default budget, 10% of the calls, plus the initial hedge
+		HedgedExecutor executor = new HedgedExecutor ( threads, 2, 95, 10, 10 );
+
+		for ( int i = 0; i < 50; i++ )
+			executor.execute ( () -> {
+				try {
+					Thread.sleep ( 50 );
+				}
+				catch ( InterruptedException ex ) {
+					// Lost the race
+				}
+			});
+
+		long hedges = executor.getHedgedAttempts ();
+		assertTrue ( "Too many hedges (" + hedges + ")!", hedges <= 6 );
+		assertTrue ( "No hedges!", hedges > 0 );
+	}
+
+	@Test
+	public void testRetryWithDefaultBudget () throws Exception
+	{
+		// The hedge budget must not prevent the re-attempts of a new executor
+		HedgedExecutor executor = new HedgedExecutor ( threads, 2, 95, 0, 0, IllegalStateException.class );
+
+		AtomicInteger attemptCt = new AtomicInteger ( 0 );
+		executor.execute ( () -> {
+			if ( attemptCt.incrementAndGet () == 1 ) throw new IllegalStateException ( "On-purpose failure" );
+		});
+		assertEquals ( "Failing first call not re-attempted!", 2, attemptCt.get () );
+	}
+
+	@Test
+	public void testRetry () throws Exception
+	{
+		HedgedExecutor executor = new HedgedExecutor ( threads, 2, 95, 0, 0, IllegalStateException.class );
+		executor.setHedgeBudget ( null );
+
+		AtomicInteger attemptCt = new AtomicInteger ( 0 );
+		executor.execute ( () -> {
+			if ( attemptCt.incrementAndGet () == 1 ) throw new IllegalStateException ( "On-purpose failure" );
+		});
+		assertEquals ( "Wrong no. of attempts!", 2, attemptCt.get () );
+
+		// Not intercepted
+		assertThrows ( IllegalArgumentException.class, () -> executor.execute ( () -> {
+			throw new IllegalArgumentException ( "On-purpose failure" );
+		}));
+
+		// Attempts exhausted
+		assertThrows ( IllegalStateException.class, () -> executor.execute ( () -> {
+			throw new IllegalStateException ( "On-purpose failure" );
+		}));
+	}
+
+	@Test
+	public void testPercentileDelay () throws Exception
+	{
+		HedgedExecutor executor = new HedgedExecutor ( threads, 2, 95, 0, 3000 );
+		assertEquals ( "Wrong initial delay!", 3000, executor.getHedgeDelay () );
+
+		for ( int i = 0; i < 100; i++ )
+			executor.execute ( () -> {} );
+
+		assertTrue ( "Hedging delay not updated!", executor.getHedgeDelay () < 100 );
+	}
+}
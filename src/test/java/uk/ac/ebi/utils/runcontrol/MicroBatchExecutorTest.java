@@ -0,0 +1,133 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MicroBatchExecutor}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class MicroBatchExecutorTest
+{
+	private ExecutorService threads = Executors.newCachedThreadPool ();
+
+	@After
+	public void shutdownThreads ()
+	{
+		threads.shutdownNow ();
+	}
+
+	@Test
+	public void testBySize () throws Exception
+	{
+		List<Integer> batchSizes = new ArrayList<> ();
+		MicroBatchExecutor<Integer, String> executor = new MicroBatchExecutor<> ( items -> {
+			synchronized ( batchSizes ) { batchSizes.add ( items.size () ); }
+			return items.stream ().map ( i -> "result-" + i ).collect ( Collectors.toList () );
+		}, 10, 60_000, threads );
+
+		List<Future<String>> results = new ArrayList<> ();
+		for ( int i = 0; i < 100; i++ )
+		{
+			int item = i;
+			results.add ( threads.submit ( () -> executor.execute ( item ) ) );
+		}
+
+		for ( int i = 0; i < 100; i++ )
+			assertEquals ( "Wrong result!", "result-" + i, results.get ( i ).get () );
+
+		assertEquals ( "Wrong no. of batches!", 10, executor.getBatchCount () );
+		assertTrue ( "Wrong batch sizes!", batchSizes.stream ().allMatch ( s -> s == 10 ) );
+	}
+
+	@Test
+	public void testByTime () throws Exception
+	{
+		MicroBatchExecutor<Integer, Integer> executor = new MicroBatchExecutor<> ( 
+			items -> items.stream ().map ( i -> i * 2 ).collect ( Collectors.toList () ), 
+			1000, 100, threads 
+		);
+
+		CompletableFuture<Integer> result1 = executor.submit ( 1 );
+		CompletableFuture<Integer> result2 = executor.submit ( 2 );
+		Thread.sleep ( 50 );
+		assertTrue ( "Batch sent too early!", !result1.isDone () );
+
+		assertEquals ( "Wrong result!", (Integer) 2, result1.get () );
+		assertEquals ( "Wrong result!", (Integer) 4, result2.get () );
+		assertEquals ( "Wrong no. of batches!", 1, executor.getBatchCount () );
+
+		// A new batch
+		assertEquals ( "Wrong result after the first batch!", (Integer) 6, executor.execute ( 3 ) );
+		assertEquals ( "Wrong no. of batches!", 2, executor.getBatchCount () );
+	}
+
+	@Test
+	public void testDirectExecutor () throws Exception
+	{
+		List<String> threadNames = new ArrayList<> ();
+		MicroBatchExecutor<Integer, Integer> executor = new MicroBatchExecutor<> (
+			items -> {
+				threadNames.add ( Thread.currentThread ().getName () );
+				return items;
+			},
+			100, 50, Runnable::run
+		);
+
+		assertEquals ( "Wrong result!", 1, (int) executor.submit ( 1 ).get () );
+		assertEquals ( "Wrong no. of batches!", 1, threadNames.size () );
+		assertTrue (
+			"Bulk function run by the timer (" + threadNames.get ( 0 ) + ")!",
+			threadNames.get ( 0 ).startsWith ( "MicroBatchExecutor-Flusher-" )
+		);
+	}
+
+	@Test
+	public void testFailure ()
+	{
+		MicroBatchExecutor<Integer, Integer> executor = new MicroBatchExecutor<> ( 
+			items -> { throw new IllegalStateException ( "On-purpose failure" ); }, 2, 100, threads 
+		);
+
+		CompletableFuture<Integer> result1 = executor.submit ( 1 );
+		CompletableFuture<Integer> result2 = executor.submit ( 2 );
+		for ( CompletableFuture<Integer> result: List.of ( result1, result2 ) )
+		{
+			ExecutionException ex = assertThrows ( ExecutionException.class, result::get );
+			assertEquals ( "Wrong exception!", IllegalStateException.class, ex.getCause ().getClass () );
+		}
+
+		// Wrong no. of results
+		MicroBatchExecutor<Integer, Integer> badExecutor = new MicroBatchExecutor<> ( items -> List.of ( 1 ), 2, 100, threads );
+		badExecutor.submit ( 1 );
+		assertThrows ( IllegalStateException.class, () -> badExecutor.execute ( 2 ) );
+	}
+
+	@Test
+	public void testClose () throws Exception
+	{
+		MicroBatchExecutor<Integer, Integer> executor = new MicroBatchExecutor<> ( items -> items, 100, 60_000, threads );
+		CompletableFuture<Integer> result = executor.submit ( 1 );
+		executor.close ();
+
+		assertEquals ( "Pending batch not flushed!", (Integer) 1, result.get () );
+		assertThrows ( RejectedExecutionException.class, () -> executor.submit ( 2 ) );
+	}
+}
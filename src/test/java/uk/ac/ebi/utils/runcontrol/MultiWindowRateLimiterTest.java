@@ -0,0 +1,101 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MultiWindowRateLimiter}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class MultiWindowRateLimiterTest
+{
+	@Test
+	public void testQuotas ()
+	{
+		// Bursts of 3, 6 per second
+		MultiWindowRateLimiter limiter = new MultiWindowRateLimiter ( 20 )
+			.addWindow ( 3, 100, TimeUnit.MILLISECONDS )
+			.addWindow ( 6, 1, TimeUnit.SECONDS );
+
+		long start = System.nanoTime ();
+		List<Long> times = new ArrayList<> ();
+		for ( int i = 0; i < 12; i++ ) {
+			limiter.acquire ( 1 );
+			times.add ( TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start ) );
+		}
+
+		// The first 3 straight away, then 3 more after 100ms, then the 1s window is full
+		assertTrue ( "Burst not allowed (" + times + ")!", times.get ( 2 ) < 50 );
+		assertTrue ( "Short window not honoured (" + times + ")!", times.get ( 3 ) >= 100 && times.get ( 3 ) < 200 );
+		assertTrue ( "Long window not honoured (" + times + ")!", times.get ( 6 ) >= 1000 );
+
+		assertNoWindowExceeded ( times, 100, 3 );
+		assertNoWindowExceeded ( times, 1000, 6 );
+	}
+
+	@Test
+	public void testTryAcquire ()
+	{
+		MultiWindowRateLimiter limiter = new MultiWindowRateLimiter ()
+			.addWindow ( 2, 1, TimeUnit.SECONDS )
+			.addWindow ( 100, 1, TimeUnit.DAYS );
+
+		assertTrue ( "1st permit not given!", limiter.tryAcquire ( 1, 0, TimeUnit.MILLISECONDS ) );
+		assertTrue ( "2nd permit not given!", limiter.tryAcquire ( 1, 0, TimeUnit.MILLISECONDS ) );
+		assertFalse ( "3rd permit given!", limiter.tryAcquire ( 1, 100, TimeUnit.MILLISECONDS ) );
+
+		long wait = TimeUnit.NANOSECONDS.toMillis ( limiter.getWaitNanos () );
+		assertTrue ( "Wrong wait time (" + wait + ")!", wait > 900 && wait <= 1100 );
+		assertEquals ( "Wrong rate!", 100d / 24 / 3600, limiter.getRate (), 1E-9 );
+	}
+
+	@Test
+	public void testSetRate ()
+	{
+		MultiWindowRateLimiter limiter = new MultiWindowRateLimiter ()
+			.addWindow ( 2, 1, TimeUnit.SECONDS );
+
+		limiter.setRate ( 4 );
+		assertEquals ( "Wrong rate after setRate()!", 4d, limiter.getRate (), 1E-9 );
+
+		try {
+			// Would leave the window with 0.1 permits
+			limiter.setRate ( 0.1 );
+			fail ( "setRate() accepted a window without whole permits!" );
+		}
+		catch ( IllegalArgumentException ex ) {
+			// Expected
+		}
+		assertEquals ( "Rejected setRate() changed the rate!", 4d, limiter.getRate (), 1E-9 );
+		assertTrue ( "No permit after a rejected setRate()!", limiter.tryAcquire ( 1, 0, TimeUnit.MILLISECONDS ) );
+
+		// Windows with fractional permits are still possible, but getWaitNanos() must not fail on them
+		MultiWindowRateLimiter slowLimiter = new MultiWindowRateLimiter ()
+			.addWindow ( 0.5, 1, TimeUnit.SECONDS );
+		assertEquals ( "Wrong initial wait!", 0, slowLimiter.getWaitNanos () );
+	}
+
+	/**
+	 * Checks that there aren't more than maxPermits in any window starting with one of the times.
+	 */
+	private void assertNoWindowExceeded ( List<Long> times, long windowMs, int maxPermits )
+	{
+		for ( int i = 0; i < times.size (); i++ )
+		{
+			int ct = 0;
+			for ( int j = i; j < times.size () && times.get ( j ) - times.get ( i ) < windowMs; j++ ) ct++;
+			assertTrue ( String.format ( "Window of %dms exceeded (%s)!", windowMs, times ), ct <= maxPermits );
+		}
+	}
+}
@@ -1,12 +1,19 @@
 package uk.ac.ebi.utils.runcontrol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.utils.time.XStopWatch;
+
 /**
  * Tests for {@link MultipleAttemptsExecutor}.
  *
@@ -88,4 +95,84 @@ public class MultipleAttemptsExecutorTest
 		);
 	}
 
+	/**
+	 * Exponential backoff, the pauses must grow between min and max.
+	 */
+	@Test
+	public void testExponentialBackoff ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 
+			5, 100, 2000, RuntimeException.class 
+		);
+		executor.setExponentialBackoff ( true );
+
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		executor.execute ( () -> { 
+			if ( ++runCt <= 4 ) throw new IllegalStateException ( "On-purpose exception #" + runCt ); 
+		});
+		long time = timer.getTime ();
+		
+		log.info ( "Exponential backoff time: {} ms", time );
+		assertEquals ( "Run count is wrong!", 5, runCt );
+		assertTrue ( "Pauses are too short!", time >= 4 * 100 );
+		assertTrue ( "Pauses are too long!", time <= 4 * 2000 + 500 );
+	}
+
+	/**
+	 * An empty retry budget stops re-attempts.
+	 */
+	@Test
+	public void testRetryBudget ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 
+			3, 0, 0, RuntimeException.class 
+		);
+		// 50% of calls can be re-attempted, no min retries
+		executor.setRetryBudget ( new RetryBudget ( 0.5, 0 ) );
+
+		Runnable failingAction = () -> { 
+			throw new IllegalStateException ( "On-purpose exception #" + (++runCt) ); 
+		};
+		
+		// First call, 0.5 in the budget, no retry
+		Assert.assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+		assertEquals ( "Empty budget didn't stop re-attempts!", 1, runCt );
+
+		// Second call, 1 token in the budget, one retry
+		Assert.assertThrows ( IllegalStateException.class, () -> executor.execute ( failingAction ) );
+		assertEquals ( "Retry budget not used!", 3, runCt );
+	}
+	
+	/**
+	 * Fails twice, then succeeds, asynchronously.
+	 */
+	@Test
+	public void testAsync ()
+	{
+		MultipleAttemptsExecutor executor = new MultipleAttemptsExecutor ( 
+			3, 500, 1000, RuntimeException.class 
+		);
+		AtomicInteger asyncRunCt = new AtomicInteger ( 0 );
+		
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		CompletableFuture<String> result = executor.executeAsync ( () -> 
+		{
+			int ct = asyncRunCt.incrementAndGet ();
+			if ( ct <= 2 ) throw new IllegalStateException ( "On-purpose exception #" + ct );
+			return "Hello, World";
+		});
+		assertTrue ( "The async executor is blocking!", timer.getTime () < 500 );
+		
+		assertEquals ( "Wrong async result!", "Hello, World", result.join () );
+		assertEquals ( "Run count is wrong!", 3, asyncRunCt.get () );
+		
+		// And now a failure
+		CompletableFuture<String> failure = executor.executeAsync ( () -> {
+			throw new IllegalStateException ( "On-purpose exception" );
+		});
+		CompletionException ex = Assert.assertThrows ( CompletionException.class, failure::join );
+		assertTrue ( "Wrong async exception!", ex.getCause () instanceof IllegalStateException );
+	}
 }
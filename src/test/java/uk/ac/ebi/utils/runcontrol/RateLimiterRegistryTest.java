@@ -0,0 +1,145 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.utils.runcontrol.StatsExecutorTest.Tester;
+import uk.ac.ebi.utils.time.XStopWatch;
+
+/**
+ * Tests for {@link RateLimiterRegistry} and the shared token buckets.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class RateLimiterRegistryTest
+{
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	@Test
+	public void testSharedLimit () throws InterruptedException
+	{
+		RateLimiterRegistry registry = new RateLimiterRegistry ();
+		double rate = 20;
+		TokenBucket bucket = registry.getTokenBucket ( "testService", rate );
+		assertSame ( "Registry didn't return the same bucket!", bucket, registry.getTokenBucket ( "testService", 1000 ) );
+
+		Tester tester1 = new Tester (), tester2 = new Tester ();
+		tester1.failRate = tester2.failRate = -1;
+
+		// Each call of the second one costs twice the first's
+		long testTime = 3000;
+		Thread t1 = runThread ( registry.newExecutor ( "testService" ), tester1, testTime );
+		Thread t2 = runThread ( registry.newExecutor ( "testService", 2 ), tester2, testTime );
+		t1.join (); t2.join ();
+
+		double actualRate = ( tester1.calls.get () + 2d * tester2.calls.get () ) / ( testTime / 1000d );
+		log.info ( "Calls: {} + {}, actual permit rate: {} permits/sec", tester1.calls.get (), tester2.calls.get (), actualRate );
+
+		assertTrue ( "Shared rate was not limited!", actualRate <= rate * 1.15 );
+		assertTrue ( "Shared rate is too low!", actualRate >= rate * 0.7 );
+		assertTrue ( "A client was starved!", tester1.calls.get () > 0 && tester2.calls.get () > 0 );
+	}
+
+	@Test
+	public void testWeightedShares () throws InterruptedException
+	{
+		RateLimiterRegistry registry = new RateLimiterRegistry ();
+		double rate = 20;
+		registry.getTokenBucket ( "testService", rate );
+
+		Tester tester1 = new Tester (), tester2 = new Tester ();
+		tester1.failRate = tester2.failRate = -1;
+
+		// Same number of threads on both sides, the weights should make the difference
+		long testTime = 3000;
+		Executor exec1 = registry.newExecutor ( "testService", 1, 3 );
+		Executor exec2 = registry.newExecutor ( "testService", 1, 1 );
+		Thread[] threads = new Thread [ 8 ];
+		for ( int i = 0; i < threads.length; i++ )
+			threads [ i ] = i % 2 == 0 
+				? runThread ( exec1, tester1, testTime ) 
+				: runThread ( exec2, tester2, testTime );
+		for ( Thread t: threads ) t.join ();
+
+		int calls1 = tester1.calls.get (), calls2 = tester2.calls.get ();
+		double actualRate = ( calls1 + calls2 ) / ( testTime / 1000d );
+		log.info ( "Calls: {} + {}, actual rate: {} calls/sec", calls1, calls2, actualRate );
+
+		assertTrue ( "Shared rate was not limited!", actualRate <= rate * 1.15 );
+		assertTrue ( "Shared rate is too low!", actualRate >= rate * 0.7 );
+		assertTrue ( "The low-weight client was starved!", calls2 > 0 );
+		double ratio = (double) calls1 / calls2;
+		assertTrue ( "Wrong ratio between the weighted shares: " + ratio, ratio >= 2 && ratio <= 4.5 );
+	}
+
+	@Test
+	public void testWeightedShareAlone () throws InterruptedException
+	{
+		RateLimiterRegistry registry = new RateLimiterRegistry ();
+		double rate = 20;
+		registry.getTokenBucket ( "testService", rate );
+
+		Tester tester = new Tester ();
+		tester.failRate = -1;
+
+		// The other share is idle, so this one should get the whole rate
+		long testTime = 3000;
+		registry.newExecutor ( "testService", 1, 3 );
+		runThread ( registry.newExecutor ( "testService", 1, 1 ), tester, testTime ).join ();
+
+		double actualRate = tester.calls.get () / ( testTime / 1000d );
+		log.info ( "Calls: {}, actual rate: {} calls/sec", tester.calls.get (), actualRate );
+		assertTrue ( "Single share rate was not limited!", actualRate <= rate * 1.15 );
+		assertTrue ( "Single share didn't get the whole rate!", actualRate >= rate * 0.7 );
+	}
+
+	@Test
+	public void testMappedBucket () throws InterruptedException, IOException
+	{
+		File file = File.createTempFile ( "jutils-bucket-test-", ".bin" );
+		file.deleteOnExit ();
+		double rate = 20;
+
+		// Two instances on the same file, like we had two different processes
+		try (
+			MappedTokenBucket bucket1 = new MappedTokenBucket ( file.toPath (), rate );
+			MappedTokenBucket bucket2 = new MappedTokenBucket ( file.toPath (), rate );
+		)
+		{
+			Tester tester = new Tester ();
+			tester.failRate = -1;
+
+			long testTime = 3000;
+			Thread t1 = runThread ( new RateLimitedExecutor ( bucket1 ), tester, testTime );
+			Thread t2 = runThread ( new RateLimitedExecutor ( bucket2 ), tester, testTime );
+			t1.join (); t2.join ();
+
+			double actualRate = tester.calls.get () / ( testTime / 1000d );
+			log.info ( "Calls: {}, actual rate: {} calls/sec", tester.calls.get (), actualRate );
+			assertTrue ( "Mapped rate was not limited!", actualRate <= rate * 1.15 );
+			assertTrue ( "Mapped rate is too low!", actualRate >= rate * 0.7 );
+		}
+	}
+
+	private Thread runThread ( Executor executor, Runnable action, long testTime )
+	{
+		Thread result = new Thread ( () ->
+		{
+			XStopWatch timer = new XStopWatch ();
+			for ( timer.start (); timer.getTime () < testTime; )
+				executor.execute ( action );
+		});
+		result.start ();
+		return result;
+	}
+}
@@ -0,0 +1,117 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SingleFlightExecutor}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class SingleFlightExecutorTest
+{
+	private ExecutorService threads = Executors.newCachedThreadPool ();
+
+	@After
+	public void shutdownThreads ()
+	{
+		threads.shutdownNow ();
+	}
+
+	@Test
+	public void testCoalescing () throws Exception
+	{
+		SingleFlightExecutor<String, String> executor = new SingleFlightExecutor<> ();
+		AtomicInteger loadCt = new AtomicInteger ( 0 );
+		CountDownLatch release = new CountDownLatch ( 1 );
+
+		int nthreads = 10;
+		List<Future<String>> results = new ArrayList<> ();
+		for ( int i = 0; i < nthreads; i++ )
+			results.add ( threads.submit ( () -> executor.execute ( "key", () -> {
+				loadCt.incrementAndGet ();
+				release.await ();
+				return "value";
+			})));
+
+		// Let them all join the first call
+		while ( loadCt.get () == 0 ) Thread.sleep ( 10 );
+		Thread.sleep ( 200 );
+		release.countDown ();
+
+		for ( Future<String> result: results )
+			assertEquals ( "Wrong result!", "value", result.get () );
+		assertEquals ( "The loader was run more than once!", 1, loadCt.get () );
+		assertEquals ( "Call not removed!", 0, executor.size () );
+
+		// No TTL, loads again
+		executor.execute ( "key", () -> "" + loadCt.incrementAndGet () );
+		assertEquals ( "The loader wasn't run again!", 2, loadCt.get () );
+	}
+
+	@Test
+	public void testTtl () throws Exception
+	{
+		SingleFlightExecutor<String, Integer> executor = new SingleFlightExecutor<> ( 200 );
+		AtomicInteger loadCt = new AtomicInteger ( 0 );
+
+		assertEquals ( "Wrong 1st result!", (Integer) 1, executor.execute ( "key", loadCt::incrementAndGet ) );
+		assertEquals ( "Wrong cached result!", (Integer) 1, executor.execute ( "key", loadCt::incrementAndGet ) );
+		assertEquals ( "Wrong result for another key!", (Integer) 2, executor.execute ( "key1", loadCt::incrementAndGet ) );
+
+		Thread.sleep ( 300 );
+		assertEquals ( "Wrong result after the TTL!", (Integer) 3, executor.execute ( "key", loadCt::incrementAndGet ) );
+	}
+
+	@Test
+	public void testFailuresNotKept ()
+	{
+		SingleFlightExecutor<String, Integer> executor = new SingleFlightExecutor<> ( 60_000 );
+		AtomicInteger loadCt = new AtomicInteger ( 0 );
+
+		for ( int i = 0; i < 2; i++ )
+			assertThrows ( IllegalStateException.class, () -> executor.execute ( "key", () -> {
+				loadCt.incrementAndGet ();
+				throw new IllegalStateException ( "On-purpose failure" );
+			}));
+		assertEquals ( "Failure was cached!", 2, loadCt.get () );
+	}
+
+	@Test
+	public void testAsync () throws Exception
+	{
+		SingleFlightExecutor<String, String> executor = new SingleFlightExecutor<> ();
+		AtomicInteger loadCt = new AtomicInteger ( 0 );
+		CompletableFuture<String> loading = new CompletableFuture<> ();
+
+		CompletableFuture<String> result1 = executor.executeAsync ( "key", () -> { loadCt.incrementAndGet (); return loading; } );
+		CompletableFuture<String> result2 = executor.executeAsync ( "key", () -> { loadCt.incrementAndGet (); return loading; } );
+
+		// Doesn't affect the others
+		result2.cancel ( true );
+
+		loading.complete ( "value" );
+		assertEquals ( "Wrong result!", "value", result1.get () );
+		assertEquals ( "The loader was run more than once!", 1, loadCt.get () );
+
+		CompletableFuture<String> failed = executor.executeAsync ( "key", () -> { throw new IllegalStateException ( "On-purpose failure" ); }, threads );
+		ExecutionException ex = assertThrows ( ExecutionException.class, () -> failed.get ( 1, TimeUnit.SECONDS ) );
+		assertEquals ( "Wrong exception!", IllegalStateException.class, ex.getCause ().getClass () );
+	}
+}
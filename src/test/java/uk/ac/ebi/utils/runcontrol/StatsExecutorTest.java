@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.utils.statistics.LatencyHistogram;
 import uk.ac.ebi.utils.time.XStopWatch;
 
 /**
@@ -68,6 +69,16 @@ public class StatsExecutorTest
 			Math.abs ( executor.getLastTotalCalls () / expectedCalls - 1 ) < 0.2 
 		);
 		Assert.assertTrue ( "Failed Calls wrong!", Math.abs ( failRate - FAIL_RATE ) < 0.1 );
+		
+		// Successful calls take TASK_MAX_TIME/2 on average, failed ones almost nothing
+		LatencyHistogram.Snapshot latencies = executor.getLastLatencies ();
+		log.info ( "Latencies (ns): {}", latencies );
+		Assert.assertEquals ( "Latencies count wrong!", executor.getLastTotalCalls (), latencies.getCount () );
+		Assert.assertTrue ( "Latencies mean wrong!", 
+			Math.abs ( latencies.getMean () / 1E6 / ( TASK_MAX_TIME / 2d ) - 1 ) < 0.2 
+		);
+		// Not the max, since a busy test environment can make a single call much longer
+		Assert.assertTrue ( "Latencies p95 wrong!", latencies.getPercentile ( 95 ) / 1E6 <= TASK_MAX_TIME * 1.2 );
 	}
 	
 	@Test
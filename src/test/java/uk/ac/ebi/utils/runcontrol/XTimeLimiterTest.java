@@ -0,0 +1,129 @@
+package uk.ac.ebi.utils.runcontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+import uk.ac.ebi.utils.time.XStopWatch;
+
+/**
+ * Tests for {@link XTimeLimiter}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class XTimeLimiterTest
+{
+	private final Callable<String> slowCall = () -> {
+		Thread.sleep ( 5000 );
+		return "slow";
+	};
+
+	@Test
+	public void testSameThread ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+		Thread invoker = Thread.currentThread ();
+
+		String result = limiter.callWithTimeout ( 
+			() -> Thread.currentThread () == invoker ? "same" : "other", 1, TimeUnit.SECONDS 
+		);
+		assertEquals ( "Call not run in the invoker's thread!", "same", result );
+
+		XStopWatch timer = new XStopWatch ();
+		timer.start ();
+		assertThrows ( UncheckedTimeoutException.class, () -> limiter.callWithTimeout ( slowCall, 100, TimeUnit.MILLISECONDS ) );
+		long time = timer.getTime ();
+		assertTrue ( "Timeout not honoured (" + time + "ms)!", time >= 100 && time < 1000 );
+		assertFalse ( "Interruption flag not cleared!", Thread.currentThread ().isInterrupted () );
+	}
+
+	@Test
+	public void testSameThreadInfiniteTimeout ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+		String result = limiter.callWithTimeout ( () -> {
+			Thread.sleep ( 100 );
+			return "done";
+		}, Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+		assertEquals ( "Infinite timeout not honoured!", "done", result );
+		assertFalse ( "Interruption flag set!", Thread.currentThread ().isInterrupted () );
+	}
+
+	@Test
+	public void testSameThreadPreservesInterruption ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+
+		Thread.currentThread ().interrupt ();
+		try
+		{
+			// Doesn't react to interruptions, so it's stopped by the timeout
+			assertThrows ( UncheckedTimeoutException.class, () -> limiter.runWithTimeout ( () -> {
+				long end = System.nanoTime () + TimeUnit.MILLISECONDS.toNanos ( 300 );
+				while ( System.nanoTime () < end ) Thread.onSpinWait ();
+			}, 50, TimeUnit.MILLISECONDS ));
+			assertTrue ( "Former interruption flag cleared!", Thread.currentThread ().isInterrupted () );
+		}
+		finally {
+			Thread.interrupted ();
+		}
+	}
+
+	@Test
+	public void testSameThreadErrors ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+
+		assertThrows ( IllegalStateException.class, () -> limiter.runWithTimeout ( 
+			() -> { throw new IllegalStateException ( "On-purpose error" ); }, 1, TimeUnit.SECONDS 
+		));
+		assertThrows ( UncheckedExecutionException.class, () -> limiter.callWithTimeout ( 
+			() -> { throw new Exception ( "On-purpose error" ); }, 1, TimeUnit.SECONDS 
+		));
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	@Test
+	public void testSameThreadProxy ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createSameThread ();
+
+		Supplier<String> fast = limiter.newProxy ( () -> "fast", Supplier.class, 1, TimeUnit.SECONDS );
+		assertEquals ( "Wrong proxy result!", "fast", fast.get () );
+
+		Supplier<String> slow = limiter.newProxy ( () -> {
+			try {
+				return slowCall.call ();
+			}
+			catch ( Exception ex ) {
+				throw new IllegalStateException ( ex );
+			}
+		}, Supplier.class, 100, TimeUnit.MILLISECONDS );
+		assertThrows ( UncheckedTimeoutException.class, slow::get );
+	}
+
+	@Test
+	public void testVirtualThreads ()
+	{
+		XTimeLimiter limiter = XTimeLimiter.createWithVirtualThreads ();
+
+		String result = limiter.callWithTimeout ( 
+			() -> Thread.currentThread ().isVirtual () ? "virtual" : "platform", 1, TimeUnit.SECONDS 
+		);
+		assertEquals ( "Call not run in a virtual thread!", "virtual", result );
+
+		assertThrows ( UncheckedTimeoutException.class, () -> limiter.callWithTimeout ( slowCall, 100, TimeUnit.MILLISECONDS ) );
+	}
+}
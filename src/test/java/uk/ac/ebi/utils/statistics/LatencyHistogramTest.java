@@ -0,0 +1,73 @@
+package uk.ac.ebi.utils.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.statistics.LatencyHistogram.Snapshot;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void testPercentiles ()
+	{
+		LatencyHistogram histogram = new LatencyHistogram ();
+		for ( long v = 1; v <= 100_000; v++ ) histogram.record ( v * 1000 );
+
+		Snapshot snapshot = histogram.getSnapshot ();
+		assertEquals ( "Wrong count!", 100_000, snapshot.getCount () );
+		assertPercentile ( snapshot, 50, 50_000_000 );
+		assertPercentile ( snapshot, 95, 95_000_000 );
+		assertPercentile ( snapshot, 99, 99_000_000 );
+		assertPercentile ( snapshot, 100, 100_000_000 );
+		assertTrue ( "Wrong max!", Math.abs ( snapshot.getMax () / 100_000_000d - 1 ) < 0.04 );
+		assertEquals ( "Wrong mean!", 50_000_500d, snapshot.getMean (), 0.1 );
+	}
+
+	@Test
+	public void testSmallAndBigValues ()
+	{
+		LatencyHistogram histogram = new LatencyHistogram ();
+		histogram.record ( 0 );
+		histogram.record ( 5 );
+		histogram.record ( Long.MAX_VALUE );
+
+		Snapshot snapshot = histogram.getSnapshot ();
+		assertEquals ( "Wrong min!", 0, snapshot.getMin () );
+		assertEquals ( "Wrong p50!", 5, snapshot.getPercentile ( 50 ) );
+		assertEquals ( "Wrong max!", Long.MAX_VALUE, snapshot.getMax () );
+	}
+
+	@Test
+	public void testIntervals ()
+	{
+		LatencyHistogram histogram = new LatencyHistogram ();
+		for ( int i = 0; i < 100; i++ ) histogram.record ( 1000 );
+		assertEquals ( "Wrong 1st interval!", 100, histogram.getIntervalSnapshot ().getCount () );
+
+		for ( int i = 0; i < 10; i++ ) histogram.record ( 2000 );
+		Snapshot snapshot = histogram.getIntervalSnapshot ();
+		assertEquals ( "Wrong 2nd interval count!", 10, snapshot.getCount () );
+		assertPercentile ( snapshot, 50, 2000 );
+		assertEquals ( "Wrong 2nd interval mean!", 2000d, snapshot.getMean (), 0 );
+
+		assertEquals ( "Wrong total count!", 110, histogram.getSnapshot ().getCount () );
+	}
+
+	private void assertPercentile ( Snapshot snapshot, double percentile, long expected )
+	{
+		long actual = snapshot.getPercentile ( percentile );
+		assertTrue (
+			String.format ( "p%.0f is wrong (expected: %d, actual: %d)!", percentile, expected, actual ),
+			Math.abs ( 1d * actual / expected - 1 ) < 0.03
+		);
+	}
+}
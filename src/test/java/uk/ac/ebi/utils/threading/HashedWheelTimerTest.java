@@ -0,0 +1,89 @@
+package uk.ac.ebi.utils.threading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.ebi.utils.threading.HashedWheelTimer.Timeout;
+
+/**
+ * Tests for {@link HashedWheelTimer}.
+ *
+ * @author Marco Brandizi
+ * <dl><dt>Date:</dt><dd>19 Oct 2026</dd></dl>
+ *
+ */
+public class HashedWheelTimerTest
+{
+	@Test
+	public void testExpiry () throws InterruptedException
+	{
+		// A small wheel, so that the 2nd timeout needs more rounds
+		try ( HashedWheelTimer timer = new HashedWheelTimer ( "test", 10, TimeUnit.MILLISECONDS, 8 ) )
+		{
+			CountDownLatch latch = new CountDownLatch ( 2 );
+			long start = System.nanoTime ();
+			long[] times = new long [ 2 ];
+			
+			timer.newTimeout ( () -> { times [ 0 ] = System.nanoTime () - start; latch.countDown (); }, 50, TimeUnit.MILLISECONDS );
+			timer.newTimeout ( () -> { times [ 1 ] = System.nanoTime () - start; latch.countDown (); }, 300, TimeUnit.MILLISECONDS );
+			
+			assertTrue ( "Timeouts not expired!", latch.await ( 2, TimeUnit.SECONDS ) );
+			assertTiming ( 50, times [ 0 ] );
+			assertTiming ( 300, times [ 1 ] );
+		}
+	}
+
+	@Test
+	public void testInfiniteDelay () throws InterruptedException
+	{
+		try ( HashedWheelTimer timer = new HashedWheelTimer ( "test" ) )
+		{
+			AtomicInteger runCt = new AtomicInteger ( 0 );
+			// They used to overflow the deadline and expire straight away
+			Timeout nanosTimeout = timer.newTimeout ( runCt::incrementAndGet, Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+			Timeout daysTimeout = timer.newTimeout ( runCt::incrementAndGet, Long.MAX_VALUE, TimeUnit.DAYS );
+
+			Thread.sleep ( 100 );
+			assertEquals ( "Infinite timeouts expired!", 0, runCt.get () );
+			assertFalse ( "Infinite timeout expired!", nanosTimeout.isExpired () );
+			assertTrue ( "Infinite timeout not cancellable!", daysTimeout.cancel () );
+		}
+	}
+
+	@Test
+	public void testCancel () throws InterruptedException
+	{
+		try ( HashedWheelTimer timer = new HashedWheelTimer ( "test" ) )
+		{
+			AtomicInteger runCt = new AtomicInteger ( 0 );
+			Timeout[] timeouts = new Timeout [ 1000 ];
+			for ( int i = 0; i < timeouts.length; i++ )
+				timeouts [ i ] = timer.newTimeout ( runCt::incrementAndGet, 100, TimeUnit.MILLISECONDS );
+
+			for ( int i = 0; i < timeouts.length; i += 2 )
+				assertTrue ( "Cancel failed!", timeouts [ i ].cancel () );
+
+			Thread.sleep ( 300 );
+			assertEquals ( "Wrong no. of expired timeouts!", timeouts.length / 2, runCt.get () );
+			assertTrue ( "Timeout not expired!", timeouts [ 1 ].isExpired () );
+			assertFalse ( "Expired timeout cancelled!", timeouts [ 1 ].cancel () );
+			assertTrue ( "Timeout not cancelled!", timeouts [ 0 ].isCancelled () );
+		}
+	}
+
+	private void assertTiming ( long expectedMs, long actualNs )
+	{
+		long actualMs = TimeUnit.NANOSECONDS.toMillis ( actualNs );
+		assertTrue ( 
+			String.format ( "Timeout expired at the wrong time (expected: %d, actual: %d)", expectedMs, actualMs ),
+			actualMs >= expectedMs && actualMs < expectedMs + 100
+		);
+	}
+}